@@ -0,0 +1,76 @@
+package benchmark;
+
+import question.FreeResponseQuestion;
+import question.MultipleChoiceQuestion;
+import question.Question;
+import student.Student;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Helper methods to build the question pools, answers and students used by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final String[] OPTIONS = {"a", "b", "c", "d"};
+    private static final Date BIRTH_DATE = birthDate();
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds a pool with the given number of questions, alternating free response and multiple choice questions.
+     *
+     * @param size the number of questions in the pool
+     * @return the question pool
+     */
+    static List<Question> questionPool(int size) {
+        List<Question> pool = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0) {
+                pool.add(new FreeResponseQuestion("Free response question " + i, "Answer number " + i));
+            } else {
+                pool.add(new MultipleChoiceQuestion("Multiple choice question " + i,
+                        new String[]{OPTIONS[i % 4], OPTIONS[(i + 1) % 4]}));
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Builds the correct answers for the first questions of a pool built with {@link #questionPool(int)}.
+     *
+     * @param numberOfQuestions the number of answers
+     * @return the list of correct answers
+     */
+    static List<String> correctAnswers(int numberOfQuestions) {
+        List<String> answers = new ArrayList<>(numberOfQuestions);
+        for (int i = 0; i < numberOfQuestions; i++) {
+            if (i % 2 == 0) {
+                answers.add("answer number " + i);
+            } else {
+                answers.add(OPTIONS[(i + 1) % 4] + ", " + OPTIONS[i % 4]);
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Creates a new student with no attempts.
+     *
+     * @param id a number to make the name of the student unique
+     * @return the new student
+     */
+    static Student student(long id) {
+        return new Student("Student", "Number" + id, BIRTH_DATE);
+    }
+
+    private static Date birthDate() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2000, Calendar.JANUARY, 1);
+        return cal.getTime();
+    }
+}
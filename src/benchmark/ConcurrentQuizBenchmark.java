@@ -0,0 +1,75 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import question.Question;
+import quiz.Quiz;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import student.Student;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for many students using the same factory at the same time. Each benchmark thread is a
+ * different student, so running it with {@code -t 1}, {@code -t 4} and {@code -t max} shows how the
+ * throughput scales with the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentQuizBenchmark {
+
+    @Param({"1000"})
+    public int poolSize;
+
+    @Param({"20"})
+    public int numberOfQuestions;
+
+    private RegularQuiz regularQuiz;
+    private RevisionQuiz revisionQuiz;
+    private List<Question> quizQuestions;
+
+    @Setup
+    public void setup() {
+        List<Question> pool = BenchmarkData.questionPool(poolSize);
+        regularQuiz = new RegularQuiz(pool);
+        revisionQuiz = new RevisionQuiz(pool, null);
+        quizQuestions = pool.subList(0, numberOfQuestions);
+    }
+
+    /**
+     * The student of each benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class StudentState {
+        private static long nextId;
+        Student student;
+
+        @Setup
+        public void setup(ConcurrentQuizBenchmark benchmark) {
+            synchronized (StudentState.class) {
+                student = BenchmarkData.student(nextId++);
+            }
+            benchmark.revisionQuiz.recordSeenQuestions(student, benchmark.quizQuestions);
+        }
+    }
+
+    @Benchmark
+    public Quiz generateQuiz() {
+        return regularQuiz.generateQuiz(numberOfQuestions);
+    }
+
+    @Benchmark
+    public Quiz revise(StudentState state) {
+        return revisionQuiz.revise(state.student, numberOfQuestions);
+    }
+
+    @Benchmark
+    public void recordSeenQuestions(StudentState state) {
+        revisionQuiz.recordSeenQuestions(state.student, quizQuestions);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import question.Question;
+import question.QuestionBank;
+import quiz.Quiz;
+import quiz.RegularQuiz;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for loading a question bank: opening the memory-mapped file and reading a quiz from it,
+ * compared with building the same pool as question objects. A factory uses the bank as its pool without
+ * creating its questions, so generating the first quiz only creates the questions of the quiz.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QuestionBankBenchmark {
+
+    @Param({"10000", "500000"})
+    public int poolSize;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("bank", ".qb");
+        QuestionBank.write(file, BenchmarkData.questionPool(poolSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String openBankAndReadQuestion() throws IOException {
+        QuestionBank bank = QuestionBank.open(file);
+        return bank.get(poolSize / 2).getQuestionFormulation();
+    }
+
+    @Benchmark
+    public Quiz openBankAndGenerateQuiz() throws IOException {
+        return new RegularQuiz(QuestionBank.open(file).getQuestions()).generateQuiz(20);
+    }
+
+    @Benchmark
+    public List<Question> buildPoolObjects() {
+        return BenchmarkData.questionPool(poolSize);
+    }
+}
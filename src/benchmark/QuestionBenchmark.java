@@ -0,0 +1,64 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import question.FreeResponseQuestion;
+import question.MultipleChoiceQuestion;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for checking the answers of the two types of questions. The shape of the answer
+ * changes how much work the normalization has to do before the comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionBenchmark {
+
+    /**
+     * The shape of the submitted answers: exactly as stored, with extra spaces and capital letters, or wrong.
+     */
+    @Param({"exact", "messy", "wrong"})
+    public String answerShape;
+
+    private FreeResponseQuestion freeResponseQuestion;
+    private MultipleChoiceQuestion multipleChoiceQuestion;
+    private String freeResponseAnswer;
+    private String multipleChoiceAnswer;
+
+    @Setup
+    public void setup() {
+        freeResponseQuestion = new FreeResponseQuestion("Who discovered penicillin?", "Alexander Fleming");
+        multipleChoiceQuestion = new MultipleChoiceQuestion("Which are chemical elements?", new String[]{"a", "c", "d"});
+
+        switch (answerShape) {
+            case "exact":
+                freeResponseAnswer = "alexander fleming";
+                multipleChoiceAnswer = "a,c,d";
+                break;
+            case "messy":
+                freeResponseAnswer = "   ALEXANDER \t  Fleming  ";
+                multipleChoiceAnswer = "  D , a,   C ";
+                break;
+            case "wrong":
+                freeResponseAnswer = "Louis Pasteur";
+                multipleChoiceAnswer = "a,b";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown answer shape: " + answerShape);
+        }
+    }
+
+    @Benchmark
+    public boolean freeResponseCheckAnswer() {
+        return freeResponseQuestion.checkAnswer(freeResponseAnswer);
+    }
+
+    @Benchmark
+    public boolean multipleChoiceCheckAnswer() {
+        return multipleChoiceQuestion.checkAnswer(multipleChoiceAnswer);
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import question.Question;
+import quiz.Quiz;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import student.Student;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for generating regular quizzes and revision quizzes from pools of different sizes.
+ * The revision benchmark also depends on the number of questions the student has already seen,
+ * because {@link RevisionQuiz#revise(Student, int)} selects the unseen questions of the pool.
+ * The pregenerated benchmark takes the selections from a queue refilled by a background thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizFactoryBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int poolSize;
+
+    /**
+     * Number of questions of the pool the student has already seen, as a percentage of the pool.
+     */
+    @Param({"0", "50", "90"})
+    public int historyPercentage;
+
+    @Param({"20"})
+    public int numberOfQuestions;
+
+    private RegularQuiz regularQuiz;
+    private RegularQuiz pregeneratedQuiz;
+    private ExecutorService refiller;
+    private RevisionQuiz revisionQuiz;
+    private Student student;
+
+    @Setup
+    public void setup() {
+        List<Question> pool = BenchmarkData.questionPool(poolSize);
+        student = BenchmarkData.student(0);
+        regularQuiz = new RegularQuiz(pool);
+        pregeneratedQuiz = new RegularQuiz(pool);
+        refiller = Executors.newSingleThreadExecutor();
+        pregeneratedQuiz.pregenerate(numberOfQuestions, 1024, refiller);
+        revisionQuiz = new RevisionQuiz(pool, student);
+
+        int historySize = Math.min(poolSize * historyPercentage / 100, poolSize - numberOfQuestions);
+        revisionQuiz.recordSeenQuestions(student, pool.subList(0, historySize));
+    }
+
+    @Benchmark
+    public Quiz generateQuiz() {
+        return regularQuiz.generateQuiz(numberOfQuestions);
+    }
+
+    @TearDown
+    public void tearDown() {
+        refiller.shutdownNow();
+    }
+
+    @Benchmark
+    public Quiz generatePregeneratedQuiz() {
+        return pregeneratedQuiz.generateQuiz(numberOfQuestions);
+    }
+
+    @Benchmark
+    public Quiz revise() {
+        return revisionQuiz.revise(student, numberOfQuestions);
+    }
+}
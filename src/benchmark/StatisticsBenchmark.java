@@ -0,0 +1,69 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import statistics.Statistics;
+import statistics.StatisticsExporter;
+import student.Student;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for generating the statistics report of a student with all the attempts used, and for exporting
+ * the statistics of many students with {@link StatisticsExporter} or with one report per student.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    private static final int STUDENTS = 10_000;
+
+    private Statistics statistics;
+    private List<Student> students;
+    private StatisticsExporter exporter;
+    private Writer out;
+
+    @Setup
+    public void setup() {
+        statistics = BenchmarkData.student(0).getStatistics();
+        statistics.recordRevisionQuizScore(0.4);
+        statistics.recordRevisionQuizScore(0.5);
+        statistics.recordRegularQuizScore(0.3);
+        statistics.recordRegularQuizScore(0.6);
+
+        students = new ArrayList<>(STUDENTS);
+        for (int i = 1; i <= STUDENTS; i++) {
+            Student student = BenchmarkData.student(i);
+            student.getStatistics().recordRegularQuizScore(i % 10 / 10.0);
+            students.add(student);
+        }
+        exporter = new StatisticsExporter(StatisticsExporter.Format.CSV);
+        out = Writer.nullWriter();
+    }
+
+    @Benchmark
+    public String generateStatistics() {
+        return statistics.generateStatistics();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STUDENTS)
+    public void generateStatisticsForAll() throws IOException {
+        for (Student student : students) {
+            out.write(student.getStatistics().generateStatistics());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STUDENTS)
+    public long exportAll() throws IOException {
+        return exporter.export(students, out);
+    }
+}
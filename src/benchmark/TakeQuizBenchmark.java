@@ -0,0 +1,47 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import question.Question;
+import quiz.RegularQuiz;
+import student.Student;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for taking a regular quiz. A student can only take two regular quizzes, so {@link #takeQuiz()}
+ * creates a new student on each call, and the cost of creating it is included in the result. The quiz is
+ * created again before each iteration so the history of all those students does not keep growing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TakeQuizBenchmark {
+
+    @Param({"10", "50"})
+    public int numberOfQuestions;
+
+    private RegularQuiz regularQuiz;
+    private List<Question> questions;
+    private List<String> answers;
+    private long nextStudent;
+
+    @Setup
+    public void setup() {
+        questions = BenchmarkData.questionPool(numberOfQuestions);
+        answers = BenchmarkData.correctAnswers(numberOfQuestions);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetQuiz() {
+        regularQuiz = new RegularQuiz(questions);
+    }
+
+    @Benchmark
+    public double takeQuiz() {
+        return regularQuiz.takeQuiz(BenchmarkData.student(nextStudent++), questions, answers);
+    }
+}
@@ -0,0 +1,627 @@
+package grading;
+
+import question.Question;
+import question.QuestionBank;
+import quiz.Quiz;
+import quiz.QuizFactory;
+import quiz.RegularQuiz;
+import student.Student;
+import student.StudentRegistry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The BulkGrader grades a file of submissions after the exam, for example an exported or scanned paper exam.
+ * Each record of the file is one answer: the student, the position of the question in the pool of the quiz
+ * and the answer. The consecutive records of the same student form one attempt, which is taken with
+ * {@link Quiz#takeQuiz(Student, List, List)}, so the statistics and the history of the student are updated.
+ * <p>
+ * The file is read as a stream by the calling thread, and the attempts are graded in batches on a fork-join pool.
+ * The attempts are split in lanes by student, and the batches of a lane are graded one after the other, so the
+ * attempts of a student are always taken in the order of the file. The number of batches waiting to be graded
+ * is limited: when the pool falls behind the reader waits, so the memory used does not depend on the size of the file.
+ * The result of each attempt is written as soon as its batch is graded, so results of different students may be
+ * written in a different order than the file.
+ * <p>
+ * Formats, one record per line:
+ * <ul>
+ *     <li>CSV: {@code firstName,lastName,dateOfBirth,question,answer}, fields with commas or quotes can be
+ *     quoted with {@code "}, and a first line starting with {@code firstName} is skipped.</li>
+ *     <li>NDJSON: {@code {"firstName":"..","lastName":"..","dateOfBirth":"yyyy-MM-dd","question":12,"answer":".."}}</li>
+ * </ul>
+ * Results are written in the same format, with the fields firstName, lastName, dateOfBirth, score, verdict and
+ * error. Malformed records are skipped and reported with their line number.
+ */
+public final class BulkGrader {
+
+    /**
+     * The format of the submissions and the results.
+     */
+    public enum Format { CSV, NDJSON }
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final QuizFactory quiz;
+    private final StudentRegistry students;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final int maxPendingBatches;
+
+    /**
+     * Constructs a grader that uses the common fork-join pool.
+     *
+     * @param quiz The quiz used to take the attempts, usually a {@link RegularQuiz}.
+     * @param students The registry where the students of the file are registered.
+     */
+    public BulkGrader(QuizFactory quiz, StudentRegistry students) {
+        this(quiz, students, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE, 4 * ForkJoinPool.commonPool().getParallelism());
+    }
+
+    /**
+     * Constructs a grader.
+     *
+     * @param quiz The quiz used to take the attempts, usually a {@link RegularQuiz}.
+     * @param students The registry where the students of the file are registered.
+     * @param pool The pool that grades the attempts.
+     * @param batchSize The number of attempts graded together.
+     * @param maxPendingBatches The maximum number of batches waiting to be graded before the reader waits.
+     * @throws IllegalArgumentException if an argument is null or a number is less than 1.
+     */
+    public BulkGrader(QuizFactory quiz, StudentRegistry students, ForkJoinPool pool, int batchSize, int maxPendingBatches) {
+        if (quiz == null || students == null || pool == null || batchSize < 1 || maxPendingBatches < 1) {
+            throw new IllegalArgumentException("Invalid bulk grader configuration.");
+        }
+        this.quiz = quiz;
+        this.students = students;
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    /**
+     * Grades a file of submissions: {@code java grading.BulkGrader bank.qb submissions.csv results.csv}.
+     * The pool of the quiz is the bank, so the questions of the file are the positions of the questions in the bank.
+     * The format is chosen by the extension
+     * of the submissions file ({@code .ndjson} or {@code .jsonl} for NDJSON, CSV otherwise).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java grading.BulkGrader BANK SUBMISSIONS RESULTS");
+            System.exit(2);
+        }
+        QuestionBank bank = QuestionBank.open(Path.of(args[0]));
+        String name = args[1].toLowerCase(Locale.ROOT);
+        Format format = name.endsWith(".ndjson") || name.endsWith(".jsonl") ? Format.NDJSON : Format.CSV;
+
+        BulkGrader grader = new BulkGrader(new RegularQuiz(bank.getQuestions()), new StudentRegistry());
+        try (Reader input = Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8);
+             Writer output = Files.newBufferedWriter(Path.of(args[2]), StandardCharsets.UTF_8)) {
+            System.out.println(grader.grade(input, format, output));
+        }
+    }
+
+    /**
+     * Grades all the submissions of the input and writes the result of each attempt to the output.
+     * The method returns when every attempt has been graded and written.
+     *
+     * @param input The submissions.
+     * @param format The format of the submissions and the results.
+     * @param output Where the results are written.
+     * @return The metrics of the grading.
+     * @throws IOException if the input cannot be read or the output cannot be written.
+     * @throws IllegalArgumentException if an argument is null.
+     */
+    public Report grade(Reader input, Format format, Appendable output) throws IOException {
+        if (input == null || format == null || output == null) {
+            throw new IllegalArgumentException("Input, format and output cannot be null.");
+        }
+        Job job = new Job(format, output);
+        long start = System.nanoTime();
+        try {
+            job.read(input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input));
+        } finally {
+            job.finish();
+        }
+        IOException failure = job.outputFailure.get();
+        if (failure != null) {
+            throw failure;
+        }
+        if (output instanceof Flushable) {
+            ((Flushable) output).flush();
+        }
+        return job.report(System.nanoTime() - start);
+    }
+
+    /**
+     * The state of one call to {@link #grade(Reader, Format, Appendable)}.
+     */
+    private final class Job {
+        private final Format format;
+        private final Appendable output;
+        private final Lane[] lanes;
+        private final Semaphore pendingBatches;
+        private final LongAdder records;
+        private final LongAdder attempts;
+        private final LongAdder rejectedAttempts;
+        private final AtomicLong malformedRecords;
+        private final AtomicLong maxPending;
+        private final AtomicReference<IOException> outputFailure;
+        private long backpressureNanos;
+
+        // Attempt being read, only used by the reader thread
+        private String firstName;
+        private String lastName;
+        private String dateOfBirth;
+        private Attempt current;
+
+        private Job(Format format, Appendable output) {
+            this.format = format;
+            this.output = output;
+            this.lanes = new Lane[Math.max(1, 2 * pool.getParallelism())];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane();
+            }
+            this.pendingBatches = new Semaphore(maxPendingBatches);
+            this.records = new LongAdder();
+            this.attempts = new LongAdder();
+            this.rejectedAttempts = new LongAdder();
+            this.malformedRecords = new AtomicLong();
+            this.maxPending = new AtomicLong();
+            this.outputFailure = new AtomicReference<>();
+        }
+
+        private void read(BufferedReader reader) throws IOException {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && format == Format.CSV && line.startsWith("firstName"))) {
+                    continue;
+                }
+                try {
+                    String[] fields = format == Format.CSV ? parseCsv(line) : parseJson(line);
+                    addRecord(fields);
+                    records.increment();
+                } catch (IllegalArgumentException e) {
+                    malformedRecords.incrementAndGet();
+                    writeResults(malformedLine(lineNumber, e.getMessage()));
+                }
+            }
+        }
+
+        /**
+         * Adds a record to the current attempt, or starts a new attempt if the student changed.
+         */
+        private void addRecord(String[] fields) {
+            List<Question> pool = quiz.getQuestions();
+            int position;
+            try {
+                position = Integer.parseInt(fields[3].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("The question must be a number.");
+            }
+            if (position < 0 || position >= pool.size()) {
+                throw new IllegalArgumentException("There is no question in position " + position);
+            }
+            Question question = pool.get(position);
+            if (current == null || !fields[0].equals(firstName) || !fields[1].equals(lastName) || !fields[2].equals(dateOfBirth)) {
+                Student student = new Student(fields[0], fields[1], parseDate(fields[2]));
+                int id = students.intern(student);
+                flushAttempt();
+                current = new Attempt(students.get(id), id);
+                firstName = fields[0];
+                lastName = fields[1];
+                dateOfBirth = fields[2];
+            }
+            current.questions.add(question);
+            current.answers.add(fields[4]);
+        }
+
+        private void flushAttempt() {
+            if (current != null) {
+                lanes[current.studentId % lanes.length].add(current);
+                current = null;
+            }
+        }
+
+        /**
+         * Sends the last attempt and the incomplete batches, and waits until every batch is graded.
+         */
+        private void finish() {
+            flushAttempt();
+            for (Lane lane : lanes) {
+                lane.submitBatch();
+            }
+            pendingBatches.acquireUninterruptibly(maxPendingBatches);
+            pendingBatches.release(maxPendingBatches);
+        }
+
+        private void gradeBatch(List<Attempt> batch) {
+            StringBuilder results = new StringBuilder(batch.size() * 64);
+            for (Attempt attempt : batch) {
+                String error = null;
+                double score = 0;
+                try {
+                    score = quiz.takeQuiz(attempt.student, attempt.questions, attempt.answers);
+                } catch (RuntimeException e) {
+                    rejectedAttempts.increment();
+                    error = e.getMessage();
+                }
+                attempts.increment();
+                appendResult(results, attempt.student, score, error);
+            }
+            writeResults(results);
+        }
+
+        private void writeResults(CharSequence results) {
+            synchronized (output) {
+                try {
+                    output.append(results);
+                } catch (IOException e) {
+                    outputFailure.compareAndSet(null, e);
+                }
+            }
+        }
+
+        private void appendResult(StringBuilder results, Student student, double score, String error) {
+            String date = LocalDate.ofInstant(student.getDateOfBirth().toInstant(), ZoneOffset.UTC).toString();
+            String verdict = student.getStatistics().getVerdict();
+            if (format == Format.CSV) {
+                appendCsv(results, student.getFirstName()).append(',');
+                appendCsv(results, student.getLastName()).append(',').append(date).append(',');
+                if (error == null) {
+                    results.append(score);
+                }
+                results.append(',').append(verdict).append(',');
+                if (error != null) {
+                    appendCsv(results, error);
+                }
+            } else {
+                results.append("{\"firstName\":");
+                appendJson(results, student.getFirstName()).append(",\"lastName\":");
+                appendJson(results, student.getLastName()).append(",\"dateOfBirth\":\"").append(date).append('"');
+                if (error == null) {
+                    results.append(",\"score\":").append(score);
+                }
+                results.append(",\"verdict\":\"").append(verdict).append('"');
+                if (error != null) {
+                    results.append(",\"error\":");
+                    appendJson(results, error);
+                }
+                results.append('}');
+            }
+            results.append('\n');
+        }
+
+        private CharSequence malformedLine(long lineNumber, String message) {
+            StringBuilder line = new StringBuilder();
+            String error = "Malformed record at line " + lineNumber + ": " + message;
+            if (format == Format.CSV) {
+                appendCsv(line.append(",,,,,"), error);
+            } else {
+                appendJson(line.append("{\"error\":"), error).append('}');
+            }
+            return line.append('\n');
+        }
+
+        private Report report(long elapsedNanos) {
+            return new Report(records.sum(), attempts.sum(), rejectedAttempts.sum(), malformedRecords.get(),
+                    elapsedNanos, backpressureNanos, (int) maxPending.get());
+        }
+
+        /**
+         * The attempts of a group of students, graded one batch after the other. The reader adds the attempts
+         * and sends full batches, and the pool runs the lane while it has batches.
+         */
+        private final class Lane implements Runnable {
+            private final Queue<List<Attempt>> batches = new ConcurrentLinkedQueue<>();
+            private final AtomicBoolean scheduled = new AtomicBoolean();
+            private List<Attempt> filling = new ArrayList<>(batchSize);
+
+            private void add(Attempt attempt) {
+                filling.add(attempt);
+                if (filling.size() >= batchSize) {
+                    submitBatch();
+                }
+            }
+
+            private void submitBatch() {
+                if (filling.isEmpty()) {
+                    return;
+                }
+                if (!pendingBatches.tryAcquire()) {
+                    long start = System.nanoTime();
+                    pendingBatches.acquireUninterruptibly();
+                    backpressureNanos += System.nanoTime() - start;
+                }
+                maxPending.accumulateAndGet(maxPendingBatches - pendingBatches.availablePermits(), Math::max);
+                batches.add(filling);
+                filling = new ArrayList<>(batchSize);
+                if (scheduled.compareAndSet(false, true)) {
+                    pool.execute(this);
+                }
+            }
+
+            @Override
+            public void run() {
+                List<Attempt> batch;
+                while ((batch = batches.poll()) != null) {
+                    try {
+                        gradeBatch(batch);
+                    } finally {
+                        pendingBatches.release();
+                    }
+                }
+                scheduled.set(false);
+                if (!batches.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    pool.execute(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * The answers of one student read from consecutive records.
+     */
+    private static final class Attempt {
+        private final Student student;
+        private final int studentId;
+        private final List<Question> questions = new ArrayList<>();
+        private final List<String> answers = new ArrayList<>();
+
+        private Attempt(Student student, int studentId) {
+            this.student = student;
+            this.studentId = studentId;
+        }
+    }
+
+    /**
+     * The metrics of a bulk grading: how much was graded, how fast, and how long the reader had to wait for the pool.
+     */
+    public static final class Report {
+        private final long records;
+        private final long attempts;
+        private final long rejectedAttempts;
+        private final long malformedRecords;
+        private final long elapsedNanos;
+        private final long backpressureNanos;
+        private final int maxPendingBatches;
+
+        private Report(long records, long attempts, long rejectedAttempts, long malformedRecords,
+                       long elapsedNanos, long backpressureNanos, int maxPendingBatches) {
+            this.records = records;
+            this.attempts = attempts;
+            this.rejectedAttempts = rejectedAttempts;
+            this.malformedRecords = malformedRecords;
+            this.elapsedNanos = elapsedNanos;
+            this.backpressureNanos = backpressureNanos;
+            this.maxPendingBatches = maxPendingBatches;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getAttempts() {
+            return attempts;
+        }
+
+        public long getRejectedAttempts() {
+            return rejectedAttempts;
+        }
+
+        public long getMalformedRecords() {
+            return malformedRecords;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the time the reader waited because too many batches were waiting to be graded.
+         * A large value means the pool, not the input, limits the throughput.
+         *
+         * @return The waiting time in nanoseconds.
+         */
+        public long getBackpressureNanos() {
+            return backpressureNanos;
+        }
+
+        public int getMaxPendingBatches() {
+            return maxPendingBatches;
+        }
+
+        public double getRecordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "Records: %d (%d malformed)%nAttempts: %d (%d rejected)%nTime: %.3f s, %.0f records/s%n"
+                            + "Reader waiting for the pool: %.3f s, max pending batches: %d",
+                    records, malformedRecords, attempts, rejectedAttempts, elapsedNanos / 1e9, getRecordsPerSecond(),
+                    backpressureNanos / 1e9, maxPendingBatches);
+        }
+    }
+
+    private static Date parseDate(String text) {
+        try {
+            return Date.from(LocalDate.parse(text.trim()).atStartOfDay(ZoneOffset.UTC).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("The date of birth must have the format yyyy-MM-dd.");
+        }
+    }
+
+    /**
+     * Splits a CSV line into the five fields of a record. Quoted fields can contain commas and doubled quotes.
+     */
+    static String[] parseCsv(String line) {
+        String[] fields = new String[5];
+        int count = 0;
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',' && count < 4) {
+                fields[count++] = field.toString();
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted || count != 4) {
+            throw new IllegalArgumentException("Expected 5 fields: firstName,lastName,dateOfBirth,question,answer");
+        }
+        fields[4] = field.toString();
+        return fields;
+    }
+
+    /**
+     * Reads a flat JSON object with the five fields of a record. Values can be strings or numbers.
+     */
+    static String[] parseJson(String line) {
+        String[] fields = new String[5];
+        int[] position = {skipSpaces(line, 0)};
+        expect(line, position, '{');
+        boolean more = peek(line, position) != '}';
+        while (more) {
+            String name = jsonString(line, position);
+            expect(line, position, ':');
+            String value = peek(line, position) == '"' ? jsonString(line, position) : jsonNumber(line, position);
+            switch (name) {
+                case "firstName": fields[0] = value; break;
+                case "lastName": fields[1] = value; break;
+                case "dateOfBirth": fields[2] = value; break;
+                case "question": fields[3] = value; break;
+                case "answer": fields[4] = value; break;
+                default: break;
+            }
+            more = peek(line, position) == ',';
+            if (more) {
+                position[0]++;
+            }
+        }
+        expect(line, position, '}');
+        for (String field : fields) {
+            if (field == null) {
+                throw new IllegalArgumentException("Expected the fields firstName, lastName, dateOfBirth, question and answer.");
+            }
+        }
+        return fields;
+    }
+
+    private static int skipSpaces(String line, int i) {
+        while (i < line.length() && line.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static char peek(String line, int[] position) {
+        position[0] = skipSpaces(line, position[0]);
+        return position[0] < line.length() ? line.charAt(position[0]) : 0;
+    }
+
+    private static void expect(String line, int[] position, char expected) {
+        if (peek(line, position) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at column " + (position[0] + 1));
+        }
+        position[0]++;
+    }
+
+    private static String jsonString(String line, int[] position) {
+        expect(line, position, '"');
+        StringBuilder value = new StringBuilder();
+        for (int i = position[0]; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                position[0] = i + 1;
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (++i >= line.length()) break;
+            char escaped = line.charAt(i);
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 't': value.append('\t'); break;
+                case 'r': value.append('\r'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if (i + 4 >= line.length()) throw new IllegalArgumentException("Invalid unicode escape.");
+                    try {
+                        value.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid unicode escape.");
+                    }
+                    i += 4;
+                    break;
+                default: value.append(escaped); break;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string.");
+    }
+
+    private static String jsonNumber(String line, int[] position) {
+        int start = position[0];
+        int end = start;
+        while (end < line.length() && "+-.eE0123456789".indexOf(line.charAt(end)) >= 0) end++;
+        if (end == start) {
+            throw new IllegalArgumentException("Expected a string or a number at column " + (start + 1));
+        }
+        position[0] = end;
+        return line.substring(start, end);
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return out.append(value);
+        }
+        return out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static StringBuilder appendJson(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c < ' ') {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+}
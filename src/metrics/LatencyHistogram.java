@@ -0,0 +1,161 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LatencyHistogram counts durations in nanoseconds in a fixed set of buckets, in the style of HdrHistogram.
+ * Every power of two is divided in {@link #SUB_BUCKETS} buckets of the same width, so any value is counted in a
+ * bucket at most 1/16 (6.25%) wider than the value, from 1 nanosecond to hundreds of years, in less than a
+ * thousand buckets.
+ * <p>
+ * Recording a value only increments a few counters, without locks or allocation, so it can be called from
+ * many threads in the hot path. As in the item statistics of the quizzes, each thread adds to one of several
+ * copies (stripes) of the bucket counts, and the count and the sum are {@link LongAdder}s, so threads recording
+ * at the same time do not contend on the same counters. The maximum is only written when it grows.
+ * The percentiles are computed from a copy of the counts read one by one, so a value recorded at the same time
+ * may be missing from the result, but is never lost.
+ */
+public final class LatencyHistogram {
+
+    // Number of buckets in each power of two, the precision of the histogram
+    public static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final int stripes;
+    // The buckets of each stripe, one stripe after the other, so different stripes are far apart in memory
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder totalNanos;
+    private final AtomicLong maxNanos;
+
+    /**
+     * Constructs an empty histogram with one stripe per processor, up to 8.
+     */
+    public LatencyHistogram() {
+        this.stripes = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+        this.total = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Records a duration. Negative durations, from a clock going backwards, are recorded as 0.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Records a duration that stands for several calls, for example a call timed out of every few calls.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @param calls The number of calls the duration stands for.
+     */
+    public void record(long nanos, long calls) {
+        long value = Math.max(0, nanos);
+        int stripe = System.identityHashCode(Thread.currentThread()) & (stripes - 1);
+        counts.getAndAdd(stripe * BUCKETS + bucketOf(value), calls);
+        total.add(calls);
+        totalNanos.add(value * calls);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public double getMeanNanos() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the duration below which the given percentage of the recorded durations are.
+     * The result is the highest value of the bucket of that duration, so it is never lower than the exact
+     * percentile and at most 6.25% higher.
+     *
+     * @param percentile The percentile, between 0 and 100, for example 99.9.
+     * @return The duration in nanoseconds, or 0 if nothing has been recorded.
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] += counts.get(stripe * BUCKETS + i);
+            }
+        }
+        for (long bucketCount : snapshot) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Clears the histogram. Values recorded at the same time may be kept or cleared.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * The values below {@link #SUB_BUCKETS} have a bucket each. Larger values are grouped by their highest bit,
+     * and then by the next {@link #SUB_BUCKET_BITS} bits.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (1L << exponent) | ((long) (bucket & (SUB_BUCKETS - 1)) << (exponent - SUB_BUCKET_BITS));
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,90 @@
+package metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The metrics of one operation at a point in time. It is immutable, and JMX clients see it as a composite value.
+ */
+public final class OperationMetrics {
+
+    private final String name;
+    private final long count;
+    private final long failures;
+    private final double throughput;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    /**
+     * Constructs the metrics of an operation.
+     *
+     * @param name The name of the operation.
+     * @param count The number of calls.
+     * @param failures The number of calls that threw an exception.
+     * @param throughput The calls per second since the metrics were created or reset.
+     * @param meanNanos The mean latency.
+     * @param p50Nanos The median latency.
+     * @param p99Nanos The 99th percentile of the latency.
+     * @param p999Nanos The 99.9th percentile of the latency.
+     * @param maxNanos The highest latency.
+     */
+    @ConstructorProperties({"name", "count", "failures", "throughput", "meanNanos", "p50Nanos", "p99Nanos",
+            "p999Nanos", "maxNanos"})
+    public OperationMetrics(String name, long count, long failures, double throughput, double meanNanos,
+                            long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.name = name;
+        this.count = count;
+        this.failures = failures;
+        this.throughput = throughput;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count %d, failures %d, throughput %.1f/s, mean %.1f us, p50 %.1f us, "
+                        + "p99 %.1f us, p999 %.1f us, max %.1f us", name, count, failures, throughput,
+                meanNanos / 1000, p50Nanos / 1000.0, p99Nanos / 1000.0, p999Nanos / 1000.0, maxNanos / 1000.0);
+    }
+}
@@ -0,0 +1,300 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The QuizMetrics class measures how long the main operations of the quiz system take, so operators can see
+ * where time goes without attaching a profiler. Each {@link Operation} has a {@link LatencyHistogram} and a
+ * counter of the calls that failed. The metrics are shared by the whole application, read as text with
+ * {@link #generateReport()}, or through JMX once {@link #registerMBean()} has been called.
+ * <p>
+ * Measuring an operation costs two reads of {@link System#nanoTime()} and a few atomic increments. Checking an
+ * answer takes a few nanoseconds, less than reading the clock, so only one in {@link #SAMPLE_RATE} answer checks
+ * is timed and counted {@link #SAMPLE_RATE} times: their counts and throughput are estimates. The metrics can be
+ * turned off with the system property {@code -Dquiz.metrics=false}, then nothing is measured and the calls are
+ * removed by the JIT compiler.
+ */
+public final class QuizMetrics implements QuizMetricsMXBean {
+
+    // Name of the MBean in the platform MBean server
+    public static final String OBJECT_NAME = "quiz:type=QuizMetrics";
+    // One in this number of sampled calls is timed, a power of two
+    public static final int SAMPLE_RATE = 64;
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("quiz.metrics"));
+    private static final QuizMetrics INSTANCE = new QuizMetrics();
+
+    /**
+     * The operations measured.
+     */
+    public enum Operation {
+        GENERATE_QUIZ("generateQuiz"),
+        REVISE("revise"),
+        TAKE_QUIZ("takeQuiz"),
+        CHECK_FREE_RESPONSE("checkAnswer.freeResponse"),
+        CHECK_MULTIPLE_CHOICE("checkAnswer.multipleChoice"),
+        HISTORY_UPDATE("historyUpdate");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the operation with the given label.
+         *
+         * @param label The label of the operation, for example "takeQuiz".
+         * @return The operation.
+         * @throws IllegalArgumentException if there is no operation with that label.
+         */
+        public static Operation fromLabel(String label) {
+            for (Operation operation : values()) {
+                if (operation.label.equals(label)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation: " + label);
+        }
+    }
+
+    private final LatencyHistogram[] latencies;
+    private final LongAdder[] failures;
+    private final LongAdder pregeneratedHits;
+    private final LongAdder pregeneratedMisses;
+    private volatile long startNanos;
+
+    /**
+     * Constructs empty metrics.
+     */
+    public QuizMetrics() {
+        int operations = Operation.values().length;
+        this.latencies = new LatencyHistogram[operations];
+        this.failures = new LongAdder[operations];
+        for (int i = 0; i < operations; i++) {
+            latencies[i] = new LatencyHistogram();
+            failures[i] = new LongAdder();
+        }
+        this.pregeneratedHits = new LongAdder();
+        this.pregeneratedMisses = new LongAdder();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the metrics shared by all the quizzes of the application.
+     *
+     * @return The shared metrics.
+     */
+    public static QuizMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Returns the time to pass to {@link #record(Operation, long)} when the operation finishes.
+     *
+     * @return The current time in nanoseconds, or 0 if the metrics are turned off.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Returns the time to pass to {@link #recordSampled(Operation, long)}, only for one in {@link #SAMPLE_RATE} calls.
+     *
+     * @return The current time in nanoseconds if this call is timed, or 0 otherwise.
+     */
+    public static long startSampled() {
+        if (ENABLED && (ThreadLocalRandom.current().nextInt() & (SAMPLE_RATE - 1)) == 0) {
+            return System.nanoTime();
+        }
+        return 0;
+    }
+
+    /**
+     * Records a finished call of an operation started with {@link #startSampled()}. If the call was timed, it is
+     * counted as {@link #SAMPLE_RATE} calls.
+     *
+     * @param operation The operation.
+     * @param startNanos The time returned by {@link #startSampled()} when the call started.
+     */
+    public void recordSampled(Operation operation, long startNanos) {
+        if (ENABLED && startNanos != 0) {
+            latencies[operation.ordinal()].record(System.nanoTime() - startNanos, SAMPLE_RATE);
+        }
+    }
+
+    /**
+     * Records a finished call of an operation.
+     *
+     * @param operation The operation.
+     * @param startNanos The time returned by {@link #start()} when the call started.
+     */
+    public void record(Operation operation, long startNanos) {
+        if (ENABLED) {
+            latencies[operation.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Counts a call of an operation that threw an exception. The latency is recorded separately.
+     *
+     * @param operation The operation.
+     */
+    public void recordFailure(Operation operation) {
+        if (ENABLED) {
+            failures[operation.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Counts a quiz generated for a size that has a pregenerator.
+     *
+     * @param hit True if the questions were taken from the queue of the pregenerator, false if it was empty.
+     */
+    public void recordPregenerated(boolean hit) {
+        if (ENABLED) {
+            (hit ? pregeneratedHits : pregeneratedMisses).increment();
+        }
+    }
+
+    @Override
+    public long getPregeneratedHits() {
+        return pregeneratedHits.sum();
+    }
+
+    @Override
+    public long getPregeneratedMisses() {
+        return pregeneratedMisses.sum();
+    }
+
+    @Override
+    public double getPregeneratedHitRate() {
+        long hits = getPregeneratedHits();
+        long total = hits + getPregeneratedMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the latency histogram of an operation.
+     *
+     * @param operation The operation.
+     * @return The histogram, updated while the operation is called.
+     */
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Returns the number of calls of an operation that threw an exception.
+     *
+     * @param operation The operation.
+     * @return The number of failed calls.
+     */
+    public long getFailures(Operation operation) {
+        return failures[operation.ordinal()].sum();
+    }
+
+    /**
+     * Returns the metrics of an operation at this moment.
+     *
+     * @param operation The operation.
+     * @return The count, throughput and latency percentiles of the operation.
+     */
+    public OperationMetrics getMetrics(Operation operation) {
+        LatencyHistogram latency = getLatency(operation);
+        long count = latency.getCount();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return new OperationMetrics(operation.getLabel(), count, getFailures(operation),
+                seconds > 0 ? count / seconds : 0, latency.getMeanNanos(), latency.getPercentileNanos(50),
+                latency.getPercentileNanos(99), latency.getPercentileNanos(99.9), latency.getMaxNanos());
+    }
+
+    @Override
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> operations = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            operations.add(getMetrics(operation));
+        }
+        return operations;
+    }
+
+    @Override
+    public String getReport() {
+        return generateReport();
+    }
+
+    /**
+     * Generates a report with the metrics of every operation, one line per operation, and a line with the hits of
+     * the pregenerated quizzes.
+     *
+     * @return A formatted string with the metrics.
+     */
+    public String generateReport() {
+        StringBuilder report = new StringBuilder();
+        if (!ENABLED) {
+            report.append("Metrics are disabled\n");
+        }
+        for (Operation operation : Operation.values()) {
+            report.append(getMetrics(operation)).append("\n");
+        }
+        report.append(String.format("pregenerated: hits %d, misses %d, hit rate %.3f", getPregeneratedHits(),
+                getPregeneratedMisses(), getPregeneratedHitRate())).append("\n");
+        return report.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if there is no operation with that name.
+     */
+    @Override
+    public long getPercentileNanos(String operation, double percentile) {
+        return getLatency(Operation.fromLabel(operation)).getPercentileNanos(percentile);
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].reset();
+            failures[i].reset();
+        }
+        pregeneratedHits.reset();
+        pregeneratedMisses.reset();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Registers the shared metrics in the platform MBean server, if they are not registered yet.
+     *
+     * @throws IllegalStateException if the MBean cannot be registered.
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another thread at the same time
+        } catch (JMException e) {
+            throw new IllegalStateException("The metrics MBean cannot be registered.", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package metrics;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link QuizMetrics}, registered in the platform MBean server as
+ * {@value QuizMetrics#OBJECT_NAME}. It can be read with JConsole, VisualVM or any other JMX client.
+ */
+public interface QuizMetricsMXBean {
+
+    /**
+     * Returns the metrics of every operation.
+     *
+     * @return One entry per operation.
+     */
+    List<OperationMetrics> getOperations();
+
+    /**
+     * Returns the metrics of every operation as text, one line per operation, and the pregenerated quiz hits.
+     *
+     * @return The formatted report.
+     */
+    String getReport();
+
+    /**
+     * Returns the number of quizzes whose questions were taken from the queue of a pregenerator.
+     *
+     * @return The number of hits.
+     */
+    long getPregeneratedHits();
+
+    /**
+     * Returns the number of quizzes generated for a pregenerated size while its queue was empty.
+     *
+     * @return The number of misses.
+     */
+    long getPregeneratedMisses();
+
+    /**
+     * Returns the fraction of the quizzes of pregenerated sizes that were taken from a queue.
+     *
+     * @return The hit rate between 0 and 1, or 0 if no such quiz has been generated.
+     */
+    double getPregeneratedHitRate();
+
+    /**
+     * Returns a percentile of the latency of an operation.
+     *
+     * @param operation The name of the operation, for example "takeQuiz".
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in nanoseconds.
+     */
+    long getPercentileNanos(String operation, double percentile);
+
+    /**
+     * Clears the metrics of every operation and starts measuring the throughput again.
+     */
+    void reset();
+}
@@ -0,0 +1,773 @@
+package persistence;
+
+import question.Question;
+import quiz.QuizFactory;
+import quiz.QuizListener;
+import statistics.Statistics;
+import student.Student;
+import student.StudentRegistry;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * The QuizJournal stores the history and the statistics of the students of a {@link QuizFactory} durably.
+ * Every change made through the factory is written as a small binary record at the end of a memory-mapped
+ * log file, so writing a record is a memory copy. Before a quiz score is returned to the student the log is
+ * forced to disk; many threads waiting at the same time are covered by a single force (group commit).
+ * <p>
+ * When a log segment is full a new one is started, and every few segments a snapshot of the whole state is
+ * written in the background. Recovery loads the latest snapshot and replays only the segments written after it.
+ * Records are replayed idempotently, so a record that is also included in the snapshot is not applied twice.
+ * <p>
+ * The journal keeps its own copy of the history of every student, with the questions seen through the factory and
+ * through the quizzes it created, and the snapshots are written from it. Questions are stored by their content key
+ * (see {@link Question#getKey()}) together with their position in the pool, so the history is recovered when the
+ * pool is loaded again, even in another order. The recovered history is added to the factory; questions that are not
+ * in its pool are kept in the journal but not added. Students are recovered as new {@link Student} objects; use
+ * {@link #getStudent(Student)} to get the recovered object that holds the statistics.
+ */
+public final class QuizJournal implements QuizListener, Closeable {
+
+    // Default size of each log segment
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    // Number of full segments after which a snapshot is taken
+    private static final int SEGMENTS_PER_SNAPSHOT = 4;
+
+    private static final byte STUDENT = 1;
+    private static final byte QUESTIONS_SEEN = 2;
+    private static final byte REGULAR_SCORE = 3;
+    private static final byte REVISION_SCORE = 4;
+    private static final byte QUESTIONS_ANSWERED = 5;
+    private static final byte QUESTION = 6;
+    // Length (4 bytes) and type (1 byte) before the payload, and the checksum (4 bytes) after it
+    private static final int RECORD_OVERHEAD = 9;
+    private static final int SNAPSHOT_MAGIC = 0x514A5333;
+
+    private final Path directory;
+    private final QuizFactory factory;
+    private final int segmentSize;
+    private final StudentRegistry students;
+    // Journal id of each question, by question and by content key
+    private final Map<Question, Integer> questionIds;
+    private final Map<String, Integer> keyIds;
+    private final Object appendLock;
+    private final Object syncLock;
+    private final Object snapshotLock;
+    private final ExecutorService snapshotExecutor;
+
+    // Guarded by appendLock: the key, position in the pool and question of each journal question id,
+    // and the history of each journal student id
+    private final List<String> questionKeys;
+    private final List<Integer> questionPositions;
+    private final List<Question> resolvedQuestions;
+    private final List<History> histories;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentNumber;
+    private int segmentsSinceSnapshot;
+    private long appended;
+    private boolean closed;
+
+    // Guarded by syncLock
+    private long durable;
+
+    // Questions of the pool by key, built during recovery if a question is not in its stored position
+    private Map<String, Question> poolByKey;
+
+    private QuizJournal(Path directory, QuizFactory factory, int segmentSize) {
+        this.directory = directory;
+        this.factory = factory;
+        this.segmentSize = segmentSize;
+        this.students = new StudentRegistry();
+        this.questionIds = new ConcurrentHashMap<>();
+        this.keyIds = new HashMap<>();
+        this.questionKeys = new ArrayList<>();
+        this.questionPositions = new ArrayList<>();
+        this.resolvedQuestions = new ArrayList<>();
+        this.histories = new ArrayList<>();
+        this.appendLock = new Object();
+        this.syncLock = new Object();
+        this.snapshotLock = new Object();
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quiz-journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the journal in the given directory with the default segment size.
+     *
+     * @param directory The directory of the journal, created if it does not exist.
+     * @param factory The factory whose changes are stored.
+     * @return The opened journal, already listening to the factory.
+     * @throws IOException if the journal cannot be read or created.
+     * @see #open(Path, QuizFactory, int)
+     */
+    public static QuizJournal open(Path directory, QuizFactory factory) throws IOException {
+        return open(directory, factory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal in the given directory. The state stored in the directory is recovered into the factory
+     * and the statistics of the recovered students, and then the journal starts listening to the factory.
+     *
+     * @param directory The directory of the journal, created if it does not exist.
+     * @param factory The factory whose changes are stored.
+     * @param segmentSize The size in bytes of each log segment.
+     * @return The opened journal, already listening to the factory.
+     * @throws IOException if the journal cannot be read or created.
+     * @throws IllegalArgumentException if the factory is null or the segment size is too small.
+     */
+    public static QuizJournal open(Path directory, QuizFactory factory, int segmentSize) throws IOException {
+        if (factory == null || segmentSize < 1024) {
+            throw new IllegalArgumentException("The factory cannot be null and segments must have at least 1024 bytes.");
+        }
+        Files.createDirectories(directory);
+        QuizJournal journal = new QuizJournal(directory, factory, segmentSize);
+        long lastSegment = journal.recover();
+        synchronized (journal.appendLock) {
+            journal.startSegment(lastSegment + 1);
+        }
+        factory.addListener(journal);
+        return journal;
+    }
+
+    /**
+     * Returns the student registered in the journal that is equal to the given one. After a recovery this is the
+     * object that holds the recovered statistics.
+     *
+     * @param student The student to look for.
+     * @return The registered student, or the same student if it is not registered.
+     */
+    public Student getStudent(Student student) {
+        int id = students.idOf(student);
+        return id == StudentRegistry.UNREGISTERED ? student : students.get(id);
+    }
+
+    @Override
+    public void questionsSeen(Student student, List<Question> seenQuestions) {
+        int studentId = studentId(student);
+        int[] ids = questionIds(seenQuestions);
+        synchronized (appendLock) {
+            int start = beginRecord(QUESTIONS_SEEN, 8 + 4 * ids.length);
+            segment.putInt(studentId).putInt(ids.length);
+            for (int id : ids) {
+                segment.putInt(id);
+            }
+            endRecord(start);
+            histories.get(studentId).record(ids, null);
+        }
+    }
+
+    @Override
+    public void questionsAnswered(Student student, List<Question> answeredQuestions, BitSet correct) {
+        int studentId = studentId(student);
+        int[] ids = questionIds(answeredQuestions);
+        int count = ids.length;
+        synchronized (appendLock) {
+            int start = beginRecord(QUESTIONS_ANSWERED, 8 + 4 * count + (count + 7) / 8);
+            segment.putInt(studentId).putInt(count);
+            for (int id : ids) {
+                segment.putInt(id);
+            }
+            byte[] correctBytes = Arrays.copyOf(correct.toByteArray(), (count + 7) / 8);
+            segment.put(correctBytes);
+            endRecord(start);
+            histories.get(studentId).record(ids, correct);
+        }
+    }
+
+    @Override
+    public void regularQuizScoreRecorded(Student student, int attempt, double score) {
+        awaitDurable(appendScore(REGULAR_SCORE, studentId(student), attempt, score));
+    }
+
+    @Override
+    public void revisionQuizScoreRecorded(Student student, int attempt, double score) {
+        awaitDurable(appendScore(REVISION_SCORE, studentId(student), attempt, score));
+    }
+
+    /**
+     * Writes a snapshot of the history and statistics of all the students in the journal. The log segments
+     * written before the snapshot are deleted afterwards.
+     *
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long firstSegment;
+            List<String> keys;
+            List<Integer> positions;
+            List<History> studentHistories;
+            synchronized (appendLock) {
+                ensureOpen();
+                startSegment(segmentNumber + 1);
+                firstSegment = segmentNumber;
+                segmentsSinceSnapshot = 0;
+                // The records written after this point are replayed after the snapshot
+                keys = new ArrayList<>(questionKeys);
+                positions = new ArrayList<>(questionPositions);
+                studentHistories = new ArrayList<>(histories);
+            }
+
+            Path temporary = directory.resolve("snapshot.tmp");
+            try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(firstSegment);
+                out.writeInt(keys.size());
+                for (int id = 0; id < keys.size(); id++) {
+                    out.writeInt(positions.get(id));
+                    writeString(out, keys.get(id));
+                }
+                out.writeInt(studentHistories.size());
+                for (int id = 0; id < studentHistories.size(); id++) {
+                    writeStudent(out, students.get(id), studentHistories.get(id), keys.size());
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temporary, directory.resolve(snapshotName(firstSegment)), StandardCopyOption.ATOMIC_MOVE);
+
+            for (Path path : listFiles("snapshot-")) {
+                if (numberOf(path) < firstSegment) Files.deleteIfExists(path);
+            }
+            for (Path path : listFiles("journal-")) {
+                if (numberOf(path) < firstSegment) Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Forces the log to disk, stops listening to the factory and the quizzes it created, and closes the journal.
+     *
+     * @throws IOException if the log cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        factory.removeListener(this);
+        snapshotExecutor.shutdown();
+        synchronized (snapshotLock) {
+            synchronized (appendLock) {
+                if (closed) return;
+                closed = true;
+                segment.force();
+                channel.close();
+            }
+        }
+    }
+
+    private int studentId(Student student) {
+        int id = students.idOf(student);
+        if (id != StudentRegistry.UNREGISTERED) {
+            return id;
+        }
+        synchronized (appendLock) {
+            id = students.idOf(student);
+            if (id != StudentRegistry.UNREGISTERED) {
+                return id;
+            }
+            byte[] firstName = student.getFirstName().getBytes(StandardCharsets.UTF_8);
+            byte[] lastName = student.getLastName().getBytes(StandardCharsets.UTF_8);
+            int start = beginRecord(STUDENT, 4 + 8 + 2 + firstName.length + 2 + lastName.length);
+            id = students.intern(student);
+            segment.putInt(id).putLong(student.getDateOfBirth().getTime());
+            segment.putShort((short) firstName.length).put(firstName);
+            segment.putShort((short) lastName.length).put(lastName);
+            endRecord(start);
+            histories.add(new History());
+            return id;
+        }
+    }
+
+    private int[] questionIds(List<Question> questions) {
+        int[] ids = new int[questions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = questionId(questions.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the journal id of the question, writing a record with its key and position the first time
+     * a question with that content is stored.
+     */
+    private int questionId(Question question) {
+        Integer id = questionIds.get(question);
+        if (id != null) {
+            return id;
+        }
+        String key = question.getKey();
+        synchronized (appendLock) {
+            id = keyIds.get(key);
+            if (id == null) {
+                int position = factory.getQuestionRegistry().idOf(question);
+                if (position >= factory.getQuestionRegistry().getPoolSize()) {
+                    position = -1;
+                }
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                int start = beginRecord(QUESTION, 4 + 4 + 4 + keyBytes.length);
+                id = addQuestion(key, position, position >= 0 ? factory.getQuestions().get(position) : question);
+                segment.putInt(id).putInt(position).putInt(keyBytes.length).put(keyBytes);
+                endRecord(start);
+            }
+            questionIds.put(question, id);
+            return id;
+        }
+    }
+
+    /**
+     * Adds a question to the tables of the journal. Must be called while holding the append lock, or during recovery.
+     *
+     * @param question The question of the factory, or null if it is not in its pool.
+     * @return The journal id of the question.
+     */
+    private int addQuestion(String key, int position, Question question) {
+        int id = questionKeys.size();
+        questionKeys.add(key);
+        questionPositions.add(position);
+        resolvedQuestions.add(question);
+        keyIds.put(key, id);
+        return id;
+    }
+
+    private long appendScore(byte type, int studentId, int attempt, double score) {
+        synchronized (appendLock) {
+            int start = beginRecord(type, 4 + 1 + 8);
+            segment.putInt(studentId).put((byte) attempt).putDouble(score);
+            return endRecord(start);
+        }
+    }
+
+    /**
+     * Writes the length and type of a record, starting a new segment if the record does not fit.
+     * Must be called while holding the append lock.
+     *
+     * @return The position where the record starts.
+     */
+    private int beginRecord(byte type, int payloadLength) {
+        ensureOpen();
+        int recordLength = payloadLength + RECORD_OVERHEAD;
+        if (recordLength + 4 > segmentSize) {
+            throw new IllegalArgumentException("The record is too large for a journal segment.");
+        }
+        if (segment.remaining() < recordLength + 4) {
+            startSegment(segmentNumber + 1);
+            if (++segmentsSinceSnapshot >= SEGMENTS_PER_SNAPSHOT) {
+                segmentsSinceSnapshot = 0;
+                snapshotExecutor.execute(this::snapshotInBackground);
+            }
+        }
+        int start = segment.position();
+        segment.putInt(payloadLength).put(type);
+        return start;
+    }
+
+    /**
+     * Writes the checksum of the record that starts at the given position. Must be called while holding the append lock.
+     *
+     * @return The total number of bytes appended to the journal, used to wait until the record is durable.
+     */
+    private long endRecord(int start) {
+        int end = segment.position();
+        segment.putInt(checksum(segment, start, end));
+        appended += end + 4 - start;
+        return appended;
+    }
+
+    /**
+     * Forces the log to disk if the given position is not durable yet. Threads that arrive while another one
+     * is forcing the log wait for it, and usually find their records already durable when it finishes.
+     */
+    private void awaitDurable(long position) {
+        synchronized (syncLock) {
+            if (durable >= position) {
+                return;
+            }
+            MappedByteBuffer buffer;
+            long target;
+            synchronized (appendLock) {
+                buffer = segment;
+                target = appended;
+            }
+            buffer.force();
+            durable = target;
+        }
+    }
+
+    /**
+     * Forces the current segment and maps a new one. Must be called while holding the append lock.
+     */
+    private void startSegment(long number) {
+        try {
+            if (segment != null) {
+                segment.force();
+                channel.close();
+            }
+            channel = FileChannel.open(directory.resolve(segmentName(number)),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segmentNumber = number;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start journal segment " + number, e);
+        }
+    }
+
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (IOException | IllegalStateException e) {
+            // The next snapshot will try again, and the log still has all the records
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The journal is closed.");
+        }
+    }
+
+    /**
+     * Loads the latest snapshot and replays the segments written after it.
+     *
+     * @return The number of the last segment found, or 0 if there are none.
+     */
+    private long recover() throws IOException {
+        long firstSegment = 0;
+        List<Path> snapshots = listFiles("snapshot-");
+        if (!snapshots.isEmpty()) {
+            firstSegment = readSnapshot(snapshots.get(snapshots.size() - 1));
+        }
+
+        long lastSegment = firstSegment;
+        for (Path path : listFiles("journal-")) {
+            long number = numberOf(path);
+            if (number >= firstSegment) {
+                replaySegment(path);
+            }
+            lastSegment = Math.max(lastSegment, number);
+        }
+        return lastSegment;
+    }
+
+    private long readSnapshot(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Invalid snapshot file " + path);
+            }
+            long firstSegment = in.readLong();
+            int questionCount = in.readInt();
+            for (int id = 0; id < questionCount; id++) {
+                int position = in.readInt();
+                String key = readString(in);
+                addQuestion(key, position, resolve(key, position));
+            }
+            int count = in.readInt();
+            for (int id = 0; id < count; id++) {
+                readStudent(in, id);
+            }
+            return firstSegment;
+        }
+    }
+
+    /**
+     * Writes the statistics of the student and its history in the journal, with the questions that were stored
+     * before the snapshot started. The later ones are in the segments replayed after the snapshot.
+     */
+    private void writeStudent(DataOutputStream out, Student student, History history, int questionCount)
+            throws IOException {
+        out.writeUTF(student.getFirstName());
+        out.writeUTF(student.getLastName());
+        out.writeLong(student.getDateOfBirth().getTime());
+
+        Statistics stats = student.getStatistics();
+        writeScores(out, stats.getRegularQuizScores());
+        writeScores(out, stats.getRevisionQuizScores());
+
+        BitSet seen;
+        BitSet incorrect;
+        synchronized (history) {
+            seen = (BitSet) history.seen.clone();
+            incorrect = (BitSet) history.incorrect.clone();
+        }
+        seen.clear(questionCount, Math.max(questionCount, seen.length()));
+        incorrect.clear(questionCount, Math.max(questionCount, incorrect.length()));
+        writeBitSet(out, seen);
+        writeBitSet(out, incorrect);
+    }
+
+    private void readStudent(DataInputStream in, int id) throws IOException {
+        Student student = new Student(in.readUTF(), in.readUTF(), new Date(in.readLong()));
+        if (students.intern(student) != id) {
+            throw new IOException("Invalid snapshot: student " + id + " is repeated.");
+        }
+        histories.add(new History());
+        Statistics stats = student.getStatistics();
+        double[] regularScores = readScores(in);
+        // Revision quizzes can only be taken before the verdict, so they are recorded first
+        for (double score : readScores(in)) {
+            stats.recordRevisionQuizScore(score);
+        }
+        for (double score : regularScores) {
+            stats.recordRegularQuizScore(score);
+        }
+
+        int[] seen = readBitSet(in).stream().toArray();
+        BitSet incorrect = readBitSet(in);
+        for (int questionId : seen) {
+            if (questionId >= questionKeys.size()) {
+                throw new IOException("Invalid snapshot: question " + questionId + " is not stored.");
+            }
+        }
+        BitSet correct = new BitSet(seen.length);
+        for (int i = 0; i < seen.length; i++) {
+            correct.set(i, !incorrect.get(seen[i]));
+        }
+        applyHistory(id, seen, correct);
+    }
+
+    /**
+     * Adds the questions to the history of the student in the journal, and the questions of the pool to the
+     * history of the student in the factory.
+     *
+     * @param correct The positions of the questions answered correctly, or null if they were only seen.
+     */
+    private void applyHistory(int studentId, int[] questionIds, BitSet correct) {
+        if (questionIds.length == 0) {
+            return;
+        }
+        histories.get(studentId).record(questionIds, correct);
+        List<Question> questions = new ArrayList<>(questionIds.length);
+        BitSet correctInPool = new BitSet(questionIds.length);
+        for (int i = 0; i < questionIds.length; i++) {
+            Question question = resolvedQuestions.get(questionIds[i]);
+            if (question != null) {
+                correctInPool.set(questions.size(), correct != null && correct.get(i));
+                questions.add(question);
+            }
+        }
+        if (questions.isEmpty()) {
+            return;
+        }
+        Student student = students.get(studentId);
+        if (correct == null) {
+            factory.recordSeenQuestions(student, questions);
+        } else {
+            factory.recordAnsweredQuestions(student, questions, correctInPool);
+        }
+    }
+
+    /**
+     * Finds the question of the pool of the factory with the given key. The stored position is tried first,
+     * so the pool is only searched if it was loaded in another order.
+     *
+     * @return The question, or null if there is no question with that key in the pool.
+     */
+    private Question resolve(String key, int position) {
+        List<Question> pool = factory.getQuestions();
+        if (position >= 0 && position < pool.size() && pool.get(position).getKey().equals(key)) {
+            return pool.get(position);
+        }
+        if (poolByKey == null) {
+            poolByKey = new HashMap<>();
+            for (Question question : pool) {
+                poolByKey.putIfAbsent(question.getKey(), question);
+            }
+        }
+        return poolByKey.get(key);
+    }
+
+    private static void writeBitSet(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    private static BitSet readBitSet(DataInputStream in) throws IOException {
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeScores(DataOutputStream out, double[] scores) throws IOException {
+        out.writeByte(scores.length);
+        for (double score : scores) {
+            out.writeDouble(score);
+        }
+    }
+
+    private static double[] readScores(DataInputStream in) throws IOException {
+        double[] scores = new double[in.readUnsignedByte()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = in.readDouble();
+        }
+        return scores;
+    }
+
+    /**
+     * Applies the records of a segment until the end of the written data or the first damaged record,
+     * which can only be the last one, written partially before a crash.
+     */
+    private void replaySegment(Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            while (buffer.remaining() >= RECORD_OVERHEAD) {
+                int start = buffer.position();
+                int payloadLength = buffer.getInt();
+                if (payloadLength <= 0 || payloadLength > buffer.remaining() - 5) {
+                    return;
+                }
+                byte type = buffer.get();
+                int end = buffer.position() + payloadLength;
+                if (buffer.getInt(end) != checksum(buffer, start, end)) {
+                    return;
+                }
+                applyRecord(type, buffer);
+                buffer.position(end + 4);
+            }
+        }
+    }
+
+    private void applyRecord(byte type, ByteBuffer buffer) {
+        if (type == STUDENT) {
+            int id = buffer.getInt();
+            Date dateOfBirth = new Date(buffer.getLong());
+            String firstName = readString(buffer);
+            String lastName = readString(buffer);
+            int size = students.size();
+            if (students.intern(new Student(firstName, lastName, dateOfBirth)) != id) {
+                throw new IllegalStateException("Invalid journal: student " + id + " is out of order.");
+            }
+            if (students.size() > size) {
+                histories.add(new History());
+            }
+        } else if (type == QUESTION) {
+            int id = buffer.getInt();
+            int position = buffer.getInt();
+            byte[] keyBytes = new byte[buffer.getInt()];
+            buffer.get(keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            if (id == questionKeys.size()) {
+                addQuestion(key, position, resolve(key, position));
+            } else if (id > questionKeys.size() || !questionKeys.get(id).equals(key)) {
+                throw new IllegalStateException("Invalid journal: question " + id + " is out of order.");
+            }
+        } else if (type == QUESTIONS_SEEN) {
+            int studentId = buffer.getInt();
+            applyHistory(studentId, readQuestionIds(buffer), null);
+        } else if (type == QUESTIONS_ANSWERED) {
+            int studentId = buffer.getInt();
+            int[] ids = readQuestionIds(buffer);
+            byte[] correctBytes = new byte[(ids.length + 7) / 8];
+            buffer.get(correctBytes);
+            applyHistory(studentId, ids, BitSet.valueOf(correctBytes));
+        } else if (type == REGULAR_SCORE || type == REVISION_SCORE) {
+            Statistics stats = students.get(buffer.getInt()).getStatistics();
+            int attempt = buffer.get();
+            double score = buffer.getDouble();
+            if (type == REGULAR_SCORE && stats.getRegularAttempts() == attempt) {
+                stats.recordRegularQuizScore(score);
+            } else if (type == REVISION_SCORE && stats.getRevisionAttempts() == attempt) {
+                stats.recordRevisionQuizScore(score);
+            }
+        } else {
+            throw new IllegalStateException("Invalid journal: unknown record type " + type);
+        }
+    }
+
+    private int[] readQuestionIds(ByteBuffer buffer) {
+        int[] ids = new int[buffer.getInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = buffer.getInt();
+            if (ids[i] < 0 || ids[i] >= questionKeys.size()) {
+                throw new IllegalStateException("Invalid journal: question " + ids[i] + " is not stored.");
+            }
+        }
+        return ids;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(ByteBuffer buffer, int start, int end) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer record = buffer.duplicate();
+        record.limit(end).position(start);
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private List<Path> listFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = new ArrayList<>();
+            files.filter(path -> path.getFileName().toString().startsWith(prefix)).forEach(paths::add);
+            paths.sort(Comparator.comparingLong(QuizJournal::numberOf));
+            return paths;
+        }
+    }
+
+    private static long numberOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+    }
+
+    private static String segmentName(long number) {
+        return String.format("journal-%016d.log", number);
+    }
+
+    private static String snapshotName(long number) {
+        return String.format("snapshot-%016d.bin", number);
+    }
+
+    /**
+     * The history of a student in the journal, as bitsets indexed by journal question id. It is updated while
+     * holding the append lock, and read by the snapshots while holding its own lock.
+     */
+    private static final class History {
+        private final BitSet seen = new BitSet();
+        private final BitSet incorrect = new BitSet();
+
+        /**
+         * @param correct The positions of the questions answered correctly, or null if they were only seen.
+         */
+        private synchronized void record(int[] questionIds, BitSet correct) {
+            for (int i = 0; i < questionIds.length; i++) {
+                seen.set(questionIds[i]);
+                if (correct != null) {
+                    incorrect.set(questionIds[i], !correct.get(i));
+                }
+            }
+        }
+    }
+}
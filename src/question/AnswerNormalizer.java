@@ -0,0 +1,184 @@
+package question;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class that normalizes free text answers in a single pass. Normalizing an answer means
+ * trimming it, collapsing every run of whitespace into a single space and converting it to lowercase,
+ * the same rules used by {@link FreeResponseQuestion} to compare answers.
+ * It also allows to compare a raw answer against an already normalized key without creating new Strings.
+ * <p>
+ * The result is the same as {@code answer.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT)}: the
+ * characters up to {@code ' '} are removed at both ends, as {@link String#trim()} does, and only the
+ * whitespace of the regex class {@code \s} is collapsed inside the answer. Answers made of ASCII characters
+ * are handled in one pass without building Strings. Answers with other characters are normalized with the
+ * expression above, because {@link String#toLowerCase(Locale)} lower-cases by code point and can change the
+ * length of the text, for example for supplementary characters or the Turkish capital I with a dot.
+ * The lowercase is the same in every default locale.
+ */
+public final class AnswerNormalizer {
+
+    // Offset basis and prime of the 64-bit FNV-1a hash
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Runs of whitespace of answers that are not only ASCII
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Private constructor, this class only exposes static methods.
+     */
+    private AnswerNormalizer() {
+    }
+
+    /**
+     * Normalizes the given answer by trimming it, collapsing the whitespace and converting it to lowercase.
+     * The whole process is done in one pass over the characters of an ASCII answer.
+     *
+     * @param answer the answer to normalize
+     * @return the normalized answer
+     * @throws IllegalArgumentException if the answer is null
+     */
+    public static String normalize(CharSequence answer) {
+        if (answer == null) {
+            throw new IllegalArgumentException("Answer cannot be null.");
+        }
+        int end = trimmedEnd(answer);
+        StringBuilder normalized = new StringBuilder(end);
+        boolean pendingSpace = false;
+        for (int i = trimmedStart(answer, end); i < end; i++) {
+            char c = answer.charAt(i);
+            if (c >= 0x80) {
+                return normalizeText(answer);
+            }
+            if (isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(toLowerCase(c));
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Checks if the raw answer is equal to the normalized key once it is normalized. The comparison is done
+     * character by character while an ASCII answer is read, so no intermediate String is created.
+     *
+     * @param answer        the raw answer given by the student
+     * @param normalizedKey the key, already normalized with {@link #normalize(CharSequence)}
+     * @return true if the normalized answer is equal to the key, false otherwise or if the answer is null
+     */
+    public static boolean matches(CharSequence answer, String normalizedKey) {
+        if (answer == null) return false;
+
+        int keyLength = normalizedKey.length();
+        int k = 0;
+        boolean pendingSpace = false;
+        int end = trimmedEnd(answer);
+        for (int i = trimmedStart(answer, end); i < end; i++) {
+            char c = answer.charAt(i);
+            if (c >= 0x80) {
+                return normalizeText(answer).equals(normalizedKey);
+            }
+            if (isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                if (k >= keyLength || normalizedKey.charAt(k++) != ' ') return false;
+                pendingSpace = false;
+            }
+            if (k >= keyLength || normalizedKey.charAt(k++) != toLowerCase(c)) return false;
+        }
+        return k == keyLength;
+    }
+
+    /**
+     * Computes a 64-bit hash (FNV-1a) of the characters of the normalized answer, without building it for an
+     * ASCII answer. Two answers with the same normalized form always have the same hash.
+     *
+     * @param answer the raw answer to hash
+     * @return the hash of the normalized answer
+     * @throws IllegalArgumentException if the answer is null
+     */
+    public static long hash(CharSequence answer) {
+        if (answer == null) {
+            throw new IllegalArgumentException("Answer cannot be null.");
+        }
+        long hash = FNV_OFFSET;
+        boolean pendingSpace = false;
+        int end = trimmedEnd(answer);
+        for (int i = trimmedStart(answer, end); i < end; i++) {
+            char c = answer.charAt(i);
+            if (c >= 0x80) {
+                return hashNormalized(normalizeText(answer));
+            }
+            if (isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                hash = (hash ^ ' ') * FNV_PRIME;
+                pendingSpace = false;
+            }
+            hash = (hash ^ toLowerCase(c)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hashNormalized(String normalized) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash = (hash ^ normalized.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Normalizes an answer that is not only ASCII, with the rules of Strings.
+     */
+    private static String normalizeText(CharSequence answer) {
+        return WHITESPACE.matcher(answer.toString().trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the index after the last character greater than {@code ' '}, as {@link String#trim()} finds it.
+     */
+    private static int trimmedEnd(CharSequence answer) {
+        int end = answer.length();
+        while (end > 0 && answer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the index of the first character greater than {@code ' '}, or the end if there is none.
+     */
+    private static int trimmedStart(CharSequence answer, int end) {
+        int start = 0;
+        while (start < end && answer.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Checks if the character is a whitespace, using the same characters as the regex class {@code \s}.
+     *
+     * @param c the character to check
+     * @return true if the character is a whitespace
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -1,5 +1,8 @@
 package question;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * This class represents a question of the typw Free Response, where the student provide
  * an answer in plain text. It implements the {@link Question} interface, providing the
@@ -31,7 +34,14 @@ public class FreeResponseQuestion implements Question {
             throw new IllegalArgumentException("Question formulation and answer cannot be null.");
         }
         this.questionFormulation = questionFormulation.trim();
-        this.correctAnswer = normalizeAnswer(correctAnswer);
+        this.correctAnswer = AnswerNormalizer.normalize(correctAnswer);
+    }
+
+    /**
+     * Returns the content key of a free response question, shared with the free response questions of a bank.
+     */
+    static String key(String questionFormulation, String correctAnswer) {
+        return "free:" + questionFormulation + "\n" + correctAnswer;
     }
 
     /**
@@ -44,31 +54,71 @@ public class FreeResponseQuestion implements Question {
         return questionFormulation;
     }
 
+    @Override
+    public String getKey() {
+        return key(questionFormulation, correctAnswer);
+    }
+
+    /**
+     * Returns the correct answer, already normalized. Used to store the question in a {@link QuestionBank}.
+     *
+     * @return the normalized correct answer
+     */
+    String getCorrectAnswer() {
+        return correctAnswer;
+    }
+
     /**
      * Checks whether the provided answer matches the correct answer for this question.
      * The comparison is case-insensitive, ignores leading and trailing spaces, and treats
-     * multiple spaces as a single space.
+     * multiple spaces as a single space. The answer is compared against the normalized key
+     * while it is read, without building a normalized copy of it.
      *
      * @param answer the student answer to check
      * @return true or false if the question is correct or not.
      */
     @Override
     public boolean checkAnswer(String answer) {
-        if (answer == null) return false;
-        return normalizeAnswer(answer).equals(correctAnswer);
+        return AnswerNormalizer.matches(answer, correctAnswer);
     }
 
     /**
-     * Method to normalize the answer by trimming it, replacing multiple spaces with a single space,
-     * and converting it to lowercase to make the comparison.
+     * Checks a group of answers against the correct answer. As the normalization can only make an
+     * answer shorter, answers shorter than the correct answer are rejected without being scanned.
      *
-     * @param answer the answer to normalize
-     * @return the normalized answer
+     * @param answers the answers to check
+     * @return a BitSet where the bit i is set if the answer in position i is correct
      */
-    private String normalizeAnswer(String answer) {
-        return answer.trim().replaceAll("\\s+", " ").toLowerCase();
+    @Override
+    public BitSet checkAnswers(List<String> answers) {
+        String key = correctAnswer;
+        int keyLength = key.length();
+        BitSet correct = new BitSet(answers.size());
+        for (int i = 0; i < answers.size(); i++) {
+            String answer = answers.get(i);
+            if (answer != null && answer.length() >= keyLength && AnswerNormalizer.matches(answer, key)) {
+                correct.set(i);
+            }
+        }
+        return correct;
     }
-}
-
 
+    /**
+     * Two questions are equal if they have the same formulation and correct answer, once they are normalized.
+     *
+     * @param o The object to compare with this question.
+     * @return True if the questions are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FreeResponseQuestion)) return false;
+        FreeResponseQuestion other = (FreeResponseQuestion) o;
+        return questionFormulation.equals(other.questionFormulation) && correctAnswer.equals(other.correctAnswer);
+    }
 
+    @Override
+    public int hashCode() {
+        return 31 * questionFormulation.hashCode() + correctAnswer.hashCode();
+    }
+}
@@ -0,0 +1,218 @@
+package question;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of grading results. Many students submit the same answers to a question (the same
+ * typo or the same misconception), so the verdict of an answer is stored using the identity of the
+ * question and the hash of the normalized answer (see {@link AnswerNormalizer#hash(CharSequence)}).
+ * Only the 64-bit hash of the answer is stored, so two different answers could share a verdict, but
+ * this is very unlikely.
+ * <p>
+ * The verdicts are split by their key in segments, each one with its own lock and its own least recently
+ * used order, so threads grading different answers rarely wait for each other. When a segment is full its
+ * least recently used verdict is removed. A small cache has a single segment, so it is an exact LRU cache.
+ * The cache assumes that the verdict of a question does not depend on the case or the extra spaces
+ * of the answer, which is true for {@link FreeResponseQuestion} and {@link MultipleChoiceQuestion}.
+ * All the methods are thread safe.
+ */
+public final class GradingCache {
+
+    // Maximum number of segments, and entries a segment must hold at least to add another segment
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+
+    private final int maxEntries;
+    private final Segment[] segments;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructs an empty cache that can hold up to the given number of verdicts.
+     *
+     * @param maxEntries the maximum number of verdicts stored in the cache
+     * @throws IllegalArgumentException if the maximum number of entries is less than 1
+     */
+    public GradingCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one entry.");
+        }
+        this.maxEntries = maxEntries;
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_SEGMENT_ENTRIES)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // The first segments take the entries left by the division
+            segments[i] = new Segment(maxEntries / count + (i < maxEntries % count ? 1 : 0));
+        }
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Checks the answer to the question, using the stored verdict if the same normalized answer was
+     * already checked for this question.
+     *
+     * @param question the question being answered
+     * @param answer   the student answer to check
+     * @return true if the answer is correct, false otherwise
+     */
+    public boolean checkAnswer(Question question, String answer) {
+        if (answer == null) return question.checkAnswer(null);
+
+        Key key = new Key(question, AnswerNormalizer.hash(answer));
+        Segment segment = segmentOf(key);
+        Boolean verdict;
+        synchronized (segment) {
+            verdict = segment.get(key);
+        }
+        if (verdict != null) {
+            hits.increment();
+            return verdict;
+        }
+        misses.increment();
+
+        boolean correct = question.checkAnswer(answer);
+        synchronized (segment) {
+            segment.put(key, correct);
+        }
+        return correct;
+    }
+
+    /**
+     * Wraps the question so every call to {@link Question#checkAnswer(String)} goes through this cache.
+     * The wrapped question can be added to a question pool in place of the original one.
+     *
+     * @param question the question to wrap
+     * @return a question that uses this cache to check the answers
+     * @throws IllegalArgumentException if the question is null
+     */
+    public Question wrap(Question question) {
+        if (question == null) {
+            throw new IllegalArgumentException("Question cannot be null.");
+        }
+        return new CachedQuestion(question, this);
+    }
+
+    private Segment segmentOf(Key key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ hash >>> 16) & (segments.length - 1)];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of stored verdicts. Verdicts stored at the same time may not be counted.
+     *
+     * @return the number of verdicts in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Removes every stored verdict and resets the counters. Verdicts stored at the same time may be kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Part of the verdicts, in least recently used order, guarded by its own monitor.
+     */
+    private static final class Segment extends LinkedHashMap<Key, Boolean> {
+        private final int maxEntries;
+
+        private Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    /**
+     * Key of a verdict: the identity of the question and the hash of the normalized answer.
+     */
+    private static final class Key {
+        private final Question question;
+        private final long answerHash;
+
+        private Key(Question question, long answerHash) {
+            this.question = question;
+            this.answerHash = answerHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return question == key.question && answerHash == key.answerHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(question) + Long.hashCode(answerHash);
+        }
+    }
+
+    /**
+     * Question that delegates to another question and checks the answers through the cache.
+     */
+    private static final class CachedQuestion implements Question {
+        private final Question question;
+        private final GradingCache cache;
+
+        private CachedQuestion(Question question, GradingCache cache) {
+            this.question = question;
+            this.cache = cache;
+        }
+
+        @Override
+        public String getQuestionFormulation() {
+            return question.getQuestionFormulation();
+        }
+
+        @Override
+        public String getKey() {
+            return question.getKey();
+        }
+
+        @Override
+        public boolean checkAnswer(String answer) {
+            return cache.checkAnswer(question, answer);
+        }
+
+        @Override
+        public boolean isMultipleChoice() {
+            return question.isMultipleChoice();
+        }
+    }
+}
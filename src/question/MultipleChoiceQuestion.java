@@ -1,22 +1,23 @@
 package question;
 
-import java.util.Arrays;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Represents a multiple-choice question.
- * The answer for this type of question is a group of
+ * The answer for this type of question is a group of options, each one a single letter.
+ * The correct options are stored as a bitmask (see {@link OptionMask}).
  */
 public class MultipleChoiceQuestion implements Question {
     private final String questionFormulation;
-    private final Set<String> correctAnswers;
+    private final int correctAnswers;
 
     /**
      * Constructor for MultipleChoiceQuestion.
      *
      * @param questionFormulation the text of the question
      * @param correctAnswers      the correct answers as an array of literals like "a, b, c"
+     * @throws IllegalArgumentException if there are not between 2 and 4 correct answers, or if an answer is not a single letter
      */
     public MultipleChoiceQuestion(String questionFormulation, String[] correctAnswers) {
         if (questionFormulation == null || correctAnswers == null || correctAnswers.length < 2 || correctAnswers.length > 4) {
@@ -24,9 +25,22 @@ public class MultipleChoiceQuestion implements Question {
         }
         this.questionFormulation = questionFormulation.trim();
 
-        this.correctAnswers = Arrays.stream(correctAnswers)
-                .map(this::normalizeAnswer)
-                .collect(Collectors.toSet());
+        int mask = 0;
+        for (String correctAnswer : correctAnswers) {
+            int option = OptionMask.parse(correctAnswer);
+            if (option == OptionMask.INVALID || Integer.bitCount(option) != 1) {
+                throw new IllegalArgumentException("Multiple choice answers must be single letters between a and z.");
+            }
+            mask |= option;
+        }
+        this.correctAnswers = mask;
+    }
+
+    /**
+     * Returns the content key of a multiple choice question, shared with the multiple choice questions of a bank.
+     */
+    static String key(String questionFormulation, int optionMask) {
+        return "choice:" + questionFormulation + "\n" + optionMask;
     }
 
     @Override
@@ -34,6 +48,20 @@ public class MultipleChoiceQuestion implements Question {
         return questionFormulation;
     }
 
+    @Override
+    public String getKey() {
+        return key(questionFormulation, correctAnswers);
+    }
+
+    /**
+     * Returns the correct options as a mask. Used to store the question in a {@link QuestionBank}.
+     *
+     * @return the mask of the correct options
+     */
+    int getOptionMask() {
+        return correctAnswers;
+    }
+
     /**
      * Checks if the given answers are correct.
      *
@@ -42,23 +70,48 @@ public class MultipleChoiceQuestion implements Question {
      */
     @Override
     public boolean checkAnswer(String answer) {
-        if (answer == null) return false;
+        return OptionMask.parse(answer) == correctAnswers;
+    }
 
-        Set<String> givenAnswers = Arrays.stream(answer.split(","))
-                .map(this::normalizeAnswer)
-                .collect(Collectors.toSet());
+    @Override
+    public boolean isMultipleChoice() {
+        return true;
+    }
 
-        return givenAnswers.equals(correctAnswers);
+    /**
+     * Checks a group of answers, comparing the mask of each answer with the mask of the correct answers.
+     *
+     * @param answers the answers to check, each one in the format "a,b,c"
+     * @return a BitSet where the bit i is set if the answer in position i is correct
+     */
+    @Override
+    public BitSet checkAnswers(List<String> answers) {
+        int expected = correctAnswers;
+        BitSet correct = new BitSet(answers.size());
+        for (int i = 0; i < answers.size(); i++) {
+            if (OptionMask.parse(answers.get(i)) == expected) {
+                correct.set(i);
+            }
+        }
+        return correct;
     }
 
     /**
-     * Normalizes an answer ignoring spaces and order.
+     * Two questions are equal if they have the same formulation and correct answers.
      *
-     * @param answer the answer to normalize
-     * @return the normalized answer
+     * @param o The object to compare with this question.
+     * @return True if the questions are equal, false otherwise.
      */
-    private String normalizeAnswer(String answer) {
-        return answer.trim().toLowerCase();
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MultipleChoiceQuestion)) return false;
+        MultipleChoiceQuestion other = (MultipleChoiceQuestion) o;
+        return correctAnswers == other.correctAnswers && questionFormulation.equals(other.questionFormulation);
     }
-}
 
+    @Override
+    public int hashCode() {
+        return 31 * questionFormulation.hashCode() + correctAnswers;
+    }
+}
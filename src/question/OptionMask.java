@@ -0,0 +1,66 @@
+package question;
+
+/**
+ * Utility class that encodes the options of a multiple choice answer as a bitmask. Each option is a
+ * single letter between a and z (case-insensitive), and the letter a is stored in the lowest bit.
+ * Answers like "a, c" are parsed directly into the mask with a scanner, so comparing two answers
+ * is a single integer comparison.
+ */
+public final class OptionMask {
+
+    /**
+     * Value returned when an answer cannot be encoded, for example when it contains an option
+     * that is not a single letter. It never matches a valid mask.
+     */
+    public static final int INVALID = -1;
+
+    /**
+     * Private constructor, this class only exposes static methods.
+     */
+    private OptionMask() {
+    }
+
+    /**
+     * Parses an answer in the format "a,b,c" into a bitmask. Spaces around each option are ignored,
+     * the order and repeated options do not change the result, and trailing commas are ignored.
+     *
+     * @param answer the answer to parse
+     * @return the mask with one bit per option, or {@link #INVALID} if the answer is null or malformed
+     */
+    public static int parse(CharSequence answer) {
+        if (answer == null) return INVALID;
+
+        int end = answer.length();
+        while (end > 0 && answer.charAt(end - 1) == ',') {
+            end--;
+        }
+
+        int mask = 0;
+        int option = -1;
+        for (int i = 0; i <= end; i++) {
+            char c = i < end ? answer.charAt(i) : ',';
+            if (c == ',') {
+                if (option < 0) return INVALID;
+                mask |= 1 << option;
+                option = -1;
+            } else if (c > ' ') {
+                if (option >= 0) return INVALID;
+                option = toOption(c);
+                if (option < 0) return INVALID;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Converts a letter into the position of its bit in the mask.
+     *
+     * @param c the letter of the option
+     * @return the position of the option, or -1 if the character is not a letter between a and z
+     */
+    private static int toOption(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        return -1;
+    }
+}
@@ -1,5 +1,8 @@
 package question;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * This is the interface Question.
  * This expose the methods of the contract that questions will implement.
@@ -10,6 +13,41 @@ public interface Question {
 
     String getQuestionFormulation();
 
+    /**
+     * Returns a key that identifies the content of the question: its type, formulation and correct answer.
+     * The key only depends on the content, so it is the same when the question is created again, for example
+     * when a question bank is opened in another process, and it can be stored to find the question later.
+     *
+     * @return the content key of the question
+     */
+    String getKey();
+
     boolean checkAnswer(String answer);
-}
 
+    /**
+     * Tells whether the answer is a group of options, as in a {@link MultipleChoiceQuestion}, instead of
+     * plain text, so the time spent checking answers can be measured per type of question.
+     *
+     * @return true if the question is a multiple choice question
+     */
+    default boolean isMultipleChoice() {
+        return false;
+    }
+
+    /**
+     * Checks a group of answers given to this question, for example the answers of every student
+     * of a class. Implementations can override it to prepare the correct answer only once for the group.
+     *
+     * @param answers the answers to check
+     * @return a BitSet where the bit i is set if the answer in position i is correct
+     */
+    default BitSet checkAnswers(List<String> answers) {
+        BitSet correct = new BitSet(answers.size());
+        for (int i = 0; i < answers.size(); i++) {
+            if (checkAnswer(answers.get(i))) {
+                correct.set(i);
+            }
+        }
+        return correct;
+    }
+}
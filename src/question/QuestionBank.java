@@ -0,0 +1,374 @@
+package question;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A QuestionBank is a large group of questions stored in a compact binary file. The file is memory-mapped
+ * when it is opened, and the checksum and the index are verified, which reads the file once without creating
+ * any question: the questions are only decoded when they are used.
+ * Each question of the bank is a small view of the file: the formulation and the correct answer are decoded
+ * the first time they are needed, so the memory used grows with the questions that are actually touched.
+ * <p>
+ * The file has a header, the questions one after the other, and an index with the position of each question:
+ * <pre>
+ *   header:   int magic, int version, int count, int checksum (CRC32C of the questions and the index), int index position
+ *   question: byte type (0 free response, 1 multiple choice), int option mask,
+ *             int length + UTF-8 formulation, int length + UTF-8 normalized answer
+ *   index:    int position of each question
+ * </pre>
+ * A question of a bank is equal to the question in the same position of the same file opened again, so the
+ * history recorded with a bank can be used with the bank opened again. The questions of a bank are not equal
+ * to the questions with the same content created with the constructors of {@link FreeResponseQuestion} or
+ * {@link MultipleChoiceQuestion}, but they have the same content key (see {@link Question#getKey()}).
+ * All the methods are thread safe.
+ */
+public final class QuestionBank {
+
+    private static final int MAGIC = 0x51424E4B;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final byte FREE_RESPONSE = 0;
+    private static final byte MULTIPLE_CHOICE = 1;
+
+    private final ByteBuffer data;
+    private final int count;
+    private final int checksum;
+    private final int indexPosition;
+    private final AtomicReferenceArray<BankQuestion> views;
+
+    private QuestionBank(ByteBuffer data, int count, int checksum, int indexPosition) {
+        this.data = data;
+        this.count = count;
+        this.checksum = checksum;
+        this.indexPosition = indexPosition;
+        this.views = new AtomicReferenceArray<>(count);
+    }
+
+    /**
+     * Opens a question bank file. The checksum of the file and the position of every question are verified,
+     * but the questions are only decoded when they are used.
+     *
+     * @param file the file of the bank
+     * @return the opened bank
+     * @throws IOException if the file cannot be read, is not a question bank, is damaged, or is larger than 2 GB
+     */
+    public static QuestionBank open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid question bank size: " + size);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("The file is not a question bank: " + file);
+            }
+            int count = data.getInt(8);
+            int checksum = data.getInt(12);
+            int indexPosition = data.getInt(16);
+            if (count < 0 || indexPosition < HEADER_SIZE || (long) indexPosition + 4L * count > size
+                    || checksum(data, indexPosition + 4 * count) != checksum || !isIndexValid(data, count, indexPosition)) {
+                throw new IOException("The question bank is damaged: " + file);
+            }
+            return new QuestionBank(data, count, checksum, indexPosition);
+        }
+    }
+
+    /**
+     * Computes the checksum of the questions and the index, which go from the end of the header to the given position.
+     */
+    private static int checksum(ByteBuffer data, int end) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer content = data.duplicate();
+        content.limit(end).position(HEADER_SIZE);
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Checks that every position of the index points to a question of a known type whose texts end before the index.
+     */
+    private static boolean isIndexValid(ByteBuffer data, int count, int indexPosition) {
+        for (int i = 0; i < count; i++) {
+            long position = data.getInt(indexPosition + 4 * i);
+            if (position < HEADER_SIZE || position + 13 > indexPosition) {
+                return false;
+            }
+            byte type = data.get((int) position);
+            long formulationLength = data.getInt((int) position + 5);
+            if ((type != FREE_RESPONSE && type != MULTIPLE_CHOICE) || formulationLength < 0
+                    || position + 13 + formulationLength > indexPosition) {
+                return false;
+            }
+            long answerLength = data.getInt((int) (position + 9 + formulationLength));
+            if (answerLength < 0 || position + 13 + formulationLength + answerLength > indexPosition) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the questions to a question bank file. The questions can be free response or multiple choice
+     * questions, including the questions of another bank.
+     *
+     * @param file      the file to write, replaced if it exists
+     * @param questions the questions to store
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the list is null or contains a question of another type
+     */
+    public static void write(Path file, List<Question> questions) throws IOException {
+        if (questions == null) {
+            throw new IllegalArgumentException("The list of questions cannot be null.");
+        }
+        int[] positions = new int[questions.size()];
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum)));
+            long position = HEADER_SIZE;
+            for (int i = 0; i < questions.size(); i++) {
+                positions[i] = Math.toIntExact(position);
+                position += writeQuestion(out, questions.get(i));
+            }
+            int indexPosition = Math.toIntExact(position);
+            for (int questionPosition : positions) {
+                out.writeInt(questionPosition);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(questions.size())
+                    .putInt((int) checksum.getValue()).putInt(indexPosition).flip();
+            channel.write(header, 0);
+        } catch (ArithmeticException e) {
+            throw new IOException("The question bank cannot be larger than 2 GB.", e);
+        }
+    }
+
+    private static int writeQuestion(DataOutputStream out, Question question) throws IOException {
+        byte type;
+        int mask = 0;
+        String answer = "";
+        if (question instanceof FreeResponseQuestion) {
+            type = FREE_RESPONSE;
+            answer = ((FreeResponseQuestion) question).getCorrectAnswer();
+        } else if (question instanceof MultipleChoiceQuestion) {
+            type = MULTIPLE_CHOICE;
+            mask = ((MultipleChoiceQuestion) question).getOptionMask();
+        } else if (question instanceof BankQuestion) {
+            BankQuestion view = (BankQuestion) question;
+            type = view.type();
+            mask = view.optionMask();
+            answer = type == FREE_RESPONSE ? view.correctAnswer() : "";
+        } else {
+            throw new IllegalArgumentException("Only free response and multiple choice questions can be stored in a bank.");
+        }
+        byte[] formulation = question.getQuestionFormulation().getBytes(StandardCharsets.UTF_8);
+        byte[] answerBytes = answer.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(type);
+        out.writeInt(mask);
+        out.writeInt(formulation.length);
+        out.write(formulation);
+        out.writeInt(answerBytes.length);
+        out.write(answerBytes);
+        return 13 + formulation.length + answerBytes.length;
+    }
+
+    /**
+     * Returns the question in the given position of the bank. The same object is returned every time.
+     *
+     * @param index the position of the question
+     * @return the question
+     * @throws IndexOutOfBoundsException if there is no question in that position
+     */
+    public Question get(int index) {
+        BankQuestion question = views.get(index);
+        if (question == null) {
+            int position = data.getInt(indexPosition + 4 * index);
+            views.compareAndSet(index, null, new BankQuestion(position, index));
+            question = views.get(index);
+        }
+        return question;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns all the questions of the bank as a list, for example to use them as a question pool.
+     * The questions are created when the list is read. The list finds the position of a question of the bank
+     * without reading the other ones, so a {@link QuestionRegistry} uses it as its pool without copying it.
+     *
+     * @return an unmodifiable list with the questions of the bank
+     */
+    public List<Question> getQuestions() {
+        return new QuestionList();
+    }
+
+    /**
+     * Returns true if the other bank was opened from the same file, or from a copy of it.
+     */
+    private boolean isSameFile(QuestionBank other) {
+        return other == this || (checksum == other.checksum && count == other.count && indexPosition == other.indexPosition);
+    }
+
+    private String decode(int position) {
+        int length = data.getInt(position);
+        byte[] bytes = new byte[length];
+        data.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A question of the bank. Only the position of the question in the file is stored, and the texts
+     * are decoded the first time they are used.
+     */
+    private final class BankQuestion implements Question {
+        private final int position;
+        private final int index;
+        // Decoded on demand, a race only decodes the same text twice
+        private String formulation;
+        private String correctAnswer;
+
+        private BankQuestion(int position, int index) {
+            this.position = position;
+            this.index = index;
+        }
+
+        private QuestionBank bank() {
+            return QuestionBank.this;
+        }
+
+        private byte type() {
+            return data.get(position);
+        }
+
+        private int optionMask() {
+            return data.getInt(position + 1);
+        }
+
+        private String correctAnswer() {
+            String answer = correctAnswer;
+            if (answer == null) {
+                answer = decode(position + 9 + data.getInt(position + 5));
+                correctAnswer = answer;
+            }
+            return answer;
+        }
+
+        @Override
+        public String getQuestionFormulation() {
+            String text = formulation;
+            if (text == null) {
+                text = decode(position + 5);
+                formulation = text;
+            }
+            return text;
+        }
+
+        @Override
+        public String getKey() {
+            if (type() == MULTIPLE_CHOICE) {
+                return MultipleChoiceQuestion.key(getQuestionFormulation(), optionMask());
+            }
+            return FreeResponseQuestion.key(getQuestionFormulation(), correctAnswer());
+        }
+
+        @Override
+        public boolean checkAnswer(String answer) {
+            if (type() == MULTIPLE_CHOICE) {
+                return OptionMask.parse(answer) == optionMask();
+            }
+            return AnswerNormalizer.matches(answer, correctAnswer());
+        }
+
+        @Override
+        public boolean isMultipleChoice() {
+            return type() == MULTIPLE_CHOICE;
+        }
+
+        @Override
+        public BitSet checkAnswers(List<String> answers) {
+            BitSet correct = new BitSet(answers.size());
+            if (type() == MULTIPLE_CHOICE) {
+                int expected = optionMask();
+                for (int i = 0; i < answers.size(); i++) {
+                    if (OptionMask.parse(answers.get(i)) == expected) {
+                        correct.set(i);
+                    }
+                }
+                return correct;
+            }
+            String key = correctAnswer();
+            for (int i = 0; i < answers.size(); i++) {
+                String answer = answers.get(i);
+                if (answer != null && answer.length() >= key.length() && AnswerNormalizer.matches(answer, key)) {
+                    correct.set(i);
+                }
+            }
+            return correct;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BankQuestion)) return false;
+            BankQuestion other = (BankQuestion) o;
+            return index == other.index && isSameFile(other.bank());
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * checksum + index;
+        }
+    }
+
+    /**
+     * The questions of the bank as a list. A question of the bank knows its position, so it is found without
+     * creating the questions before it.
+     */
+    final class QuestionList extends AbstractList<Question> implements RandomAccess {
+        @Override
+        public Question get(int index) {
+            return QuestionBank.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof BankQuestion)) return -1;
+            BankQuestion question = (BankQuestion) o;
+            return isSameFile(question.bank()) ? question.index : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+    }
+}
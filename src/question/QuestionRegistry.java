@@ -0,0 +1,199 @@
+package question;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The QuestionRegistry gives each question used by a quiz a dense integer id (0, 1, 2, ...), so the history,
+ * statistics and caches can use arrays and bitsets indexed by the id instead of maps of questions.
+ * Each {@link quiz.QuizFactory} has its own registry: the id of a question of its pool is the position of the
+ * question in the pool, so the ids stay the same when the same pool is loaded again, for example from the same
+ * question bank. Equal questions of the pool get the id of the first one. Questions that are not in the pool get
+ * the next ids when they are registered, in the order they are registered.
+ * <p>
+ * The pool is copied, except the list of a {@link QuestionBank}, which is used as it is: it finds the position
+ * of its questions by itself, so the questions of the bank are only created when they are used.
+ * All the methods are thread safe. Registering a question that is not in the pool takes a lock, but looking up
+ * an id or reading a question by id does not: a new question is stored in the array before the size that makes
+ * it visible is updated.
+ */
+public final class QuestionRegistry {
+
+    /**
+     * Id returned for questions that are not registered.
+     */
+    public static final int UNREGISTERED = -1;
+
+    private final List<Question> pool;
+    // Null for the list of a bank, which finds the positions itself
+    private final Map<Question, Integer> poolIds;
+    // Positions of the pool whose question is equal to a question before it
+    private final BitSet repeated;
+    private final Map<Question, Integer> otherIds;
+    private volatile Question[] others;
+    private volatile int size;
+
+    /**
+     * Constructs a registry whose first ids are the positions of the questions in the pool.
+     *
+     * @param pool the pool of questions
+     * @throws IllegalArgumentException if the pool is null or contains a null question
+     */
+    public QuestionRegistry(List<Question> pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("The question pool cannot be null.");
+        }
+        this.repeated = new BitSet();
+        if (pool instanceof QuestionBank.QuestionList) {
+            this.pool = pool;
+            this.poolIds = null;
+        } else {
+            this.pool = new ArrayList<>(pool);
+            this.poolIds = new HashMap<>();
+            for (int i = 0; i < this.pool.size(); i++) {
+                Question question = this.pool.get(i);
+                if (question == null) {
+                    throw new IllegalArgumentException("The question pool cannot contain null questions.");
+                }
+                if (poolIds.putIfAbsent(question, i) != null) {
+                    repeated.set(i);
+                }
+            }
+        }
+        this.otherIds = new ConcurrentHashMap<>();
+        this.others = new Question[0];
+        this.size = pool.size();
+    }
+
+    /**
+     * Returns the id of the question, without registering it.
+     *
+     * @param question the question
+     * @return the id of the question, or {@link #UNREGISTERED} if it is not registered
+     */
+    public int idOf(Question question) {
+        Integer id;
+        if (poolIds == null) {
+            int position = pool.indexOf(question);
+            id = position >= 0 ? Integer.valueOf(position) : otherIds.get(question);
+        } else {
+            id = poolIds.get(question);
+            if (id == null) {
+                id = otherIds.get(question);
+            }
+        }
+        return id == null ? UNREGISTERED : id;
+    }
+
+    /**
+     * Returns the id of the question, registering it if it is not in the pool and was not registered before.
+     *
+     * @param question the question to register
+     * @return the id of the question
+     * @throws IllegalArgumentException if the question is null
+     */
+    public int register(Question question) {
+        if (question == null) {
+            throw new IllegalArgumentException("Question cannot be null.");
+        }
+        int id = idOf(question);
+        if (id != UNREGISTERED) {
+            return id;
+        }
+        synchronized (this) {
+            Integer registered = otherIds.get(question);
+            if (registered != null) {
+                return registered;
+            }
+            int newId = size;
+            int index = newId - pool.size();
+            Question[] current = others;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(16, current.length * 2));
+            }
+            current[index] = question;
+            others = current;
+            otherIds.put(question, newId);
+            size = newId + 1;
+            return newId;
+        }
+    }
+
+    /**
+     * Returns the ids of the questions, registering the ones that are not registered yet.
+     *
+     * @param questions the questions to register
+     * @return the id of each question, in the same order
+     * @throws IllegalArgumentException if a question is null
+     */
+    public int[] register(List<Question> questions) {
+        int[] ids = new int[questions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = register(questions.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the question registered with the given id. The questions of the pool are the objects of the pool.
+     *
+     * @param id the id of the question
+     * @return the question with that id
+     * @throws IllegalArgumentException if there is no question with that id
+     */
+    public Question get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("There is no question with id " + id);
+        }
+        if (id < pool.size()) {
+            return pool.get(id);
+        }
+        return others[id - pool.size()];
+    }
+
+    /**
+     * Returns the questions of the pool, in the order of their ids.
+     *
+     * @return an unmodifiable list with the questions of the pool
+     */
+    public List<Question> getPool() {
+        return Collections.unmodifiableList(pool);
+    }
+
+    /**
+     * Returns the ids of the questions of the pool, without the positions of the questions that are equal to a
+     * question before them.
+     *
+     * @return a new bitset with the ids of the pool
+     */
+    public BitSet getPoolIds() {
+        BitSet ids = new BitSet(pool.size());
+        ids.set(0, pool.size());
+        ids.andNot(repeated);
+        return ids;
+    }
+
+    /**
+     * Returns the number of questions in the pool. The ids of the pool are the numbers from 0 to this size.
+     *
+     * @return the number of questions in the pool
+     */
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    /**
+     * Returns the number of ids given, which is also the next id to be assigned.
+     *
+     * @return the number of registered questions
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,28 @@
+package quiz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for the check of the answers of one attempt, including the normalization of free
+ * response answers.
+ */
+@Name("quiz.AnswerGrading")
+@Label("Answer Grading")
+@Category("Quiz")
+@Description("Check of the answers of a quiz attempt")
+@Enabled(false)
+@StackTrace(false)
+final class AnswerGradingEvent extends Event {
+
+    @Label("Question Count")
+    int questionCount;
+
+    @Label("Correct Answers")
+    int correctCount;
+}
@@ -0,0 +1,225 @@
+package quiz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.random.RandomGenerator;
+
+/**
+ * The QuestionSampler selects a random subset of questions from a pool. It uses Floyd's algorithm,
+ * so selecting k questions costs O(k) time and memory, no matter how big the pool is.
+ * A sampler created with a seed always produces the same selections, which is useful in tests and
+ * benchmarks. A sampler without a seed uses the random generator of the current thread.
+ * It can also select from two groups of indices with different weights, where the probability of each index
+ * is proportional to the weight of its group, and select only the indices accepted by a filter.
+ */
+public final class QuestionSampler {
+
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a sampler that uses the random generator of the current thread.
+     */
+    public QuestionSampler() {
+        this.random = null;
+    }
+
+    /**
+     * Constructs a sampler that produces the same sequence of selections for the same seed.
+     *
+     * @param seed the seed of the random generator
+     */
+    public QuestionSampler(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Selects k distinct elements of the list, in random order. Every subset and every order
+     * has the same probability.
+     *
+     * @param items the list to select from, it should support fast random access
+     * @param k     the number of elements to select
+     * @param <T>   the type of the elements
+     * @return a new list with the selected elements
+     * @throws IllegalArgumentException if k is negative or greater than the size of the list
+     */
+    public <T> List<T> sample(List<T> items, int k) {
+        int[] indices = sampleIndices(items.size(), k);
+        List<T> selected = new ArrayList<>(k);
+        for (int index : indices) {
+            selected.add(items.get(index));
+        }
+        return selected;
+    }
+
+    /**
+     * Selects k distinct indices between 0 (inclusive) and n (exclusive), in random order.
+     *
+     * @param n the number of indices to select from
+     * @param k the number of indices to select
+     * @return an array with the selected indices
+     * @throws IllegalArgumentException if k is negative or greater than n
+     */
+    public int[] sampleIndices(int n, int k) {
+        if (k < 0 || k > n) {
+            throw new IllegalArgumentException("Cannot select " + k + " elements from " + n);
+        }
+        if (random == null) {
+            return sampleIndices(n, k, ThreadLocalRandom.current()::nextInt);
+        }
+        synchronized (random) {
+            return sampleIndices(n, k, random::nextInt);
+        }
+    }
+
+    /**
+     * Selects k distinct indices between 0 (inclusive) and n (exclusive) among the ones accepted by the filter,
+     * in random order. Random indices are drawn and the rejected or repeated ones are discarded, so it is fast
+     * when the filter accepts many of the indices: about k * n / (accepted - k) draws are needed.
+     *
+     * @param n        the number of indices to select from
+     * @param k        the number of indices to select
+     * @param accepted the number of indices the filter accepts
+     * @param filter   tells if an index can be selected
+     * @return an array with the selected indices
+     * @throws IllegalArgumentException if k is negative or greater than the number of accepted indices
+     */
+    public int[] sampleAccepted(int n, int k, int accepted, IntPredicate filter) {
+        if (k < 0 || k > accepted || accepted > n) {
+            throw new IllegalArgumentException("Cannot select " + k + " elements from " + accepted);
+        }
+        if (random == null) {
+            return sampleAccepted(n, k, filter, ThreadLocalRandom.current()::nextInt);
+        }
+        synchronized (random) {
+            return sampleAccepted(n, k, filter, random::nextInt);
+        }
+    }
+
+    private static int[] sampleAccepted(int n, int k, IntPredicate filter, IntUnaryOperator random) {
+        int[] selected = new int[k];
+        int[] table = new int[Integer.highestOneBit(Math.max(1, k) * 2) * 2];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+
+        int count = 0;
+        while (count < k) {
+            int candidate = random.applyAsInt(n);
+            if (filter.test(candidate) && add(table, mask, candidate)) {
+                selected[count++] = candidate;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Selects k distinct indices from two groups where every index of a group has the same weight: the indices
+     * from 0 to firstSize (exclusive) have the first weight, and the next secondSize indices have the second one.
+     * The indices are selected one by one with probabilities proportional to the weights, each one among the
+     * indices not selected yet, in O(k) time: the group of each selection is chosen with the weight left in each
+     * group, and the indices of each group are then selected with Floyd's algorithm.
+     *
+     * @param firstSize    the number of indices in the first group
+     * @param firstWeight  the weight of each index of the first group
+     * @param secondSize   the number of indices in the second group
+     * @param secondWeight the weight of each index of the second group
+     * @param k            the number of indices to select
+     * @return an array with the selected indices, in the order they were selected
+     * @throws IllegalArgumentException if a size is negative, a weight is not positive and finite, or k is
+     *                                  negative or greater than the number of indices
+     */
+    public int[] sampleTwoGroups(int firstSize, double firstWeight, int secondSize, double secondWeight, int k) {
+        if (firstSize < 0 || secondSize < 0) {
+            throw new IllegalArgumentException("The sizes of the groups cannot be negative.");
+        }
+        if (!(firstWeight > 0) || !(secondWeight > 0) || Double.isInfinite(firstWeight) || Double.isInfinite(secondWeight)) {
+            throw new IllegalArgumentException("Weights must be finite and positive.");
+        }
+        long n = (long) firstSize + secondSize;
+        if (k < 0 || k > n) {
+            throw new IllegalArgumentException("Cannot select " + k + " elements from " + n);
+        }
+        if (random == null) {
+            return sampleTwoGroups(firstSize, firstWeight, secondSize, secondWeight, k, ThreadLocalRandom.current());
+        }
+        synchronized (random) {
+            return sampleTwoGroups(firstSize, firstWeight, secondSize, secondWeight, k, random);
+        }
+    }
+
+    private static int[] sampleTwoGroups(int firstSize, double firstWeight, int secondSize, double secondWeight,
+                                         int k, RandomGenerator random) {
+        boolean[] inFirst = new boolean[k];
+        int firstLeft = firstSize;
+        int secondLeft = secondSize;
+        for (int i = 0; i < k; i++) {
+            double first = firstLeft * firstWeight;
+            inFirst[i] = random.nextDouble() * (first + secondLeft * secondWeight) < first;
+            if (inFirst[i]) {
+                firstLeft--;
+            } else {
+                secondLeft--;
+            }
+        }
+
+        // Every index of a group has the same weight, so a uniform subset in random order is selected in each one
+        int[] first = sampleIndices(firstSize, firstSize - firstLeft, random::nextInt);
+        int[] second = sampleIndices(secondSize, secondSize - secondLeft, random::nextInt);
+        int[] selected = new int[k];
+        int nextFirst = 0;
+        int nextSecond = 0;
+        for (int i = 0; i < k; i++) {
+            selected[i] = inFirst[i] ? first[nextFirst++] : firstSize + second[nextSecond++];
+        }
+        return selected;
+    }
+
+    /**
+     * Floyd's algorithm: for each j from n - k to n - 1 a random index up to j is chosen, and if it was
+     * already selected j is selected instead. The chosen indices are kept in a small open addressing
+     * table, and the result is shuffled at the end because Floyd's algorithm only makes the subset random.
+     */
+    private static int[] sampleIndices(int n, int k, IntUnaryOperator random) {
+        int[] selected = new int[k];
+        int[] table = new int[Integer.highestOneBit(Math.max(1, k) * 2) * 2];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+
+        int count = 0;
+        for (int j = n - k; j < n; j++) {
+            int candidate = random.applyAsInt(j + 1);
+            if (!add(table, mask, candidate)) {
+                candidate = j;
+                add(table, mask, candidate);
+            }
+            selected[count++] = candidate;
+        }
+
+        for (int i = k - 1; i > 0; i--) {
+            int swap = random.applyAsInt(i + 1);
+            int value = selected[i];
+            selected[i] = selected[swap];
+            selected[swap] = value;
+        }
+        return selected;
+    }
+
+    /**
+     * Adds the value to the table.
+     *
+     * @return true if the value was added, false if it was already in the table
+     */
+    private static boolean add(int[] table, int mask, int value) {
+        int slot = (value * 0x9E3779B9) >>> 1 & mask;
+        while (table[slot] != -1) {
+            if (table[slot] == value) return false;
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        return true;
+    }
+}
@@ -7,7 +7,11 @@ import java.util.List;
 /**
  * This is the interface Quiz.
  * This expose the methods of the contract that quizzes will implement.
- *
+ * <p>
+ * Concurrency contract: implementations must be safe to use from many threads at the same time.
+ * Calls for different students must not block each other, and the questions seen in an attempt
+ * must be added to the history of the student atomically, so a revision quiz never sees half of an attempt.
+ * Question pools are fixed when the quiz is created and are only read afterwards.
  */
 
 public interface Quiz {
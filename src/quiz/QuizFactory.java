@@ -1,37 +1,108 @@
 package quiz;
 
+import metrics.QuizMetrics;
+import metrics.QuizMetrics.Operation;
 import question.Question;
+import question.QuestionRegistry;
+import statistics.ItemStatistics;
+import statistics.Statistics;
 import student.Student;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 
 /**
  * The QuizFactory is responsible for creating quizzes (both regular and revision). It holds a pool of questions
  * and tracks each student's quiz history to prevent repetition of questions in future quizzes.
  * This class is abstract, meaning specific quiz types need to extend it and provide the details for quiz creation.
+ * The factory is thread safe: the history is kept in a concurrent map, and the history of each student is
+ * updated while holding the lock of its own bitset, so students never wait for each other.
+ * Quiz generation, revision selection, submissions and grading emit Flight Recorder events (category "Quiz"),
+ * which are disabled by default and can be enabled in a recording to analyse slow requests.
  */
 public abstract class QuizFactory implements Quiz {
+    // Weights used to select revision questions: incorrectly answered questions are chosen more often than unseen ones
+    public static final double INCORRECT_QUESTION_WEIGHT = 3.0;
+    public static final double UNSEEN_QUESTION_WEIGHT = 1.0;
+    // Sets with more than 1 / SPARSE_SET_RATIO of the ids up to their bound are sampled with random draws
+    private static final int SPARSE_SET_RATIO = 16;
+
     // A list of questions used in all quizzes
     protected final List<Question> questionPool;
-    // Tracks the questions each student has already seen
-    protected   Map<Student, List<Question>> studentHistory;
+    // Gives the questions dense ids: the questions of the pool get their position, and other recorded questions the next ids
+    protected final QuestionRegistry questionRegistry;
+    // The ids of the questions in the pool, without the ids of repeated questions
+    protected final BitSet questionPoolIds;
+    // Positions of the pool that repeat a question before them, and the number of the other positions
+    private final BitSet repeatedPoolIds;
+    private final int poolIdCount;
+    // Tracks the questions each student has already seen, as a bitset indexed by question id
+    protected final Map<Student, BitSet> studentHistory;
+    // Tracks the seen questions whose last answer was incorrect, updated while holding the lock of the seen bitset
+    protected final Map<Student, BitSet> incorrectHistory;
+    // Selects the random questions of each quiz
+    protected final QuestionSampler sampler;
+    // Listeners notified of the changes to the history and statistics, and of the ones of the quizzes created here
+    protected final List<QuizListener> listeners;
+    // Exposure and correctness counts of each question, updated with every attempt
+    private final ItemStatistics itemStatistics;
+    // Latency of the operations of the factory and its quizzes
+    protected final QuizMetrics metrics;
+    // Queues of ready question selections for regular quizzes, by number of questions
+    private final Map<Integer, QuizPregenerator> pregenerators;
+    // The factory that created this quiz, null if it was created with a constructor
+    private volatile QuizFactory parent;
 
     /**
      * Constructor for QuizFactory. Takes a list of questions as input and initializes the quiz system.
      *
      * @param questionPool The pool of questions from which quizzes will be generated. Must not be null or empty.
-     * @throws IllegalArgumentException if the question pool is null or empty.
+     * @throws IllegalArgumentException if the question pool is null or empty, or contains a null question.
      */
     public QuizFactory(List<Question> questionPool) {
+        this(questionPool, new QuestionSampler());
+    }
+
+    /**
+     * Constructor for QuizFactory that uses the given sampler to select the questions of the quizzes,
+     * for example a sampler with a seed to always generate the same quizzes.
+     *
+     * @param questionPool The pool of questions from which quizzes will be generated. Must not be null or empty.
+     * @param sampler The sampler used to select random questions.
+     * @throws IllegalArgumentException if the question pool is null or empty, contains a null question,
+     * or the sampler is null.
+     */
+    public QuizFactory(List<Question> questionPool, QuestionSampler sampler) {
+        if (sampler == null) {
+            throw new IllegalArgumentException("The sampler cannot be null.");
+        }
         if (questionPool == null || questionPool.isEmpty()) {
             throw new IllegalArgumentException("The question pool cannot be empty.");
         }
-        this.questionPool = new ArrayList<>(questionPool);
-        this.studentHistory = new HashMap<>();
+        this.questionRegistry = new QuestionRegistry(questionPool);
+        this.questionPool = questionRegistry.getPool();
+        this.questionPoolIds = questionRegistry.getPoolIds();
+        this.repeatedPoolIds = new BitSet();
+        repeatedPoolIds.set(0, questionPool.size());
+        repeatedPoolIds.andNot(questionPoolIds);
+        this.poolIdCount = questionPoolIds.cardinality();
+        this.studentHistory = new ConcurrentHashMap<>();
+        this.incorrectHistory = new ConcurrentHashMap<>();
+        this.sampler = sampler;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.itemStatistics = new ItemStatistics();
+        this.metrics = QuizMetrics.getInstance();
+        this.pregenerators = new ConcurrentHashMap<>();
     }
 
     /**
-     * Generates a regular quiz with a specified number of questions. It shuffles the question pool and selects
-     * a subset of questions, avoiding any questions that have been seen by the student.
+     * Generates a regular quiz with a specified number of questions. It selects a random subset of questions
+     * from the pool with the sampler, without copying or shuffling the whole pool. If a {@link QuizPregenerator}
+     * has been started for this number of questions, a ready selection is taken from its queue instead.
      *
      * @param numberOfQuestions The number of questions for the quiz.
      * @return A new quiz instance with the selected questions.
@@ -39,14 +110,37 @@ public abstract class QuizFactory implements Quiz {
      */
     @Override
     public Quiz generateQuiz(int numberOfQuestions) {
-        if (numberOfQuestions < 1 || numberOfQuestions > questionPool.size()) {
-            throw new IllegalArgumentException("Invalid number of questions. Must be between 1 and " + questionPool.size());
-        }
-
+        long start = QuizMetrics.start();
+        QuizGenerationEvent event = new QuizGenerationEvent();
+        event.begin();
+        try {
+            if (numberOfQuestions < 1 || numberOfQuestions > questionPool.size()) {
+                throw new IllegalArgumentException("Invalid number of questions. Must be between 1 and " + questionPool.size());
+            }
 
-        List<Question> selectedQuestions = new ArrayList<>(questionPool);
-        Collections.shuffle(selectedQuestions);
-        return createQuizInstance(selectedQuestions.subList(0, numberOfQuestions));
+            List<Question> selectedQuestions = null;
+            if (!pregenerators.isEmpty()) {
+                QuizPregenerator pregenerator = pregenerators.get(numberOfQuestions);
+                if (pregenerator != null) {
+                    selectedQuestions = pregenerator.poll();
+                    metrics.recordPregenerated(selectedQuestions != null);
+                }
+            }
+            if (selectedQuestions == null) {
+                selectedQuestions = sampler.sample(questionPool, numberOfQuestions);
+            }
+            return adopt(createQuizInstance(selectedQuestions));
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.GENERATE_QUIZ);
+            throw e;
+        } finally {
+            metrics.record(Operation.GENERATE_QUIZ, start);
+            if (event.shouldCommit()) {
+                event.poolSize = questionPool.size();
+                event.questionCount = numberOfQuestions;
+                event.commit();
+            }
+        }
     }
 
 
@@ -61,47 +155,520 @@ public abstract class QuizFactory implements Quiz {
      */
     @Override
     public Quiz revise(Student student, int numberOfQuestions) {
-        if (student == null) {
-            throw new IllegalArgumentException("Student cannot be null.");
+        long start = QuizMetrics.start();
+        try {
+            if (student == null) {
+                throw new IllegalArgumentException("Student cannot be null.");
+            }
+
+            if (!student.getStatistics().canTakeRevisionQuiz()) {
+                throw new IllegalStateException("Cannot take more revision quizzes. Final verdict: " + student.getStatistics().getVerdict());
+            }
+
+            List<Question> unseenOrIncorrectQuestions = selectUnseenOrIncorrectQuestions(numberOfQuestions, student);
+
+            if (unseenOrIncorrectQuestions.size() < numberOfQuestions) {
+                throw new IllegalArgumentException("Not enough unseen or incorrectly answered questions for revision.");
+            }
+
+            return adopt(createRevisionQuizInstance(unseenOrIncorrectQuestions, student));
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.REVISE);
+            throw e;
+        } finally {
+            metrics.record(Operation.REVISE, start);
         }
+    }
 
-        if (!student.getStatistics().canTakeRevisionQuiz()) {
-            throw new IllegalStateException("Cannot take more revision quizzes. Final verdict: " + student.getStatistics().getVerdict());
+    /**
+     * Starts selecting the questions of regular quizzes with the given number of questions in advance, on the given
+     * executor, so {@link #generateQuiz(int)} can take them from a queue. This is useful before an exam starts,
+     * when many students generate their quiz at the same time.
+     *
+     * @param numberOfQuestions The number of questions of the quizzes.
+     * @param capacity The maximum number of selections kept ready.
+     * @param executor The executor that selects the questions, for example a single background thread.
+     * @return The pregenerator, to read its hit rate or close it. It is already closed if the executor rejected
+     * the first refill.
+     * @throws IllegalArgumentException if the number of questions is not valid, the capacity is less than 1,
+     * or the executor is null.
+     * @throws IllegalStateException if there is already a pregenerator for that number of questions.
+     */
+    public QuizPregenerator pregenerate(int numberOfQuestions, int capacity, Executor executor) {
+        if (numberOfQuestions < 1 || numberOfQuestions > questionPool.size()) {
+            throw new IllegalArgumentException("Invalid number of questions. Must be between 1 and " + questionPool.size());
+        }
+        if (capacity < 1 || executor == null) {
+            throw new IllegalArgumentException("The capacity must be at least 1 and the executor cannot be null.");
         }
+        synchronized (pregenerators) {
+            if (pregenerators.containsKey(numberOfQuestions)) {
+                throw new IllegalStateException("Quizzes of " + numberOfQuestions + " questions are already pregenerated.");
+            }
+            QuizPregenerator pregenerator = new QuizPregenerator(numberOfQuestions, capacity,
+                    () -> sampler.sample(questionPool, numberOfQuestions), executor,
+                    closed -> pregenerators.remove(numberOfQuestions, closed));
+            pregenerators.put(numberOfQuestions, pregenerator);
+            if (pregenerator.isClosed()) {
+                // The executor rejected a refill before the pregenerator was added
+                pregenerators.remove(numberOfQuestions, pregenerator);
+            }
+            return pregenerator;
+        }
+    }
+
+    /**
+     * Returns the pregenerators started with {@link #pregenerate(int, int, Executor)} and not closed.
+     *
+     * @return A new list with the pregenerators.
+     */
+    public List<QuizPregenerator> getPregenerators() {
+        return new ArrayList<>(pregenerators.values());
+    }
 
-        List<Question> unseenOrIncorrectQuestions = selectUnseenOrIncorrectQuestions(numberOfQuestions, student);
+    /**
+     * Links a quiz created by this factory to it: the attempts of the quiz are added to the item statistics of
+     * this factory, and notified to the listeners of this factory.
+     *
+     * @param quiz The quiz created by this factory.
+     * @return The same quiz.
+     */
+    private Quiz adopt(Quiz quiz) {
+        if (quiz instanceof QuizFactory) {
+            QuizFactory child = (QuizFactory) quiz;
+            child.parent = this;
+        }
+        return quiz;
+    }
 
-        if (unseenOrIncorrectQuestions.size() < numberOfQuestions) {
-            throw new IllegalArgumentException("Not enough unseen or incorrectly answered questions for revision.");
+    /**
+     * Adds a listener that is notified when the history or the statistics of a student change through
+     * this factory or the quizzes it created.
+     *
+     * @param listener The listener to add.
+     * @throws IllegalArgumentException if the listener is null.
+     */
+    public void addListener(QuizListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
         }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener from this factory. It is no longer notified of the changes made through the quizzes
+     * created by this factory either.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeListener(QuizListener listener) {
+        listeners.remove(listener);
+    }
 
-        return createRevisionQuizInstance(unseenOrIncorrectQuestions, student);
+    /**
+     * Notifies the listeners of this factory and of the factories that created it, up to the one created with
+     * a constructor.
+     *
+     * @param notification The call to make on each listener.
+     */
+    void notifyListeners(Consumer<QuizListener> notification) {
+        for (QuizFactory factory = this; factory != null; factory = factory.parent) {
+            for (QuizListener listener : factory.listeners) {
+                notification.accept(listener);
+            }
+        }
     }
 
     /**
      * Selects questions that the student has either not seen or answered incorrectly.
      * For revision quizzes, these are the questions that the student got wrong in previous attempts.
+     * If the student has answered some questions incorrectly, the questions are selected with weights, so
+     * incorrect questions are {@link #INCORRECT_QUESTION_WEIGHT} times more likely than unseen ones.
+     * <p>
+     * The sampler chooses how many questions of each kind are selected, and the ids of each kind are drawn at
+     * random, or found with one pass when there are few of that kind. Nothing the size of the pool is copied or
+     * built, so apart from counting the bits of the history the cost depends on the number of questions.
      *
      * @param numberOfQuestions The number of questions to select.
      * @param student The student for whom the revision quiz is being generated.
      * @return A list of unseen or incorrectly answered questions.
      */
     protected List<Question> selectUnseenOrIncorrectQuestions(int numberOfQuestions, Student student) {
-        List<Question> unseenOrIncorrectQuestions = new ArrayList<>();
+        RevisionSelectionEvent event = new RevisionSelectionEvent();
+        event.begin();
+        BitSet history = studentHistory.get(student);
+        int[] selectedIds;
+        int available;
+        int seenCount = 0;
+        if (history == null) {
+            available = poolIdCount;
+            selectedIds = available < numberOfQuestions ? null
+                    : unseenIds(new BitSet(), available, sampler.sampleIndices(available, numberOfQuestions));
+        } else {
+            synchronized (history) {
+                BitSet incorrect = incorrectHistory.get(student);
+                if (incorrect == null) {
+                    incorrect = new BitSet();
+                }
+                // The history only has ids of the pool without repeated positions, and ids after the pool
+                int poolSize = questionPool.size();
+                int incorrectCount = countBelow(incorrect, poolSize);
+                seenCount = countBelow(history, poolSize);
+                int unseenCount = poolIdCount - seenCount;
+                available = incorrectCount + unseenCount;
+                if (available < numberOfQuestions) {
+                    selectedIds = null;
+                } else if (incorrectCount == 0) {
+                    selectedIds = unseenIds(history, unseenCount, sampler.sampleIndices(unseenCount, numberOfQuestions));
+                } else {
+                    int[] ranks = sampler.sampleTwoGroups(incorrectCount, INCORRECT_QUESTION_WEIGHT,
+                            unseenCount, UNSEEN_QUESTION_WEIGHT, numberOfQuestions);
+                    selectedIds = incorrectAndUnseenIds(incorrect, incorrectCount, history, unseenCount, ranks);
+                }
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.studentId = studentId(student);
+            event.poolSize = questionPool.size();
+            event.historySize = seenCount;
+            event.eligibleCount = available;
+            event.questionCount = numberOfQuestions;
+            event.commit();
+        }
+        if (selectedIds == null) {
+            throw new IllegalArgumentException("Not enough unseen or incorrectly answered questions.");
+        }
 
-        List<Question> history = studentHistory.getOrDefault(student, new ArrayList<>());
-        for (Question question : questionPool) {
-            if (!history.contains(question)) {
-                unseenOrIncorrectQuestions.add(question);
+        List<Question> unseenOrIncorrectQuestions = new ArrayList<>(numberOfQuestions);
+        for (int id : selectedIds) {
+            unseenOrIncorrectQuestions.add(questionRegistry.get(id));
+        }
+        return unseenOrIncorrectQuestions;
+    }
+
+    private static int countBelow(BitSet ids, int end) {
+        int count = ids.cardinality();
+        for (int id = ids.nextSetBit(end); id >= 0; id = ids.nextSetBit(id + 1)) {
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Turns the ranks of the two groups of {@link QuestionSampler#sampleTwoGroups} into ids: the ranks below
+     * the number of incorrect questions are ranks among the incorrect ids, and the others among the unseen ids.
+     */
+    private int[] incorrectAndUnseenIds(BitSet incorrect, int incorrectCount, BitSet history, int unseenCount,
+                                        int[] ranks) {
+        int[] incorrectRanks = new int[ranks.length];
+        int[] unseenRanks = new int[ranks.length];
+        int incorrectSelected = 0;
+        int unseenSelected = 0;
+        for (int rank : ranks) {
+            if (rank < incorrectCount) {
+                incorrectRanks[incorrectSelected++] = rank;
+            } else {
+                unseenRanks[unseenSelected++] = rank - incorrectCount;
             }
         }
+        int poolSize = questionPool.size();
+        int[] incorrectIds = sampleIds(Arrays.copyOf(incorrectRanks, incorrectSelected), incorrectCount, poolSize,
+                id -> incorrect.get(id), id -> incorrect.nextSetBit(id));
+        int[] unseenIds = unseenIds(history, unseenCount, Arrays.copyOf(unseenRanks, unseenSelected));
 
-        if (unseenOrIncorrectQuestions.size() < numberOfQuestions) {
-            throw new IllegalArgumentException("Not enough unseen or incorrectly answered questions.");
+        // The ids of each group are in random order, so they keep the order of their group in the selection
+        int[] ids = new int[ranks.length];
+        int nextIncorrect = 0;
+        int nextUnseen = 0;
+        for (int i = 0; i < ranks.length; i++) {
+            ids[i] = ranks[i] < incorrectCount ? incorrectIds[nextIncorrect++] : unseenIds[nextUnseen++];
         }
+        return ids;
+    }
 
-        Collections.shuffle(unseenOrIncorrectQuestions);
-        return unseenOrIncorrectQuestions.subList(0, numberOfQuestions);
+    /**
+     * Returns distinct ids of the pool the student has not seen, one for each of the given ranks.
+     */
+    private int[] unseenIds(BitSet history, int unseenCount, int[] ranks) {
+        int poolSize = questionPool.size();
+        return sampleIds(ranks, unseenCount, poolSize, id -> !history.get(id) && !repeatedPoolIds.get(id), id -> {
+            for (id = history.nextClearBit(id); id < poolSize; id = history.nextClearBit(id + 1)) {
+                if (!repeatedPoolIds.get(id)) {
+                    return id;
+                }
+            }
+            return -1;
+        });
+    }
+
+    /**
+     * Selects distinct ids of a set in random order, one for each of the given ranks, which are distinct
+     * random ranks in random order. If most ids up to the bound are in the set, random ids are drawn until
+     * enough are in the set, so the cost does not depend on the size of the set. Otherwise the set is small,
+     * and the ids with the given ranks are found with one pass over it.
+     *
+     * @param ranks The ranks of the ids among the ids of the set.
+     * @param size The number of ids in the set.
+     * @param bound The ids of the set are below it.
+     * @param contains Tells if an id is in the set.
+     * @param next Returns the first id of the set from the given one, or -1 if there are no more.
+     */
+    private int[] sampleIds(int[] ranks, int size, int bound, IntPredicate contains, IntUnaryOperator next) {
+        if (2 * ranks.length <= size && SPARSE_SET_RATIO * (long) size >= bound) {
+            return sampler.sampleAccepted(bound, ranks.length, size, contains);
+        }
+        // The ranks are sorted with their positions in the low bits, to put each id in the position of its rank
+        long[] sorted = new long[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            sorted[i] = (long) ranks[i] << 32 | i;
+        }
+        Arrays.sort(sorted);
+        int[] ids = new int[ranks.length];
+        int id = next.applyAsInt(0);
+        int rank = 0;
+        for (long entry : sorted) {
+            for (int target = (int) (entry >>> 32); rank < target; rank++) {
+                id = next.applyAsInt(id + 1);
+            }
+            ids[(int) entry] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Takes the quiz and returns its score: the number of questions answered correctly, as checked by
+     * {@link #gradeQuiz(Student, List, List)}, divided by the number of questions.
+     *
+     * @param student The student taking the quiz.
+     * @param questions The list of questions in the quiz.
+     * @param answers The student's answers to the questions.
+     * @return The score the student achieved in the quiz.
+     */
+    @Override
+    public double takeQuiz(Student student, List<Question> questions, List<String> answers) {
+        return (double) gradeQuiz(student, questions, answers).cardinality() / questions.size();
+    }
+
+    /**
+     * Takes the quiz like {@link #takeQuiz(Student, List, List)}, and returns which questions were answered
+     * correctly, so the attempt can be copied to the history of another factory without checking the answers again.
+     *
+     * @param student The student taking the quiz.
+     * @param questions The list of questions in the quiz.
+     * @param answers The student's answers to the questions.
+     * @return A BitSet where the bit i is set if the question in position i was answered correctly.
+     * @throws IllegalStateException if the student cannot take this type of quiz now.
+     */
+    public final BitSet gradeQuiz(Student student, List<Question> questions, List<String> answers) {
+        long start = QuizMetrics.start();
+        QuizSubmissionEvent event = new QuizSubmissionEvent();
+        event.begin();
+        double score = Double.NaN;
+        try {
+            Statistics stats = student.getStatistics();
+            int attempt = reserveAttempt(stats);
+            BitSet correct;
+            try {
+                correct = checkAnswers(questions, answers);
+
+                score = (double) correct.cardinality() / questions.size();
+
+                recordAnsweredQuestions(student, questions, correct);
+            } catch (RuntimeException e) {
+                cancelAttempt(stats);
+                throw e;
+            }
+
+            commitAttempt(stats, score);
+            recordItemStatistics(questions, correct, score);
+
+            double recorded = score;
+            notifyListeners(listener -> notifyScoreRecorded(listener, student, attempt, recorded));
+
+            return correct;
+        } catch (RuntimeException e) {
+            score = Double.NaN;
+            metrics.recordFailure(Operation.TAKE_QUIZ);
+            throw e;
+        } finally {
+            metrics.record(Operation.TAKE_QUIZ, start);
+            commitSubmissionEvent(event, getQuizType(), student, questions, score);
+        }
+    }
+
+    /**
+     * Returns the type of the quiz, "regular" or "revision", used in the Flight Recorder events.
+     *
+     * @return The type of the quiz.
+     */
+    protected abstract String getQuizType();
+
+    /**
+     * Reserves an attempt of this type of quiz for the student, before the answers are checked.
+     *
+     * @param stats The statistics of the student taking the quiz.
+     * @return The number of attempts of this type before this one.
+     * @throws IllegalStateException if the student cannot take this type of quiz now.
+     */
+    protected abstract int reserveAttempt(Statistics stats);
+
+    /**
+     * Releases an attempt reserved by {@link #reserveAttempt(Statistics)} when the answers cannot be graded.
+     *
+     * @param stats The statistics of the student taking the quiz.
+     */
+    protected abstract void cancelAttempt(Statistics stats);
+
+    /**
+     * Records the score of an attempt reserved by {@link #reserveAttempt(Statistics)}.
+     *
+     * @param stats The statistics of the student taking the quiz.
+     * @param score The score of the attempt.
+     */
+    protected abstract void commitAttempt(Statistics stats, double score);
+
+    /**
+     * Tells a listener that the score of an attempt of this type of quiz was recorded.
+     *
+     * @param listener The listener to notify.
+     * @param student The student who took the quiz.
+     * @param attempt The number of attempts of this type before this one.
+     * @param score The score of the attempt.
+     */
+    protected abstract void notifyScoreRecorded(QuizListener listener, Student student, int attempt, double score);
+
+    /**
+     * Counts how many answers of a quiz attempt are correct.
+     *
+     * @param questions The list of questions in the quiz.
+     * @param answers The student's answers to the questions.
+     * @return The number of correct answers.
+     */
+    protected int countCorrectAnswers(List<Question> questions, List<String> answers) {
+        return checkAnswers(questions, answers).cardinality();
+    }
+
+    /**
+     * Checks the answers of a quiz attempt, keeping which questions were answered correctly.
+     *
+     * @param questions The list of questions in the quiz.
+     * @param answers The student's answers to the questions.
+     * @return A BitSet where the bit i is set if the question in position i was answered correctly.
+     */
+    protected BitSet checkAnswers(List<Question> questions, List<String> answers) {
+        AnswerGradingEvent event = new AnswerGradingEvent();
+        event.begin();
+        BitSet correct = new BitSet(questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            long start = QuizMetrics.startSampled();
+            boolean answeredCorrectly = question.checkAnswer(answers.get(i));
+            metrics.recordSampled(question.isMultipleChoice() ? Operation.CHECK_MULTIPLE_CHOICE
+                    : Operation.CHECK_FREE_RESPONSE, start);
+            if (answeredCorrectly) {
+                correct.set(i);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.questionCount = questions.size();
+            event.correctCount = correct.cardinality();
+            event.commit();
+        }
+        return correct;
+    }
+
+    /**
+     * Adds a graded attempt to the item statistics of this factory, or of the factory that created this quiz.
+     *
+     * @param questions The list of questions in the quiz.
+     * @param correct The positions of the questions answered correctly.
+     * @param score The score of the attempt.
+     */
+    void recordItemStatistics(List<Question> questions, BitSet correct, double score) {
+        QuizFactory owner = this;
+        while (owner.parent != null) {
+            owner = owner.parent;
+        }
+        owner.itemStatistics.recordAttempt(owner.questionRegistry.register(questions), correct, score);
+    }
+
+    /**
+     * Commits the Flight Recorder event of a call to takeQuiz, if it is enabled and above its threshold.
+     *
+     * @param event The event, begun when takeQuiz was called.
+     * @param quizType The type of the quiz, "regular" or "revision".
+     * @param student The student taking the quiz.
+     * @param questions The list of questions in the quiz.
+     * @param score The score, or NaN if the attempt failed.
+     */
+    void commitSubmissionEvent(QuizSubmissionEvent event, String quizType, Student student, List<Question> questions,
+                               double score) {
+        if (event.shouldCommit()) {
+            event.quizType = quizType;
+            event.studentId = studentId(student);
+            event.poolSize = questionPool.size();
+            event.historySize = student == null ? 0 : getSeenQuestionIds(student).cardinality();
+            event.questionCount = questions == null ? 0 : questions.size();
+            event.score = score;
+            event.succeeded = !Double.isNaN(score);
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the id of the student to use in the Flight Recorder events: the hash of its identity, so equal
+     * students get the same id in every run and nothing is kept to give it. Different students may share an id.
+     */
+    private static int studentId(Student student) {
+        return student == null ? 0 : student.hashCode();
+    }
+
+    /**
+     * Regrades the attempts of a group of students for the same quiz. The answers are checked column by column,
+     * so each question checks all the answers it received in a single call to {@link Question#checkAnswers(List)}.
+     * This method does not update the statistics or the history of the students.
+     *
+     * @param questions The list of questions in the quiz.
+     * @param answersPerStudent The answers of each student, in the same order as the questions.
+     * @return The score of each student, in the same order as the attempts.
+     * @throws IllegalArgumentException if the quiz has no questions or an attempt does not answer every question.
+     */
+    public double[] regradeQuiz(List<Question> questions, List<List<String>> answersPerStudent) {
+        if (questions == null || questions.isEmpty() || answersPerStudent == null) {
+            throw new IllegalArgumentException("Questions and answers cannot be empty.");
+        }
+        for (List<String> answers : answersPerStudent) {
+            if (answers.size() != questions.size()) {
+                throw new IllegalArgumentException("Every attempt must have one answer per question.");
+            }
+        }
+
+        int[] correctAnswers = new int[answersPerStudent.size()];
+        for (int q = 0; q < questions.size(); q++) {
+            final int column = q;
+            List<String> columnAnswers = new AbstractList<>() {
+                @Override
+                public String get(int student) {
+                    return answersPerStudent.get(student).get(column);
+                }
+
+                @Override
+                public int size() {
+                    return answersPerStudent.size();
+                }
+            };
+            BitSet correct = questions.get(q).checkAnswers(columnAnswers);
+            for (int s = correct.nextSetBit(0); s >= 0; s = correct.nextSetBit(s + 1)) {
+                correctAnswers[s]++;
+            }
+        }
+
+        double[] scores = new double[correctAnswers.length];
+        for (int s = 0; s < scores.length; s++) {
+            scores[s] = (double) correctAnswers[s] / questions.size();
+        }
+        return scores;
     }
 
     /**
@@ -126,31 +693,178 @@ public abstract class QuizFactory implements Quiz {
      *
      * @param seenQuestions Is a list of the Questions the student saw on the attempt.
      * @param student The student taking the quiz.
-     *
+     * @throws IllegalArgumentException if a question is null.
      */
 
     public void recordSeenQuestions(Student student, List<Question> seenQuestions) {
 
-        studentHistory.putIfAbsent(student, new ArrayList<>());
+        int[] ids = questionRegistry.register(seenQuestions);
 
-        List<Question> history = studentHistory.get(student);
+        long start = QuizMetrics.start();
+        boolean recorded = false;
+        while (!recorded) {
+            BitSet history = studentHistory.computeIfAbsent(student, s -> new BitSet());
+            synchronized (history) {
+                // The history may have been removed while waiting for the lock, then a new one is used
+                if (studentHistory.get(student) == history) {
+                    for (int id : ids) {
+                        history.set(id); // Add the question to the history
+                    }
+                    recorded = true;
+                }
+            }
+        }
+        metrics.record(Operation.HISTORY_UPDATE, start);
 
-        if (history != null) {
-            history.addAll(seenQuestions); // Add questions to the history
+        notifyListeners(listener -> listener.questionsSeen(student, seenQuestions));
+    }
 
-        } else {
-            throw new IllegalStateException("Failed to initialize question history for student.");
+    /**
+     * Method to record the questions a student has answered in a quiz attempt, and which ones were correct.
+     * The questions are added to the history, and the incorrect ones stay available for revision quizzes
+     * until the student answers them correctly.
+     *
+     * @param student The student taking the quiz.
+     * @param answeredQuestions The questions of the attempt.
+     * @param correct The positions of the questions answered correctly.
+     * @throws IllegalArgumentException if a question is null.
+     */
+
+    public void recordAnsweredQuestions(Student student, List<Question> answeredQuestions, BitSet correct) {
+        int[] ids = questionRegistry.register(answeredQuestions);
+
+        long start = QuizMetrics.start();
+        boolean recorded = false;
+        while (!recorded) {
+            BitSet history = studentHistory.computeIfAbsent(student, s -> new BitSet());
+            synchronized (history) {
+                // The history may have been removed while waiting for the lock, then a new one is used
+                if (studentHistory.get(student) == history) {
+                    BitSet incorrect = incorrectHistory.computeIfAbsent(student, s -> new BitSet());
+                    for (int i = 0; i < ids.length; i++) {
+                        history.set(ids[i]);
+                        incorrect.set(ids[i], !correct.get(i));
+                    }
+                    recorded = true;
+                }
+            }
+        }
+        metrics.record(Operation.HISTORY_UPDATE, start);
+
+        notifyListeners(listener -> listener.questionsAnswered(student, answeredQuestions, correct));
+    }
+
+    /**
+     * Method to get the ids of the questions a student has seen, given by the {@link #getQuestionRegistry() registry}
+     * of this factory. The id of a question of the pool is its position in the pool.
+     *
+     * @param student The student.
+     * @return A copy of the bitset of seen question ids, empty if the student has no history.
+     */
+
+    public BitSet getSeenQuestionIds(Student student) {
+        BitSet history = studentHistory.get(student);
+        if (history == null) {
+            return new BitSet();
+        }
+        synchronized (history) {
+            return (BitSet) history.clone();
+        }
+    }
+
+    /**
+     * Method to get the ids of the questions whose last answer by the student was incorrect, given by the
+     * {@link #getQuestionRegistry() registry} of this factory.
+     *
+     * @param student The student.
+     * @return A copy of the bitset of incorrect question ids, empty if the student has no incorrect answers.
+     */
+
+    public BitSet getIncorrectQuestionIds(Student student) {
+        BitSet history = studentHistory.get(student);
+        if (history == null) {
+            return new BitSet();
         }
+        synchronized (history) {
+            BitSet incorrect = incorrectHistory.get(student);
+            return incorrect == null ? new BitSet() : (BitSet) incorrect.clone();
+        }
+    }
+
+    /**
+     * Method to remove the history of a student from this factory, for example when the student is moved to
+     * a factory in another process. The statistics of the student are not changed. The questions recorded
+     * while the history is removed go to a new history.
+     *
+     * @param student The student.
+     */
+
+    public void removeStudent(Student student) {
+        BitSet history = studentHistory.get(student);
+        if (history == null) {
+            return;
+        }
+        synchronized (history) {
+            // Writers that find the history removed after taking its lock start a new one, with a new incorrect set
+            incorrectHistory.remove(student);
+            studentHistory.remove(student, history);
+        }
+    }
+
+    /**
+     * Method to get the questions of this quiz, which are the questions of the pool.
+     *
+     * @return An unmodifiable list with the questions.
+     */
+
+    public List<Question> getQuestions() {
+        return questionPool;
+    }
+
+    /**
+     * Method to get the registry that gives the ids of the history of this factory. The id of a question of
+     * the pool is its position in the pool, and the questions recorded that are not in the pool get the next ids.
+     *
+     * @return The registry of this factory.
+     */
+    public QuestionRegistry getQuestionRegistry() {
+        return questionRegistry;
+    }
+
+    /**
+     * Method to get the statistics of each question, updated with the attempts taken with this factory and
+     * with the quizzes it created, indexed by the ids of the {@link #getQuestionRegistry() registry} of this factory.
+     * A quiz created by a factory returns the statistics of that factory.
+     *
+     * @return The item statistics.
+     */
+    public ItemStatistics getItemStatistics() {
+        QuizFactory owner = parent;
+        return owner == null ? itemStatistics : owner.getItemStatistics();
     }
 
     /**
-     * Method to get the students history.
+     * Method to get the students history. The history is stored as bitsets, so this method builds
+     * a copy with the list of distinct questions each student has seen. The questions of the pool are
+     * returned as the objects of this pool, for example the wrappers of a {@link question.GradingCache}.
      *
-     * @return The msp with the student history.
+     * @return The map with the student history.
      */
 
     public Map<Student, List<Question>> getStudentHistory() {
-        return studentHistory;
+        Map<Student, List<Question>> history = new HashMap<>();
+        for (Map.Entry<Student, BitSet> entry : studentHistory.entrySet()) {
+            BitSet seen;
+            synchronized (entry.getValue()) {
+                seen = (BitSet) entry.getValue().clone();
+            }
+            List<Question> seenQuestions = new ArrayList<>(seen.cardinality());
+            for (int id = seen.nextSetBit(0); id >= 0; id = seen.nextSetBit(id + 1)) {
+                seenQuestions.add(questionRegistry.get(id));
+            }
+            history.put(entry.getKey(), seenQuestions);
+        }
+        return history;
     }
 }
 
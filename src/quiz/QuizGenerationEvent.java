@@ -0,0 +1,28 @@
+package quiz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for the generation of a regular quiz with {@link QuizFactory#generateQuiz(int)}.
+ * Like the other quiz events it is disabled by default, so it costs almost nothing until a recording enables it.
+ */
+@Name("quiz.QuizGeneration")
+@Label("Quiz Generation")
+@Category("Quiz")
+@Description("Selection of the questions of a regular quiz")
+@Enabled(false)
+@StackTrace(false)
+final class QuizGenerationEvent extends Event {
+
+    @Label("Pool Size")
+    int poolSize;
+
+    @Label("Question Count")
+    int questionCount;
+}
@@ -0,0 +1,53 @@
+package quiz;
+
+import question.Question;
+import student.Student;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Listener of the changes made by a {@link QuizFactory} to the history and the statistics of the students,
+ * for example to store them durably. The methods are called after the change has been made, on the thread
+ * that made it, so they should be fast and must be thread safe.
+ */
+public interface QuizListener {
+
+    /**
+     * Called after the questions are added to the history of the student.
+     *
+     * @param student The student who saw the questions.
+     * @param seenQuestions The questions added to the history.
+     */
+    void questionsSeen(Student student, List<Question> seenQuestions);
+
+    /**
+     * Called after the questions of a graded attempt are added to the history of the student. By default
+     * the correctness is ignored and the questions are handled as seen questions.
+     *
+     * @param student The student who answered the questions.
+     * @param answeredQuestions The questions added to the history.
+     * @param correct The positions of the questions answered correctly.
+     */
+    default void questionsAnswered(Student student, List<Question> answeredQuestions, BitSet correct) {
+        questionsSeen(student, answeredQuestions);
+    }
+
+    /**
+     * Called after the score of a regular quiz is recorded in the statistics of the student.
+     *
+     * @param student The student who took the quiz.
+     * @param attempt The number of the attempt, starting at 0.
+     * @param score The score of the quiz.
+     */
+    void regularQuizScoreRecorded(Student student, int attempt, double score);
+
+    /**
+     * Called after the score of a revision quiz is recorded in the statistics of the student.
+     *
+     * @param student The student who took the quiz.
+     * @param attempt The number of the attempt, starting at 0.
+     * @param score The score of the quiz.
+     */
+    void revisionQuizScoreRecorded(Student student, int attempt, double score);
+}
@@ -0,0 +1,182 @@
+package quiz;
+
+import question.Question;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A QuizPregenerator keeps a queue of question selections ready for the regular quizzes of one size, so when
+ * many students start an exam at the same time {@link QuizFactory#generateQuiz(int)} only takes a selection
+ * from the queue. The queue is refilled by a task on an executor, away from the requests, when it drops to half
+ * of its capacity. When it is empty the factory selects the questions itself, as without a pregenerator.
+ * <p>
+ * The queue is a lock-free linked queue with a counter of its size. Only one refill task runs at a time, so
+ * the queue never holds more than its capacity. Pregenerators are created with
+ * {@link QuizFactory#pregenerate(int, int, Executor)}, and keep the hits and misses of the queue to show how
+ * many quizzes were generated without waiting. A pregenerator closes itself the first time its executor
+ * rejects a refill, so the factory stops polling a queue that will stay empty.
+ */
+public final class QuizPregenerator implements AutoCloseable {
+
+    private final int numberOfQuestions;
+    private final int capacity;
+    private final Supplier<List<Question>> generator;
+    private final Executor executor;
+    private final Consumer<QuizPregenerator> onClose;
+    private final Queue<List<Question>> ready;
+    private final AtomicInteger size;
+    private final AtomicBoolean refilling;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a pregenerator and starts filling its queue.
+     *
+     * @param numberOfQuestions The number of questions of each selection.
+     * @param capacity The maximum number of selections in the queue.
+     * @param generator Creates a new selection, called from the executor.
+     * @param executor The executor that runs the refill task.
+     * @param onClose Called once with this pregenerator when it is closed.
+     */
+    QuizPregenerator(int numberOfQuestions, int capacity, Supplier<List<Question>> generator, Executor executor,
+                     Consumer<QuizPregenerator> onClose) {
+        this.numberOfQuestions = numberOfQuestions;
+        this.capacity = capacity;
+        this.generator = generator;
+        this.executor = executor;
+        this.onClose = onClose;
+        this.ready = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+        this.refilling = new AtomicBoolean();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        scheduleRefill();
+    }
+
+    /**
+     * Takes a ready selection from the queue, and starts a refill if the queue is at half of its capacity or less.
+     *
+     * @return A selection of questions, or null if the queue is empty.
+     */
+    List<Question> poll() {
+        List<Question> selection = ready.poll();
+        if (selection == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+            size.decrementAndGet();
+        }
+        if (size.get() <= capacity / 2) {
+            scheduleRefill();
+        }
+        return selection;
+    }
+
+    private void scheduleRefill() {
+        if (closed || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::refill);
+        } catch (RejectedExecutionException e) {
+            // The executor is shut down and will not run a refill again, so the factory selects the questions itself
+            refilling.set(false);
+            close();
+        }
+    }
+
+    private void refill() {
+        try {
+            while (!closed && size.get() < capacity) {
+                ready.offer(generator.get());
+                size.incrementAndGet();
+            }
+        } finally {
+            refilling.set(false);
+        }
+        // A poll may have found the queue low while this task was finishing
+        if (size.get() <= capacity / 2) {
+            scheduleRefill();
+        }
+    }
+
+    public int getNumberOfQuestions() {
+        return numberOfQuestions;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of selections ready in the queue.
+     *
+     * @return The number of ready selections.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of quizzes generated from the queue.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of quizzes generated while the queue was empty, whose questions were selected by the factory.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of the quizzes generated from the queue.
+     *
+     * @return The hit rate between 0 and 1, or 0 if no quiz has been generated.
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops refilling the queue and removes the pregenerator from its factory. The quizzes of this size are
+     * generated by the factory again. A refill in progress stops after its current selection.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            onClose.accept(this);
+            ready.clear();
+            size.set(0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Pregenerated quizzes of " + numberOfQuestions + " questions: " + getSize() + "/" + capacity
+                + " ready, hits " + getHits() + ", misses " + getMisses() + ", hit rate " + getHitRate();
+    }
+}
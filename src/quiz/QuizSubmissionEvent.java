@@ -0,0 +1,45 @@
+package quiz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a call to {@link Quiz#takeQuiz}, from the reservation of the attempt to the listeners.
+ */
+@Name("quiz.QuizSubmission")
+@Label("Quiz Submission")
+@Category("Quiz")
+@Description("Grading of a quiz attempt and update of the history and statistics of the student")
+@Enabled(false)
+@StackTrace(false)
+final class QuizSubmissionEvent extends Event {
+
+    @Label("Quiz Type")
+    String quizType;
+
+    @Label("Student Id")
+    @Description("Hash of the names and date of birth of the student, the same for equal students")
+    int studentId;
+
+    @Label("Pool Size")
+    int poolSize;
+
+    @Label("History Size")
+    @Description("Number of questions the student has seen, after the attempt")
+    int historySize;
+
+    @Label("Question Count")
+    int questionCount;
+
+    @Label("Score")
+    double score;
+
+    @Label("Succeeded")
+    @Description("False if the attempt was rejected or failed")
+    boolean succeeded;
+}
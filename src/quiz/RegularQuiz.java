@@ -23,6 +23,17 @@ public final class RegularQuiz extends QuizFactory {
         super(questionPool);
     }
 
+    /**
+     * Constructor for RegularQuiz that uses the given sampler to select the questions of the quizzes.
+     *
+     * @param questionPool The list of questions to use in the quiz.
+     * @param sampler The sampler used to select random questions.
+     */
+
+    public RegularQuiz(List<Question> questionPool, QuestionSampler sampler) {
+        super(questionPool, sampler);
+    }
+
     /**
      * Creates a new instance of a RegularQuiz with a given list of questions.
      *
@@ -47,38 +58,43 @@ public final class RegularQuiz extends QuizFactory {
         throw new UnsupportedOperationException("RegularQuiz cannot generate a revision quiz.");
     }
 
+    @Override
+    protected String getQuizType() {
+        return "regular";
+    }
+
     /**
-     * Takes the quiz by comparing the students answers with the correct answers and updates the statistics.
+     * Reserves a regular attempt of the student.
      *
-     * @param student The student taking the quiz.
-     * @param questions The list of questions in the quiz.
-     * @param answers The student's answers to the questions.
-     * @return The score the student achieved in the quiz (as a percentage).
-     * @throws IllegalStateException if the student is not eligible to take more regular quizzes.
+     * @param stats The statistics of the student taking the quiz.
+     * @return The number of regular attempts before this one.
+     * @throws IllegalStateException if the student is not eligible to take more regular quizzes, or another
+     * quiz of the student, of either type, is being taken at the same time.
      */
-
     @Override
-    public double takeQuiz(Student student, List<Question> questions, List<String> answers) {
-        Statistics stats = student.getStatistics();
-
-        if (!stats.canTakeRegularQuiz()) {
-            throw new IllegalStateException("Student cannot take more regular quizzes. Final verdict: " + stats.getVerdict());
-        }
-
-        int correctAnswers = 0;
-        for (int i = 0; i < questions.size(); i++) {
-            if (questions.get(i).checkAnswer(answers.get(i))) {
-                correctAnswers++;
+    protected int reserveAttempt(Statistics stats) {
+        if (!stats.reserveRegularAttempt()) {
+            if (stats.canTakeRegularQuiz()) {
+                throw new IllegalStateException("Student already has a quiz in progress.");
             }
+            throw new IllegalStateException("Student cannot take more regular quizzes. Final verdict: " + stats.getVerdict());
         }
+        return stats.getRegularAttempts(); // Does not change while the attempt is reserved
+    }
 
-        double score = (double) correctAnswers / questions.size();
-
-        recordSeenQuestions(student, questions);
+    @Override
+    protected void cancelAttempt(Statistics stats) {
+        stats.cancelRegularAttempt();
+    }
 
-        student.getStatistics().recordRegularQuizScore(score);
+    @Override
+    protected void commitAttempt(Statistics stats, double score) {
+        stats.commitRegularAttempt(score);
+    }
 
-        return score;
+    @Override
+    protected void notifyScoreRecorded(QuizListener listener, Student student, int attempt, double score) {
+        listener.regularQuizScoreRecorded(student, attempt, score);
     }
 
 }
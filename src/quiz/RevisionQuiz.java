@@ -2,6 +2,7 @@ package quiz;
 
 import question.Question;
 import student.Student;
+import statistics.Statistics;
 import java.util.List;
 
 /**
@@ -25,6 +26,17 @@ public final class RevisionQuiz extends QuizFactory {
 
     }
 
+    /**
+     * Constructor for creating a RevisionQuiz that uses the given sampler to select the revision questions.
+     *
+     * @param questionPool The pool of questions from which the revision quiz is created.
+     * @param student The student taking the revision quiz.
+     * @param sampler The sampler used to select random questions.
+     */
+    public RevisionQuiz(List<Question> questionPool, Student student, QuestionSampler sampler) {
+        super(questionPool, sampler);
+    }
+
     /**
      * This method cannot be used in the context of a RevisionQuiz, as revision quizzes
      * cannot generate regular quizzes. It will always throw an exception.
@@ -52,38 +64,43 @@ public final class RevisionQuiz extends QuizFactory {
         return new RevisionQuiz(revisionQuestions, student);
     }
 
+    @Override
+    protected String getQuizType() {
+        return "revision";
+    }
+
     /**
-     * Allows the student to take the revision quiz by checking the answers and calculating the score.
-     * After the quiz is taken, it tracks the questions seen and updates the student's statistics.
+     * Reserves a revision attempt of the student.
      *
-     * @param student The student taking the quiz.
-     * @param questions The list of questions in the quiz.
-     * @param answers The student answers for the quiz.
-     * @return The score the student achieved.
-     * @throws IllegalStateException if the student has already exceeded the allowed number of revision attempts.
+     * @param stats The statistics of the student taking the quiz.
+     * @return The number of revision attempts before this one.
+     * @throws IllegalStateException if the student has already exceeded the allowed number of revision attempts,
+     * or another quiz of the student, of either type, is being taken at the same time.
      */
-
     @Override
-    public double takeQuiz(Student student, List<Question> questions, List<String> answers) {
-
-        if (!student.getStatistics().canTakeRevisionQuiz()) {
-            throw new IllegalStateException("Cannot take more revision quizzes. Final verdict: " + student.getStatistics().getVerdict());
-        }
-
-        int correctAnswers = 0;
-        for (int i = 0; i < questions.size(); i++) {
-            if (questions.get(i).checkAnswer(answers.get(i))) {
-                correctAnswers++;
+    protected int reserveAttempt(Statistics stats) {
+        if (!stats.reserveRevisionAttempt()) {
+            if (stats.canTakeRevisionQuiz()) {
+                throw new IllegalStateException("Student already has a quiz in progress.");
             }
+            throw new IllegalStateException("Cannot take more revision quizzes. Final verdict: " + stats.getVerdict());
         }
+        return stats.getRevisionAttempts(); // Does not change while the attempt is reserved
+    }
 
-        double score = (double) correctAnswers / questions.size();
-
-        recordSeenQuestions(student, questions);
+    @Override
+    protected void cancelAttempt(Statistics stats) {
+        stats.cancelRevisionAttempt();
+    }
 
-        student.getStatistics().recordRevisionQuizScore(score);
+    @Override
+    protected void commitAttempt(Statistics stats, double score) {
+        stats.commitRevisionAttempt(score);
+    }
 
-        return score;
+    @Override
+    protected void notifyScoreRecorded(QuizListener listener, Student student, int attempt, double score) {
+        listener.revisionQuizScoreRecorded(student, attempt, score);
     }
 
 }
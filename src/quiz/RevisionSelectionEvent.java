@@ -0,0 +1,39 @@
+package quiz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for the selection of the unseen and incorrect questions of a revision quiz.
+ */
+@Name("quiz.RevisionSelection")
+@Label("Revision Selection")
+@Category("Quiz")
+@Description("Scan of the history of a student and selection of the questions of a revision quiz")
+@Enabled(false)
+@StackTrace(false)
+final class RevisionSelectionEvent extends Event {
+
+    @Label("Student Id")
+    @Description("Hash of the names and date of birth of the student, the same for equal students")
+    int studentId;
+
+    @Label("Pool Size")
+    int poolSize;
+
+    @Label("History Size")
+    @Description("Number of questions of the pool the student has seen")
+    int historySize;
+
+    @Label("Eligible Questions")
+    @Description("Number of unseen or incorrectly answered questions in the pool")
+    int eligibleCount;
+
+    @Label("Question Count")
+    int questionCount;
+}
@@ -0,0 +1,263 @@
+package quiz;
+
+import metrics.LatencyHistogram;
+import question.Question;
+import student.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The SubmissionScheduler runs quiz submissions on a fixed number of worker threads, so a burst of submissions
+ * at a deadline waits in a queue instead of overloading the machine. Regular quizzes decide the verdict of the
+ * students, so they have their own queue and are taken before revision quizzes: out of every
+ * {@link #REVISION_TURN} submissions started while both queues are waiting, only one is a revision, so revisions
+ * are delayed under load but never starved.
+ * <p>
+ * Both queues are bounded. When the queue of a submission is full the submission is rejected at once with a
+ * {@link RejectedExecutionException}, so the caller can ask the student to retry instead of waiting without
+ * limit. The scheduler keeps the depth of each queue, the time the submissions wait in it, and how many were
+ * rejected.
+ */
+public final class SubmissionScheduler implements AutoCloseable {
+
+    // One in this number of submissions is taken from the revision queue when both queues are waiting
+    public static final int REVISION_TURN = 8;
+
+    /**
+     * The priority of a submission, in the order the queues are served.
+     */
+    public enum Priority {
+        REGULAR,
+        REVISION
+    }
+
+    private final List<BlockingQueue<Submission<?>>> queues;
+    private final LatencyHistogram[] waitTimes;
+    private final LongAdder[] rejected;
+    private final LongAdder[] completed;
+    // One permit for each queued submission, and one for each worker when the scheduler is closed
+    private final Semaphore queued;
+    private final AtomicLong turns;
+    private final List<Thread> workers;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a scheduler and starts its workers.
+     *
+     * @param workers The number of worker threads, usually the number of processors.
+     * @param regularCapacity The maximum number of regular quiz submissions waiting.
+     * @param revisionCapacity The maximum number of revision quiz submissions waiting.
+     * @throws IllegalArgumentException if a value is less than 1.
+     */
+    public SubmissionScheduler(int workers, int regularCapacity, int revisionCapacity) {
+        if (workers < 1 || regularCapacity < 1 || revisionCapacity < 1) {
+            throw new IllegalArgumentException("The workers and the capacities must be at least 1.");
+        }
+        int priorities = Priority.values().length;
+        this.queues = List.of(new ArrayBlockingQueue<>(regularCapacity), new ArrayBlockingQueue<>(revisionCapacity));
+        this.waitTimes = new LatencyHistogram[priorities];
+        this.rejected = new LongAdder[priorities];
+        this.completed = new LongAdder[priorities];
+        for (int i = 0; i < priorities; i++) {
+            waitTimes[i] = new LatencyHistogram();
+            rejected[i] = new LongAdder();
+            completed[i] = new LongAdder();
+        }
+        this.queued = new Semaphore(0);
+        this.turns = new AtomicLong();
+        this.workers = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "submission-worker-" + i);
+            worker.setDaemon(true);
+            this.workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Schedules a quiz attempt. Attempts of a {@link RevisionQuiz} have revision priority, and the rest regular priority.
+     *
+     * @param quiz The quiz that grades the attempt.
+     * @param student The student taking the quiz.
+     * @param questions The list of questions in the quiz.
+     * @param answers The student's answers to the questions.
+     * @return A future completed with the score, or with the exception thrown by {@link Quiz#takeQuiz}.
+     * @throws RejectedExecutionException if the queue of the attempt is full or the scheduler is closed.
+     */
+    public CompletableFuture<Double> submit(Quiz quiz, Student student, List<Question> questions, List<String> answers) {
+        Priority priority = quiz instanceof RevisionQuiz ? Priority.REVISION : Priority.REGULAR;
+        return submit(priority, () -> quiz.takeQuiz(student, questions, answers));
+    }
+
+    /**
+     * Schedules a task with the given priority, for example a submission that also updates other quizzes.
+     *
+     * @param priority The priority of the task.
+     * @param task The task, run on a worker thread.
+     * @param <T> The type of the result.
+     * @return A future completed with the result of the task, or with the exception it threw.
+     * @throws RejectedExecutionException if the queue of the priority is full or the scheduler is closed.
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<T> task) {
+        if (priority == null || task == null) {
+            throw new IllegalArgumentException("Priority and task cannot be null.");
+        }
+        if (closed) {
+            throw new RejectedExecutionException("The submission scheduler is closed.");
+        }
+        Submission<T> submission = new Submission<>(priority, task);
+        if (!queues.get(priority.ordinal()).offer(submission)) {
+            rejected[priority.ordinal()].increment();
+            throw new RejectedExecutionException("Too many " + priority.name().toLowerCase() + " submissions waiting, try again later.");
+        }
+        queued.release();
+        return submission.result;
+    }
+
+    private void work() {
+        while (true) {
+            queued.acquireUninterruptibly();
+            Submission<?> submission = next();
+            if (submission == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            int priority = submission.priority.ordinal();
+            waitTimes[priority].record(System.nanoTime() - submission.queuedNanos);
+            submission.run();
+            completed[priority].increment();
+        }
+    }
+
+    /**
+     * Takes the next submission: from the regular queue, except in the revision turns, and from the other queue
+     * if that one is empty.
+     */
+    private Submission<?> next() {
+        boolean revisionTurn = turns.getAndIncrement() % REVISION_TURN == REVISION_TURN - 1;
+        BlockingQueue<Submission<?>> first = queues.get((revisionTurn ? Priority.REVISION : Priority.REGULAR).ordinal());
+        BlockingQueue<Submission<?>> second = queues.get((revisionTurn ? Priority.REGULAR : Priority.REVISION).ordinal());
+        Submission<?> submission = first.poll();
+        return submission != null ? submission : second.poll();
+    }
+
+    /**
+     * Returns the number of submissions of the given priority waiting to start.
+     *
+     * @param priority The priority.
+     * @return The depth of the queue.
+     */
+    public int getQueueDepth(Priority priority) {
+        return queues.get(priority.ordinal()).size();
+    }
+
+    /**
+     * Returns the time the started submissions of the given priority waited in their queue.
+     *
+     * @param priority The priority.
+     * @return The histogram of the waiting times.
+     */
+    public LatencyHistogram getWaitTime(Priority priority) {
+        return waitTimes[priority.ordinal()];
+    }
+
+    /**
+     * Returns the number of submissions of the given priority rejected because their queue was full.
+     *
+     * @param priority The priority.
+     * @return The number of rejected submissions.
+     */
+    public long getRejected(Priority priority) {
+        return rejected[priority.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of submissions of the given priority that have finished, successfully or not.
+     *
+     * @param priority The priority.
+     * @return The number of finished submissions.
+     */
+    public long getCompleted(Priority priority) {
+        return completed[priority.ordinal()].sum();
+    }
+
+    /**
+     * Generates a report with the queue depth, waiting time, completed and rejected submissions of each priority.
+     *
+     * @return A formatted string with one line per priority.
+     */
+    public String generateReport() {
+        StringBuilder report = new StringBuilder();
+        for (Priority priority : Priority.values()) {
+            LatencyHistogram wait = getWaitTime(priority);
+            report.append(String.format("submissions.%s: queued %d, completed %d, rejected %d, wait p50 %.1f us, "
+                            + "p99 %.1f us, max %.1f us%n", priority.name().toLowerCase(), getQueueDepth(priority),
+                    getCompleted(priority), getRejected(priority), wait.getPercentileNanos(50) / 1000.0,
+                    wait.getPercentileNanos(99) / 1000.0, wait.getMaxNanos() / 1000.0));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Stops accepting submissions, and waits for the workers to finish the submissions already queued.
+     * Submissions that arrive while the scheduler is closing are completed with a {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queued.release(workers.size());
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        // Submissions queued while the scheduler was closing
+        for (BlockingQueue<Submission<?>> queue : queues) {
+            for (Submission<?> submission = queue.poll(); submission != null; submission = queue.poll()) {
+                submission.result.completeExceptionally(new RejectedExecutionException("The submission scheduler is closed."));
+            }
+        }
+    }
+
+    /**
+     * A queued task and the future of its result.
+     */
+    private static final class Submission<T> {
+        private final Priority priority;
+        private final Supplier<T> task;
+        private final CompletableFuture<T> result;
+        private final long queuedNanos;
+
+        private Submission(Priority priority, Supplier<T> task) {
+            this.priority = priority;
+            this.task = task;
+            this.result = new CompletableFuture<>();
+            this.queuedNanos = System.nanoTime();
+        }
+
+        private void run() {
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
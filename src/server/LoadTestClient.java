@@ -0,0 +1,169 @@
+package server;
+
+import question.FreeResponseQuestion;
+import question.Question;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A load test client for the {@link QuizServer}. Each session registers a student, generates a regular quiz,
+ * submits the answers and reads the statistics, and all the sessions run at the same time.
+ * At the end it prints the throughput and the latency percentiles of the requests.
+ * <p>
+ * Usage: {@code java server.LoadTestClient [sessions] [questions] [url]}. When no url is given,
+ * a server with a generated pool of 1000 questions is started in the same JVM.
+ */
+public final class LoadTestClient {
+
+    private static final int REQUESTS_PER_SESSION = 4;
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final AtomicLongArray latencies;
+    private final AtomicInteger completedRequests;
+    private final AtomicInteger failedSessions;
+
+    /**
+     * Constructs a client for the server at the given url.
+     *
+     * @param baseUrl The url of the server, for example http://localhost:8080
+     * @param sessions The number of sessions that will be run.
+     * @param executor The executor used by the HTTP client.
+     */
+    public LoadTestClient(String baseUrl, int sessions, ExecutorService executor) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build();
+        this.latencies = new AtomicLongArray(sessions * REQUESTS_PER_SESSION);
+        this.completedRequests = new AtomicInteger();
+        this.failedSessions = new AtomicInteger();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int questions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        QuizServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            List<Question> pool = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                pool.add(new FreeResponseQuestion("Load test question " + i, "Answer " + i));
+            }
+            server = new QuizServer(pool, 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        ExecutorService executor = QuizServer.newRequestExecutor();
+        try {
+            LoadTestClient loadTest = new LoadTestClient(url, sessions, executor);
+            long start = System.nanoTime();
+            loadTest.run(sessions, questions, executor);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(loadTest.report(seconds));
+        } finally {
+            executor.shutdownNow();
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    /**
+     * Runs all the sessions at the same time and waits for them to finish.
+     *
+     * @param sessions The number of sessions.
+     * @param questions The number of questions of each quiz.
+     * @param executor The executor that runs the sessions.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void run(int sessions, int questions, ExecutorService executor) throws InterruptedException {
+        List<Future<?>> futures = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            final int session = i;
+            futures.add(executor.submit(() -> runSession(session, questions)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failedSessions.incrementAndGet();
+            }
+        }
+    }
+
+    private void runSession(int session, int questions) {
+        String student = firstLine(send("POST", "/students?firstName=Load&lastName=Student" + session
+                + "&dateOfBirth=2000-01-01", null)).substring("student: ".length());
+        String quiz = firstLine(send("POST", "/quizzes?student=" + student + "&questions=" + questions, null))
+                .substring("quiz: ".length());
+        send("POST", "/quizzes/" + quiz + "/answers", String.join("\n", Collections.nCopies(questions, "answer")));
+        send("GET", "/statistics?student=" + student, null);
+    }
+
+    private String send(String method, String path, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies.set(completedRequests.getAndIncrement(), System.nanoTime() - start);
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Request " + path + " failed: " + response.body());
+            }
+            return response.body();
+        } catch (IOException e) {
+            throw new IllegalStateException("Request " + path + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Request " + path + " interrupted", e);
+        }
+    }
+
+    private static String firstLine(String text) {
+        int end = text.indexOf('\n');
+        return end < 0 ? text : text.substring(0, end);
+    }
+
+    /**
+     * Builds a report with the throughput and the latency percentiles of the completed requests.
+     *
+     * @param seconds The duration of the test.
+     * @return The text of the report.
+     */
+    public String report(double seconds) {
+        int completed = Math.min(completedRequests.get(), latencies.length());
+        long[] sorted = new long[completed];
+        for (int i = 0; i < completed; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+
+        StringBuilder report = new StringBuilder();
+        report.append("Requests: ").append(completed).append(" (failed sessions: ").append(failedSessions.get()).append(")\n");
+        report.append(String.format("Throughput: %.1f requests/s%n", completed / seconds));
+        for (double percentile : new double[]{0.5, 0.99, 0.999}) {
+            long latency = completed == 0 ? 0 : sorted[Math.min(completed - 1, (int) (percentile * completed))];
+            report.append(String.format("p%s latency: %.2f ms%n", percentile * 100, latency / 1e6));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,446 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.QuizMetrics;
+import question.Question;
+import quiz.Quiz;
+import quiz.QuizFactory;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import quiz.SubmissionScheduler;
+import statistics.CohortStatistics;
+import student.Student;
+import student.StudentRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The QuizServer exposes the quiz system over HTTP using the server included in the JDK.
+ * Each request runs in its own virtual thread when the JVM supports them (Java 21 or newer), so many
+ * thousands of quiz sessions can wait at the same time without tuning a thread pool. On older JVMs
+ * it falls back to a cached thread pool. All the responses are plain text.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /students?firstName=..&lastName=..&dateOfBirth=yyyy-MM-dd} registers a student.</li>
+ *     <li>{@code POST /quizzes?student=ID&questions=N} generates a regular quiz.</li>
+ *     <li>{@code POST /revisions?student=ID&questions=N} generates a revision quiz.</li>
+ *     <li>{@code POST /quizzes/QUIZ/answers} submits the answers, one per line, and returns the score.</li>
+ *     <li>{@code GET /statistics?student=ID} returns the statistics of the student.</li>
+ *     <li>{@code GET /cohort} returns the statistics of all the students of the server together.</li>
+ *     <li>{@code GET /metrics} returns the latency and throughput of the quiz operations and the submission queues.</li>
+ * </ul>
+ * The metrics are also registered in the platform MBean server when the server starts.
+ * <p>
+ * The answers are graded by a {@link SubmissionScheduler} with one worker per processor, which serves regular
+ * quizzes before revision quizzes. When its queue is full the submission gets a 503 response and the quiz stays
+ * open, so the student can send the answers again. The quiz also stays open when the attempt is not recorded
+ * because the answers or the state of the student do not allow it. A submission that is not graded within a
+ * timeout also gets a 503 response, but the quiz is not opened again: the attempt may still be recorded, and
+ * the statistics of the student show whether it was.
+ * <p>
+ * A quiz that is not submitted is closed after a timeout, and the number of open quizzes is limited: when the
+ * limit is reached, new quizzes get a 503 response until some are submitted or closed.
+ */
+public final class QuizServer {
+
+    // Connections waiting to be accepted, large enough for many students connecting at the same time
+    private static final int BACKLOG = 4096;
+    // Submissions waiting to be graded before new ones are rejected
+    private static final int REGULAR_SUBMISSIONS = 4096;
+    private static final int REVISION_SUBMISSIONS = 1024;
+    // Time a quiz stays open waiting for the answers, and open quizzes before new ones are rejected
+    private static final Duration SESSION_TIMEOUT = Duration.ofHours(2);
+    private static final int MAX_SESSIONS = 100_000;
+    // Time a request waits for its submission to be graded
+    private static final Duration SUBMISSION_TIMEOUT = Duration.ofSeconds(30);
+    // Quizzes generated between two removals of the closed sessions
+    private static final int PURGE_INTERVAL = 1024;
+    // Longest time between two removals of the closed sessions when the maximum is reached
+    private static final Duration PURGE_PERIOD = Duration.ofSeconds(1);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SubmissionScheduler scheduler;
+    private final RegularQuiz regularQuiz;
+    private final RevisionQuiz revisionQuiz;
+    private final StudentRegistry students;
+    // Statistics of all the students registered in this server
+    private final CohortStatistics cohort;
+    private final Map<Long, QuizSession> sessions;
+    private final AtomicLong nextSession;
+    // Time of System.nanoTime() after which the closed sessions can be removed again when the maximum is reached
+    private final AtomicLong nextPurge;
+    private final long purgePeriodNanos;
+    private final long sessionTimeoutNanos;
+    private final int maxSessions;
+    private final long submissionTimeoutNanos;
+
+    /**
+     * Constructs a server for the given question pool. The server does not accept requests until it is started.
+     *
+     * @param questionPool The pool of questions used for all the quizzes.
+     * @param port The port to listen on, or 0 to use any free port.
+     * @throws IOException if the server cannot be bound to the port.
+     */
+    public QuizServer(List<Question> questionPool, int port) throws IOException {
+        this(questionPool, port, SESSION_TIMEOUT, MAX_SESSIONS);
+    }
+
+    /**
+     * Constructs a server for the given question pool, with the given limits for the open quizzes.
+     *
+     * @param questionPool The pool of questions used for all the quizzes.
+     * @param port The port to listen on, or 0 to use any free port.
+     * @param sessionTimeout The time a quiz stays open waiting for the answers.
+     * @param maxSessions The maximum number of open quizzes.
+     * @throws IOException if the server cannot be bound to the port.
+     * @throws IllegalArgumentException if the timeout is not positive or the maximum is less than 1.
+     */
+    public QuizServer(List<Question> questionPool, int port, Duration sessionTimeout, int maxSessions) throws IOException {
+        this(questionPool, port, sessionTimeout, maxSessions, SUBMISSION_TIMEOUT);
+    }
+
+    /**
+     * Constructs a server for the given question pool, with the given limits for the open quizzes and the time
+     * a submission waits to be graded.
+     *
+     * @param questionPool The pool of questions used for all the quizzes.
+     * @param port The port to listen on, or 0 to use any free port.
+     * @param sessionTimeout The time a quiz stays open waiting for the answers.
+     * @param maxSessions The maximum number of open quizzes.
+     * @param submissionTimeout The time a submission waits to be graded before it gets a 503 response.
+     * @throws IOException if the server cannot be bound to the port.
+     * @throws IllegalArgumentException if a timeout is not positive or the maximum is less than 1.
+     */
+    public QuizServer(List<Question> questionPool, int port, Duration sessionTimeout, int maxSessions,
+                      Duration submissionTimeout) throws IOException {
+        if (sessionTimeout == null || sessionTimeout.isNegative() || sessionTimeout.isZero()) {
+            throw new IllegalArgumentException("The session timeout must be positive.");
+        }
+        if (submissionTimeout == null || submissionTimeout.isNegative() || submissionTimeout.isZero()) {
+            throw new IllegalArgumentException("The submission timeout must be positive.");
+        }
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("The maximum number of sessions must be at least 1.");
+        }
+        this.sessionTimeoutNanos = sessionTimeout.toNanos();
+        this.maxSessions = maxSessions;
+        this.submissionTimeoutNanos = submissionTimeout.toNanos();
+        this.regularQuiz = new RegularQuiz(questionPool);
+        this.revisionQuiz = new RevisionQuiz(questionPool, null);
+        this.students = new StudentRegistry();
+        this.cohort = new CohortStatistics();
+        this.sessions = new ConcurrentHashMap<>();
+        this.nextSession = new AtomicLong();
+        // Quizzes expire within a timeout, so removing the closed ones more often than that frees few of them
+        this.purgePeriodNanos = Math.min(PURGE_PERIOD.toNanos(), sessionTimeoutNanos / 2);
+        this.nextPurge = new AtomicLong(System.nanoTime());
+        this.executor = newRequestExecutor();
+        this.scheduler = new SubmissionScheduler(Runtime.getRuntime().availableProcessors(),
+                REGULAR_SUBMISSIONS, REVISION_SUBMISSIONS);
+
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/students", exchange -> handle(exchange, "POST", this::registerStudent));
+        server.createContext("/quizzes", exchange -> {
+            if (exchange.getRequestURI().getPath().endsWith("/answers")) {
+                handle(exchange, "POST", this::submitAnswers);
+            } else {
+                handle(exchange, "POST", e -> generateQuiz(e, false));
+            }
+        });
+        server.createContext("/revisions", exchange -> handle(exchange, "POST", e -> generateQuiz(e, true)));
+        server.createContext("/statistics", exchange -> handle(exchange, "GET", this::statistics));
+        server.createContext("/cohort", exchange -> handle(exchange, "GET", e -> cohort.generateReport()));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET",
+                e -> QuizMetrics.getInstance().generateReport() + scheduler.generateReport()));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        QuizMetrics.registerMBean();
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting up to the given number of seconds for the requests in progress.
+     *
+     * @param delaySeconds The maximum time to wait for the requests in progress.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        scheduler.close();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates the executor that runs the requests, one virtual thread per request if the JVM supports it.
+     *
+     * @return The executor for the requests.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreads.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private String registerStudent(HttpExchange exchange) {
+        Map<String, String> params = queryParameters(exchange);
+        Date dateOfBirth;
+        try {
+            LocalDate date = LocalDate.parse(required(params, "dateOfBirth"));
+            dateOfBirth = Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("The date of birth must have the format yyyy-MM-dd.");
+        }
+        Student student = new Student(required(params, "firstName"), required(params, "lastName"), dateOfBirth, cohort);
+        return "student: " + students.intern(student) + "\n";
+    }
+
+    private String generateQuiz(HttpExchange exchange, boolean revision) {
+        Map<String, String> params = queryParameters(exchange);
+        Student student = student(params);
+        int numberOfQuestions = intParameter(params, "questions");
+
+        long now = System.nanoTime();
+        if (sessions.size() >= maxSessions) {
+            // Only one request in each period scans the sessions, the others are rejected at once
+            long purge = nextPurge.get();
+            if (now - purge >= 0 && nextPurge.compareAndSet(purge, now + purgePeriodNanos)) {
+                removeClosedSessions(now);
+            }
+            if (sessions.size() >= maxSessions) {
+                throw new RejectedExecutionException("Too many open quizzes, try again later.");
+            }
+        }
+
+        Quiz quiz = revision ? revisionQuiz.revise(student, numberOfQuestions) : regularQuiz.generateQuiz(numberOfQuestions);
+        List<Question> questions = ((QuizFactory) quiz).getQuestions();
+
+        long id = nextSession.incrementAndGet();
+        sessions.put(id, new QuizSession(student, questions, revision, now + sessionTimeoutNanos));
+        if (id % PURGE_INTERVAL == 0) {
+            removeClosedSessions(now);
+        }
+
+        StringBuilder response = new StringBuilder();
+        response.append("quiz: ").append(id).append("\n");
+        for (int i = 0; i < questions.size(); i++) {
+            response.append("question ").append(i + 1).append(": ").append(questions.get(i).getQuestionFormulation()).append("\n");
+        }
+        return response.toString();
+    }
+
+    private String submitAnswers(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String[] parts = path.split("/");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("The path must be /quizzes/QUIZ/answers.");
+        }
+        long id;
+        try {
+            id = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The quiz id must be a number.");
+        }
+        QuizSession session = sessions.remove(id);
+        if (session == null || session.isClosed(System.nanoTime())) {
+            throw new IllegalArgumentException("There is no open quiz with id " + id);
+        }
+
+        List<String> answers = new ArrayList<>(session.questions.size());
+        try (InputStream body = exchange.getRequestBody()) {
+            String text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            answers.addAll(Arrays.asList(text.split("\n", -1)));
+        }
+        while (answers.size() < session.questions.size()) {
+            answers.add("");
+        }
+        if (answers.size() > session.questions.size()) {
+            answers = answers.subList(0, session.questions.size());
+        }
+
+        List<String> sessionAnswers = answers;
+        double score;
+        try {
+            score = scheduler.submit(session.revision ? SubmissionScheduler.Priority.REVISION : SubmissionScheduler.Priority.REGULAR,
+                    () -> takeQuiz(session, sessionAnswers)).get(submissionTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            sessions.putIfAbsent(id, session);
+            throw e;
+        } catch (TimeoutException e) {
+            // The attempt may still be recorded, so the quiz is not opened again
+            throw new RejectedExecutionException("The answers are still being graded, check the statistics before taking the quiz again.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("The server is stopping, check the statistics before taking the quiz again.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // The quizzes check the answers and the state of the student before recording the attempt
+            if (cause instanceof IllegalArgumentException || cause instanceof IllegalStateException) {
+                sessions.putIfAbsent(id, session);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        }
+        return "score: " + score + "\n";
+    }
+
+    /**
+     * Grades the attempt with the quiz of its type, and copies it to the history of the other quiz.
+     */
+    private double takeQuiz(QuizSession session, List<String> answers) {
+        QuizFactory quiz = session.revision ? revisionQuiz : regularQuiz;
+        QuizFactory other = session.revision ? regularQuiz : revisionQuiz;
+        BitSet correct = quiz.gradeQuiz(session.student, session.questions, answers);
+        other.recordAnsweredQuestions(session.student, session.questions, correct);
+        return (double) correct.cardinality() / session.questions.size();
+    }
+
+    /**
+     * Removes the sessions whose timeout has passed.
+     */
+    private void removeClosedSessions(long now) {
+        sessions.values().removeIf(session -> session.isClosed(now));
+    }
+
+    private String statistics(HttpExchange exchange) {
+        return student(queryParameters(exchange)).getStatistics().generateStatistics();
+    }
+
+    private Student student(Map<String, String> params) {
+        return students.get(intParameter(params, "student"));
+    }
+
+    /**
+     * Runs the handler and sends its response. Invalid requests get a 400 response, operations not allowed by
+     * the state of the student get a 409 response, and submissions rejected because the server is busy get a
+     * 503 response.
+     */
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        int status = 200;
+        String response;
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                status = 405;
+                response = "Method not allowed, use " + method + "\n";
+            } else {
+                response = handler.handle(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = e.getMessage() + "\n";
+        } catch (IllegalStateException e) {
+            status = 409;
+            response = e.getMessage() + "\n";
+        } catch (RejectedExecutionException e) {
+            status = 503;
+            response = e.getMessage() + "\n";
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        } catch (RuntimeException e) {
+            status = 500;
+            response = "Internal error\n";
+        }
+
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> params, String name) {
+        try {
+            return Integer.parseInt(required(params, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The parameter " + name + " must be a number.");
+        }
+    }
+
+    /**
+     * A quiz that has been generated for a student and is waiting for the answers.
+     */
+    private static final class QuizSession {
+        private final Student student;
+        private final List<Question> questions;
+        private final boolean revision;
+        // System.nanoTime() after which the answers are not accepted
+        private final long deadline;
+
+        private QuizSession(Student student, List<Question> questions, boolean revision, long deadline) {
+            this.student = student;
+            this.questions = questions;
+            this.revision = revision;
+            this.deadline = deadline;
+        }
+
+        private boolean isClosed(long now) {
+            return now - deadline > 0;
+        }
+    }
+
+    /**
+     * Handles a request and returns the text of the response.
+     */
+    private interface Handler {
+        String handle(HttpExchange exchange) throws IOException;
+    }
+}
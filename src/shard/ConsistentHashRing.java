@@ -0,0 +1,117 @@
+package shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A ConsistentHashRing assigns keys to nodes. Each node is placed at many points (virtual nodes) of a ring of
+ * 64-bit hashes, and a key belongs to the first node found after the hash of the key. When a node is added only
+ * the keys that now fall on its points move to it, about 1/N of them, and the rest stay where they were.
+ * <p>
+ * The hash only depends on the bytes of the keys and of the node names, so every process that builds the ring
+ * with the same nodes in any order assigns the keys in the same way. The ring is not thread safe.
+ *
+ * @param <T> the type of the nodes
+ */
+public final class ConsistentHashRing<T> {
+
+    // Number of points of each node, enough to keep the share of each node within a few percent
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int virtualNodes;
+    private final NavigableMap<Long, T> ring;
+    private final List<T> nodes;
+
+    /**
+     * Constructs an empty ring with {@link #DEFAULT_VIRTUAL_NODES} points per node.
+     */
+    public ConsistentHashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param virtualNodes the number of points of each node
+     * @throws IllegalArgumentException if the number of points is less than 1
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Each node needs at least one virtual node.");
+        }
+        this.virtualNodes = virtualNodes;
+        this.ring = new TreeMap<>();
+        this.nodes = new ArrayList<>();
+    }
+
+    /**
+     * Adds a node to the ring.
+     *
+     * @param node the node
+     * @param name the name of the node, which decides its points, for example its address
+     * @throws IllegalArgumentException if the node or the name is null, or the node is already in the ring
+     */
+    public void add(T node, String name) {
+        if (node == null || name == null) {
+            throw new IllegalArgumentException("Node and name cannot be null.");
+        }
+        if (nodes.contains(node)) {
+            throw new IllegalArgumentException("The node is already in the ring: " + name);
+        }
+        nodes.add(node);
+        for (int i = 0; i < virtualNodes; i++) {
+            // On the rare collision of two points the node added first keeps it
+            ring.putIfAbsent(hash(name + "#" + i), node);
+        }
+    }
+
+    /**
+     * Returns the node a key belongs to.
+     *
+     * @param key the key
+     * @return the node of the key
+     * @throws IllegalStateException if the ring is empty
+     */
+    public T get(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("The ring has no nodes.");
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Returns the nodes of the ring, in the order they were added.
+     *
+     * @return an unmodifiable list with the nodes
+     */
+    public List<T> getNodes() {
+        return List.copyOf(nodes);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the UTF-8 bytes, with the final mix of MurmurHash3 so that similar keys, such as
+     * the points of a node, are spread over the whole ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,146 @@
+package shard;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The connections of the router to one shard. Each call takes an idle connection, or opens a new one, so calls
+ * for different students run at the same time, and the connection is kept for the next call when it ends.
+ * Connecting and waiting for each response are limited by a timeout, so a shard that hangs fails the call
+ * instead of blocking it, and the connection is dropped because its response may still arrive.
+ */
+final class ShardClient implements Closeable {
+
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+    private final Queue<Connection> idle;
+    private volatile boolean closed;
+
+    /**
+     * @param address The address of the shard.
+     * @param timeoutMillis The time to connect and to wait for each response, in milliseconds.
+     */
+    ShardClient(InetSocketAddress address, int timeoutMillis) {
+        this.address = address;
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ConcurrentLinkedQueue<>();
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Sends a request and reads its response.
+     *
+     * @param operation The operation of the request.
+     * @param request Writes the arguments of the request.
+     * @param response Reads the result.
+     * @param <T> The type of the result.
+     * @return The result.
+     * @throws IllegalArgumentException if the shard rejected the arguments.
+     * @throws IllegalStateException if the operation is not allowed by the state of the student.
+     * @throws UncheckedIOException if the shard cannot be reached, does not answer within the timeout, or failed.
+     */
+    <T> T call(byte operation, RequestWriter request, ResponseReader<T> response) {
+        if (closed) {
+            throw new IllegalStateException("The connection to the shard " + address + " is closed.");
+        }
+        Connection connection = idle.poll();
+        try {
+            if (connection == null) {
+                connection = new Connection(address, timeoutMillis);
+            }
+            connection.out.writeByte(operation);
+            request.write(connection.out);
+            connection.out.flush();
+
+            byte status = connection.in.readByte();
+            if (status == ShardProtocol.OK) {
+                T result = response.read(connection.in);
+                release(connection);
+                return result;
+            }
+            String message = connection.in.readUTF();
+            release(connection);
+            if (status == ShardProtocol.INVALID_ARGUMENT) {
+                throw new IllegalArgumentException(message);
+            }
+            if (status == ShardProtocol.INVALID_STATE) {
+                throw new IllegalStateException(message);
+            }
+            throw new UncheckedIOException(new IOException("Shard " + address + " failed: " + message));
+        } catch (SocketTimeoutException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new UncheckedIOException("Shard " + address + " did not answer within " + timeoutMillis + " ms.", e);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new UncheckedIOException("Shard " + address + " cannot be reached.", e);
+        }
+    }
+
+    private void release(Connection connection) {
+        idle.offer(connection);
+        if (closed) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Connection connection = idle.poll(); connection != null; connection = idle.poll()) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Writes the arguments of a request.
+     */
+    interface RequestWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the result of a response.
+     */
+    interface ResponseReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(InetSocketAddress address, int timeoutMillis) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeoutMillis);
+                socket.connect(address, timeoutMillis);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The connection is dropped anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package shard;
+
+import question.Question;
+import student.Student;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * The messages exchanged by the {@link ShardRouter} and the {@link ShardServer}. Each request is an operation
+ * byte and its arguments, and each response a status byte followed by the result, or by an error message if
+ * the status is not {@link #OK}. Questions are sent as their position in the question pool, which must be the
+ * same in the router and in every shard, for example the same {@link question.QuestionBank} file. A shard answers
+ * {@link #PING} with the size and the {@link #fingerprint(List) fingerprint} of its pool, so the router can check it.
+ */
+final class ShardProtocol {
+
+    // Operations
+    static final byte PING = 1;
+    static final byte REVISE = 2;
+    static final byte TAKE_QUIZ = 3;
+    static final byte STATISTICS = 4;
+    static final byte LIST_STUDENTS = 5;
+    static final byte EXPORT_STUDENT = 6;
+    static final byte IMPORT_STUDENT = 7;
+    static final byte READ_STUDENT = 8;
+
+    // Response status, the errors are thrown again in the router with the same type
+    static final byte OK = 0;
+    static final byte INVALID_ARGUMENT = 1;
+    static final byte INVALID_STATE = 2;
+    static final byte FAILURE = 3;
+
+    private ShardProtocol() {
+    }
+
+    /**
+     * Returns the key of a student in the ring: the same key for equal students.
+     */
+    static String key(Student student) {
+        return student.getIdentityKey();
+    }
+
+    /**
+     * Returns a checksum of the content keys of the pool, in order, so two pools with the same questions in the
+     * same positions have the same fingerprint.
+     */
+    static long fingerprint(List<Question> questionPool) {
+        CRC32C checksum = new CRC32C();
+        byte[] length = new byte[4];
+        for (Question question : questionPool) {
+            byte[] key = question.getKey().getBytes(StandardCharsets.UTF_8);
+            // Each key after its length, so the keys cannot run into each other
+            length[0] = (byte) (key.length >>> 24);
+            length[1] = (byte) (key.length >>> 16);
+            length[2] = (byte) (key.length >>> 8);
+            length[3] = (byte) key.length;
+            checksum.update(length);
+            checksum.update(key);
+        }
+        return checksum.getValue();
+    }
+
+    static void writeStudent(DataOutputStream out, Student student) throws IOException {
+        out.writeUTF(student.getFirstName());
+        out.writeUTF(student.getLastName());
+        out.writeLong(student.getDateOfBirth().getTime());
+    }
+
+    static Student readStudent(DataInputStream in) throws IOException {
+        return new Student(in.readUTF(), in.readUTF(), new Date(in.readLong()));
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    static double[] readDoubles(DataInputStream in) throws IOException {
+        double[] values = new double[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    /**
+     * The state of a student moved between shards: the scores, and the positions of the questions seen and of
+     * those whose last answer was incorrect.
+     */
+    static final class StudentState {
+        final double[] regularScores;
+        final double[] revisionScores;
+        final int[] seen;
+        final int[] incorrect;
+
+        StudentState(double[] regularScores, double[] revisionScores, int[] seen, int[] incorrect) {
+            this.regularScores = regularScores;
+            this.revisionScores = revisionScores;
+            this.seen = seen;
+            this.incorrect = incorrect;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeDoubles(out, regularScores);
+            writeDoubles(out, revisionScores);
+            writeInts(out, seen);
+            writeInts(out, incorrect);
+        }
+
+        static StudentState read(DataInputStream in) throws IOException {
+            return new StudentState(readDoubles(in), readDoubles(in), readInts(in), readInts(in));
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package shard;
+
+import question.Question;
+import question.QuestionRegistry;
+import quiz.Quiz;
+import quiz.QuestionSampler;
+import student.Student;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The ShardRouter is a {@link Quiz} whose students are split between several {@link ShardServer} processes.
+ * Each student belongs to one shard, chosen with a {@link ConsistentHashRing} over the identity of the student,
+ * and every revision and attempt of the student runs in that shard, which keeps the history and the statistics.
+ * Regular quizzes do not depend on the student, so they are generated in the router.
+ * <p>
+ * The quizzes returned by {@link #generateQuiz(int)} and {@link #revise(Student, int)} are routers too, which
+ * send their attempts as a regular or a revision attempt. A shard can be added while the router is running:
+ * the students that now belong to it are moved with their history, and about 1/N of the students move.
+ * Only one router can add shards, because the rings of other routers are not updated.
+ */
+public final class ShardRouter implements Quiz, Closeable {
+
+    // Time to connect to a shard and to wait for each of its responses
+    private static final Duration SHARD_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Cluster cluster;
+    private final List<Question> questions;
+    private final boolean revision;
+
+    /**
+     * Constructs a router for the given shards, which must have been started with the same question pool.
+     *
+     * @param questionPool The pool of questions, in the same order as in the shards.
+     * @param shards The addresses of the shards.
+     * @throws IllegalArgumentException if the pool or the list of shards is empty, or a shard has another pool.
+     * @throws UncheckedIOException if a shard cannot be reached.
+     */
+    public ShardRouter(List<Question> questionPool, List<InetSocketAddress> shards) {
+        this(questionPool, shards, SHARD_TIMEOUT);
+    }
+
+    /**
+     * Constructs a router for the given shards, with the time to wait for a shard before its calls fail.
+     *
+     * @param questionPool The pool of questions, in the same order as in the shards.
+     * @param shards The addresses of the shards.
+     * @param timeout The time to connect to a shard and to wait for each of its responses.
+     * @throws IllegalArgumentException if the pool or the list of shards is empty, a shard has another pool,
+     * or the timeout is not between 1 millisecond and {@link Integer#MAX_VALUE} milliseconds.
+     * @throws UncheckedIOException if a shard cannot be reached.
+     */
+    public ShardRouter(List<Question> questionPool, List<InetSocketAddress> shards, Duration timeout) {
+        if (timeout == null || timeout.toMillis() < 1 || timeout.toMillis() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The timeout must be between 1 ms and " + Integer.MAX_VALUE + " ms.");
+        }
+        if (questionPool == null || questionPool.isEmpty()) {
+            throw new IllegalArgumentException("Question pool cannot be empty.");
+        }
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("The router needs at least one shard.");
+        }
+        this.cluster = new Cluster(questionPool, (int) timeout.toMillis());
+        this.questions = cluster.questionPool;
+        this.revision = false;
+        try {
+            for (InetSocketAddress address : shards) {
+                cluster.ring.add(cluster.connect(address), name(address));
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Constructs a quiz of the router with the given questions.
+     */
+    private ShardRouter(Cluster cluster, List<Question> questions, boolean revision) {
+        this.cluster = cluster;
+        this.questions = Collections.unmodifiableList(questions);
+        this.revision = revision;
+    }
+
+    /**
+     * Generates a regular quiz with random questions of the pool. No shard is called.
+     *
+     * @param numberOfQuestions The number of questions for the quiz.
+     * @return A new quiz of the router with the selected questions.
+     * @throws IllegalArgumentException if the number of questions is less than 1 or more than available questions.
+     */
+    @Override
+    public Quiz generateQuiz(int numberOfQuestions) {
+        if (numberOfQuestions < 1 || numberOfQuestions > cluster.questionPool.size()) {
+            throw new IllegalArgumentException("Invalid number of questions. Must be between 1 and " + cluster.questionPool.size());
+        }
+        return new ShardRouter(cluster, cluster.sampler.sample(cluster.questionPool, numberOfQuestions), false);
+    }
+
+    /**
+     * Generates a revision quiz in the shard of the student.
+     *
+     * @param student The student who is taking the quiz.
+     * @param numberOfQuestions The number of questions in the quiz.
+     * @return A new quiz of the router with the revision questions.
+     * @throws IllegalArgumentException if there are not enough unseen or incorrectly answered questions.
+     * @throws IllegalStateException if the student cannot take more revision quizzes.
+     * @throws UncheckedIOException if the shard cannot be reached.
+     */
+    @Override
+    public Quiz revise(Student student, int numberOfQuestions) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null.");
+        }
+        int[] positions = cluster.call(student, ShardProtocol.REVISE, out -> {
+            ShardProtocol.writeStudent(out, student);
+            out.writeInt(numberOfQuestions);
+        }, ShardProtocol::readInts);
+        return new ShardRouter(cluster, cluster.questionsAt(positions), true);
+    }
+
+    /**
+     * Takes the quiz in the shard of the student, as a revision attempt if this quiz was returned by
+     * {@link #revise(Student, int)} and as a regular attempt otherwise.
+     *
+     * @param student The student taking the quiz.
+     * @param questions The list of questions in the quiz, which must be questions of the pool.
+     * @param answers The student's answers to the questions.
+     * @return The score the student achieved.
+     * @throws IllegalArgumentException if an argument is null, a question is not in the pool, or there is not
+     * one answer per question.
+     * @throws IllegalStateException if the student cannot take more quizzes of this type.
+     * @throws UncheckedIOException if the shard cannot be reached.
+     */
+    @Override
+    public double takeQuiz(Student student, List<Question> questions, List<String> answers) {
+        if (student == null || questions == null || answers == null) {
+            throw new IllegalArgumentException("Student, questions and answers cannot be null.");
+        }
+        int[] positions = cluster.positionsOf(questions);
+        return cluster.call(student, ShardProtocol.TAKE_QUIZ, out -> {
+            out.writeBoolean(revision);
+            ShardProtocol.writeStudent(out, student);
+            ShardProtocol.writeInts(out, positions);
+            out.writeInt(answers.size());
+            for (String answer : answers) {
+                out.writeBoolean(answer != null);
+                if (answer != null) {
+                    out.writeUTF(answer);
+                }
+            }
+        }, in -> in.readDouble());
+    }
+
+    /**
+     * Returns the questions of this quiz, or the whole pool for the router itself.
+     *
+     * @return An unmodifiable list with the questions.
+     */
+    public List<Question> getQuestions() {
+        return questions;
+    }
+
+    public boolean isRevision() {
+        return revision;
+    }
+
+    /**
+     * Generates the statistics of a student in its shard.
+     *
+     * @param student The student.
+     * @return The statistics, as {@link statistics.Statistics#generateStatistics()} formats them.
+     * @throws IllegalArgumentException if the student is null.
+     * @throws UncheckedIOException if the shard cannot be reached.
+     */
+    public String getStatistics(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null.");
+        }
+        return cluster.call(student, ShardProtocol.STATISTICS, out -> ShardProtocol.writeStudent(out, student),
+                in -> in.readUTF());
+    }
+
+    /**
+     * Returns the address of the shard a student belongs to.
+     *
+     * @param student The student.
+     * @return The address of the shard.
+     */
+    public InetSocketAddress shardOf(Student student) {
+        cluster.lock.readLock().lock();
+        try {
+            return cluster.ring.get(ShardProtocol.key(student)).getAddress();
+        } finally {
+            cluster.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the addresses of the shards, in the order they were added.
+     *
+     * @return A list with the addresses.
+     */
+    public List<InetSocketAddress> getShards() {
+        cluster.lock.readLock().lock();
+        try {
+            List<InetSocketAddress> shards = new ArrayList<>();
+            for (ShardClient client : cluster.ring.getNodes()) {
+                shards.add(client.getAddress());
+            }
+            return shards;
+        } finally {
+            cluster.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a shard and moves to it, with their scores and history, the students of the other shards that now
+     * belong to it. Calls of the students wait until the move has finished.
+     * <p>
+     * The students are copied to the new shard first, and the new ring is only installed once all of them have
+     * been copied. Then they are removed from the shards they came from. If a copy fails, the copies are removed
+     * from the new shard and the router keeps the shards it had, so a student is never only in the memory of
+     * the router. A student that cannot be removed from the shard it came from is only left unused there.
+     *
+     * @param address The address of the new shard, started with the same question pool.
+     * @return The number of students moved to the new shard.
+     * @throws IllegalArgumentException if the shard is already in the router, or has another pool.
+     * @throws UncheckedIOException if a shard cannot be reached. The shard is not added and no student is moved.
+     */
+    public int addShard(InetSocketAddress address) {
+        cluster.lock.writeLock().lock();
+        try {
+            for (ShardClient client : cluster.ring.getNodes()) {
+                if (client.getAddress().equals(address)) {
+                    throw new IllegalArgumentException("The shard is already in the router: " + address);
+                }
+            }
+            ShardClient added = cluster.connect(address);
+            List<ShardClient> previous = cluster.ring.getNodes();
+            ConsistentHashRing<ShardClient> ring = new ConsistentHashRing<>();
+            for (ShardClient client : previous) {
+                ring.add(client, name(client.getAddress()));
+            }
+            ring.add(added, name(address));
+
+            List<Student> copied = new ArrayList<>();
+            List<ShardClient> sources = new ArrayList<>();
+            try {
+                for (ShardClient client : previous) {
+                    for (Student student : listStudents(client)) {
+                        String key = ShardProtocol.key(student);
+                        // A student left in a shard by a failed removal belongs to another shard, and is skipped
+                        if (cluster.ring.get(key) == client && ring.get(key) == added && copy(student, client, added)) {
+                            copied.add(student);
+                            sources.add(client);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                // The current ring still finds every student in the shard it came from
+                for (Student student : copied) {
+                    try {
+                        remove(added, student);
+                    } catch (RuntimeException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                added.close();
+                throw e;
+            }
+
+            cluster.ring = ring;
+            for (int i = 0; i < copied.size(); i++) {
+                try {
+                    remove(sources.get(i), copied.get(i));
+                } catch (RuntimeException e) {
+                    // The student is already found in the new shard, so the old copy is only unused, and later
+                    // moves skip it
+                }
+            }
+            return copied.size();
+        } finally {
+            cluster.lock.writeLock().unlock();
+        }
+    }
+
+    private static List<Student> listStudents(ShardClient client) {
+        return client.call(ShardProtocol.LIST_STUDENTS, out -> { }, in -> {
+            List<Student> list = new ArrayList<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                list.add(ShardProtocol.readStudent(in));
+            }
+            return list;
+        });
+    }
+
+    /**
+     * Copies a student to another shard, without removing it from the shard it is in.
+     *
+     * @return False if the student is no longer in the shard it is copied from.
+     */
+    private static boolean copy(Student student, ShardClient from, ShardClient to) {
+        ShardProtocol.StudentState state = from.call(ShardProtocol.READ_STUDENT,
+                out -> ShardProtocol.writeStudent(out, student),
+                in -> in.readBoolean() ? ShardProtocol.StudentState.read(in) : null);
+        if (state == null) {
+            return false;
+        }
+        to.call(ShardProtocol.IMPORT_STUDENT, out -> {
+            ShardProtocol.writeStudent(out, student);
+            state.write(out);
+        }, in -> null);
+        return true;
+    }
+
+    private static void remove(ShardClient client, Student student) {
+        client.call(ShardProtocol.EXPORT_STUDENT, out -> ShardProtocol.writeStudent(out, student), in -> {
+            if (in.readBoolean()) {
+                ShardProtocol.StudentState.read(in);
+            }
+            return null;
+        });
+    }
+
+    private static String name(InetSocketAddress address) {
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * Closes the connections to the shards. The quizzes returned by the router cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        cluster.lock.writeLock().lock();
+        try {
+            for (ShardClient client : cluster.ring.getNodes()) {
+                client.close();
+            }
+        } finally {
+            cluster.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The state shared by the router and its quizzes: the pool, the ring of shards and its lock.
+     */
+    private static final class Cluster {
+        private final List<Question> questionPool;
+        private final long poolFingerprint;
+        private final int timeoutMillis;
+        // The ids of the questions of the pool are their positions
+        private final QuestionRegistry positions;
+        private final QuestionSampler sampler;
+        // Calls hold the read lock, so adding a shard waits for them and they wait for it. The calls are limited by
+        // the timeout of the clients, so a shard that hangs cannot block the router
+        private final ReadWriteLock lock;
+        private ConsistentHashRing<ShardClient> ring;
+
+        private Cluster(List<Question> questionPool, int timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+            this.positions = new QuestionRegistry(questionPool);
+            this.questionPool = positions.getPool();
+            this.poolFingerprint = ShardProtocol.fingerprint(questionPool);
+            this.sampler = new QuestionSampler();
+            this.lock = new ReentrantReadWriteLock();
+            this.ring = new ConsistentHashRing<>();
+        }
+
+        /**
+         * Connects to a shard and checks that it has the same questions in the same positions.
+         */
+        private ShardClient connect(InetSocketAddress address) {
+            ShardClient client = new ShardClient(address, timeoutMillis);
+            try {
+                long[] pool = client.call(ShardProtocol.PING, out -> { }, in -> new long[]{in.readInt(), in.readLong()});
+                if (pool[0] != questionPool.size()) {
+                    throw new IllegalArgumentException("The shard " + address + " has " + pool[0]
+                            + " questions, but the pool has " + questionPool.size());
+                }
+                if (pool[1] != poolFingerprint) {
+                    throw new IllegalArgumentException("The shard " + address + " has other questions than the pool.");
+                }
+                return client;
+            } catch (RuntimeException e) {
+                client.close();
+                throw e;
+            }
+        }
+
+        private <T> T call(Student student, byte operation, ShardClient.RequestWriter request,
+                           ShardClient.ResponseReader<T> response) {
+            lock.readLock().lock();
+            try {
+                return ring.get(ShardProtocol.key(student)).call(operation, request, response);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private int[] positionsOf(List<Question> questions) {
+            int[] result = new int[questions.size()];
+            for (int i = 0; i < result.length; i++) {
+                Question question = questions.get(i);
+                int position = question == null ? QuestionRegistry.UNREGISTERED : positions.idOf(question);
+                if (position == QuestionRegistry.UNREGISTERED) {
+                    throw new IllegalArgumentException("Every question must be a question of the pool.");
+                }
+                result[i] = position;
+            }
+            return result;
+        }
+
+        private List<Question> questionsAt(int[] indices) {
+            List<Question> questions = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                questions.add(questionPool.get(index));
+            }
+            return questions;
+        }
+    }
+}
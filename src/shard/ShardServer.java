@@ -0,0 +1,368 @@
+package shard;
+
+import question.Question;
+import question.QuestionBank;
+import quiz.Quiz;
+import quiz.QuizFactory;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import statistics.Statistics;
+import student.Student;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A ShardServer owns the history and the statistics of a slice of the students, in its own process. It has a
+ * regular and a revision quiz over the same question pool as the {@link ShardRouter}, which sends it the calls
+ * of the students that belong to it. Each connection of the router is served by its own thread.
+ * <p>
+ * Run a shard with {@code java -cp bin shard.ShardServer bank.qb [port] [host]}. It listens on the loopback
+ * address unless another host is given, because the protocol has no authentication.
+ */
+public final class ShardServer implements Closeable {
+
+    private static final int BACKLOG = 1024;
+
+    private final List<Question> questionPool;
+    private final long poolFingerprint;
+    private final RegularQuiz regularQuiz;
+    private final RevisionQuiz revisionQuiz;
+    private final Map<Student, Student> students;
+    private final ServerSocket serverSocket;
+    // The connections being served, closed by close()
+    private final Set<Socket> connections;
+    private final ExecutorService executor;
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a shard for the given question pool and binds it. It does not accept connections until it is started.
+     *
+     * @param questionPool The pool of questions, in the same order as in the router.
+     * @param address The address to listen on, with port 0 to use any free port.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the question pool is empty.
+     */
+    public ShardServer(List<Question> questionPool, InetSocketAddress address) throws IOException {
+        this.regularQuiz = new RegularQuiz(questionPool);
+        this.revisionQuiz = new RevisionQuiz(questionPool, null);
+        this.questionPool = regularQuiz.getQuestions();
+        this.poolFingerprint = ShardProtocol.fingerprint(this.questionPool);
+        this.students = new ConcurrentHashMap<>();
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address, BACKLOG);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::accept, "shard-acceptor");
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of students owned by this shard.
+     *
+     * @return The number of students.
+     */
+    public int getStudentCount() {
+        return students.size();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        executor.shutdownNow();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                if (closed) {
+                    // close() may have run before the socket was added
+                    socket.close();
+                    return;
+                }
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Shard cannot accept connections: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Serves the requests of a connection until the router closes it.
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                byte operation;
+                try {
+                    operation = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                Response response;
+                try {
+                    response = handle(operation, in);
+                } catch (IllegalArgumentException e) {
+                    response = error(ShardProtocol.INVALID_ARGUMENT, e);
+                } catch (IllegalStateException e) {
+                    response = error(ShardProtocol.INVALID_STATE, e);
+                } catch (RuntimeException e) {
+                    response = error(ShardProtocol.FAILURE, e);
+                }
+                response.write(out);
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // The connection was closed by the router or by close()
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Shard connection failed: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private static Response error(byte status, RuntimeException e) {
+        String message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        return out -> {
+            out.writeByte(status);
+            out.writeUTF(message);
+        };
+    }
+
+    /**
+     * Reads the arguments of a request and runs it. The response is only written after the request has been
+     * run, so an exception is sent as an error instead of a partial result.
+     */
+    private Response handle(byte operation, DataInputStream in) throws IOException {
+        switch (operation) {
+            case ShardProtocol.PING: {
+                int size = questionPool.size();
+                return ok(out -> {
+                    out.writeInt(size);
+                    out.writeLong(poolFingerprint);
+                });
+            }
+            case ShardProtocol.REVISE: {
+                Student student = student(ShardProtocol.readStudent(in));
+                int numberOfQuestions = in.readInt();
+                Quiz quiz = revisionQuiz.revise(student, numberOfQuestions);
+                int[] selected = positionsOf(((QuizFactory) quiz).getQuestions());
+                return ok(out -> ShardProtocol.writeInts(out, selected));
+            }
+            case ShardProtocol.TAKE_QUIZ: {
+                boolean revision = in.readBoolean();
+                Student student = student(ShardProtocol.readStudent(in));
+                List<Question> questions = questionsAt(ShardProtocol.readInts(in));
+                List<String> answers = new ArrayList<>();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    answers.add(in.readBoolean() ? in.readUTF() : null);
+                }
+                double score = takeQuiz(student, questions, answers, revision);
+                return ok(out -> out.writeDouble(score));
+            }
+            case ShardProtocol.STATISTICS: {
+                String statistics = student(ShardProtocol.readStudent(in)).getStatistics().generateStatistics();
+                return ok(out -> out.writeUTF(statistics));
+            }
+            case ShardProtocol.LIST_STUDENTS: {
+                List<Student> owned = new ArrayList<>(students.keySet());
+                return ok(out -> {
+                    out.writeInt(owned.size());
+                    for (Student student : owned) {
+                        ShardProtocol.writeStudent(out, student);
+                    }
+                });
+            }
+            case ShardProtocol.READ_STUDENT:
+                return readStudent(ShardProtocol.readStudent(in));
+            case ShardProtocol.EXPORT_STUDENT:
+                return exportStudent(ShardProtocol.readStudent(in));
+            case ShardProtocol.IMPORT_STUDENT:
+                importStudent(in);
+                return ok(out -> { });
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private static Response ok(Response result) {
+        return out -> {
+            out.writeByte(ShardProtocol.OK);
+            result.write(out);
+        };
+    }
+
+    /**
+     * Returns the student of this shard equal to the given one, which holds the statistics.
+     */
+    private Student student(Student student) {
+        return students.computeIfAbsent(student, s -> s);
+    }
+
+    /**
+     * Grades the attempt with the quiz of its type, and copies it to the history of the other quiz, as the
+     * {@link server.QuizServer} does.
+     */
+    private double takeQuiz(Student student, List<Question> questions, List<String> answers, boolean revision) {
+        if (answers.size() != questions.size()) {
+            throw new IllegalArgumentException("Every question must have one answer.");
+        }
+        QuizFactory quiz = revision ? revisionQuiz : regularQuiz;
+        QuizFactory other = revision ? regularQuiz : revisionQuiz;
+        BitSet correct = quiz.gradeQuiz(student, questions, answers);
+        other.recordAnsweredQuestions(student, questions, correct);
+        return (double) correct.cardinality() / questions.size();
+    }
+
+    /**
+     * Returns the state of a student without removing it: the scores, and the positions of the questions
+     * seen and answered incorrectly.
+     */
+    private Response readStudent(Student key) {
+        Student student = students.get(key);
+        if (student == null) {
+            return ok(out -> out.writeBoolean(false));
+        }
+        ShardProtocol.StudentState state = stateOf(student);
+        return ok(out -> {
+            out.writeBoolean(true);
+            state.write(out);
+        });
+    }
+
+    /**
+     * Removes a student from this shard and returns its state.
+     */
+    private Response exportStudent(Student key) {
+        Student student = students.remove(key);
+        if (student == null) {
+            return ok(out -> out.writeBoolean(false));
+        }
+        ShardProtocol.StudentState state = stateOf(student);
+        regularQuiz.removeStudent(student);
+        revisionQuiz.removeStudent(student);
+        return ok(out -> {
+            out.writeBoolean(true);
+            state.write(out);
+        });
+    }
+
+    private ShardProtocol.StudentState stateOf(Student student) {
+        Statistics stats = student.getStatistics();
+        return new ShardProtocol.StudentState(stats.getRegularQuizScores(), stats.getRevisionQuizScores(),
+                regularQuiz.getSeenQuestionIds(student).stream().toArray(),
+                regularQuiz.getIncorrectQuestionIds(student).stream().toArray());
+    }
+
+    private void importStudent(DataInputStream in) throws IOException {
+        Student student = ShardProtocol.readStudent(in);
+        ShardProtocol.StudentState state = ShardProtocol.StudentState.read(in);
+        List<Question> seen = questionsAt(state.seen);
+        Set<Question> incorrect = new HashSet<>(questionsAt(state.incorrect));
+        if (students.putIfAbsent(student, student) != null) {
+            throw new IllegalStateException("The student is already in this shard: " + student.getName());
+        }
+
+        Statistics stats = student.getStatistics();
+        // Revision quizzes can only be taken before the verdict, so they are recorded first
+        for (double score : state.revisionScores) {
+            stats.recordRevisionQuizScore(score);
+        }
+        for (double score : state.regularScores) {
+            stats.recordRegularQuizScore(score);
+        }
+        BitSet correct = new BitSet(seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            correct.set(i, !incorrect.contains(seen.get(i)));
+        }
+        regularQuiz.recordAnsweredQuestions(student, seen, correct);
+        revisionQuiz.recordAnsweredQuestions(student, seen, correct);
+    }
+
+    /**
+     * Returns the positions of the questions in the pool, which are their ids in the registry of the quizzes.
+     */
+    private int[] positionsOf(List<Question> questions) {
+        return revisionQuiz.getQuestionRegistry().register(questions);
+    }
+
+    private List<Question> questionsAt(int[] indices) {
+        List<Question> questions = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            if (index < 0 || index >= questionPool.size()) {
+                throw new IllegalArgumentException("There is no question in position " + index);
+            }
+            questions.add(questionPool.get(index));
+        }
+        return questions;
+    }
+
+    /**
+     * Writes a response once the request has been run.
+     */
+    private interface Response {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Starts a shard with the questions of a bank file.
+     *
+     * @param args The bank file, the port (0 or missing for any free port) and the host to listen on.
+     * @throws IOException if the bank cannot be read or the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ShardServer bank.qb [port] [host]");
+            System.exit(2);
+        }
+        QuestionBank bank = QuestionBank.open(Path.of(args[0]));
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        InetAddress host = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        ShardServer shard = new ShardServer(bank.getQuestions(), new InetSocketAddress(host, port));
+        shard.start();
+        System.out.println("Shard listening on port " + shard.getPort());
+        System.out.flush();
+    }
+}
@@ -0,0 +1,233 @@
+package statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The CohortStatistics class summarizes the quiz performance of all the students together: how many have
+ * passed, failed or are still to be determined, the distribution of the scores and the number of attempts.
+ * It is updated by {@link Statistics} every time a score is recorded, so reading it does not need to visit
+ * the students and costs the same for ten students or a million. Each owner of students, for example a
+ * {@link server.QuizServer}, has its own cohort and gives it to the students it creates.
+ * <p>
+ * The counters are striped adders, so many threads recording scores at the same time do not contend on a
+ * single value. A student is counted from their first recorded attempt. The counters are read one by one, so
+ * a report generated while scores are being recorded can be slightly out of date, but never loses an update.
+ */
+public final class CohortStatistics {
+
+    // Number of buckets of the score histograms, each one covers 10% of the score
+    public static final int HISTOGRAM_BUCKETS = 10;
+
+    private final LongAdder students;
+    private final LongAdder[] verdicts;
+    private final LongAdder[] regularAttempts;
+    private final LongAdder[] revisionAttempts;
+    private final LongAdder[] regularScoreHistogram;
+    private final LongAdder[] revisionScoreHistogram;
+    private final DoubleAdder regularScoreSum;
+    private final DoubleAdder revisionScoreSum;
+
+    /**
+     * Constructs an empty cohort.
+     */
+    public CohortStatistics() {
+        this.students = new LongAdder();
+        this.verdicts = adders(Verdict.values().length);
+        this.regularAttempts = adders(Statistics.MAX_REGULAR_ATTEMPTS + 1);
+        this.revisionAttempts = adders(Statistics.MAX_REVISION_ATTEMPTS + 1);
+        this.regularScoreHistogram = adders(HISTOGRAM_BUCKETS);
+        this.revisionScoreHistogram = adders(HISTOGRAM_BUCKETS);
+        this.regularScoreSum = new DoubleAdder();
+        this.revisionScoreSum = new DoubleAdder();
+    }
+
+    /**
+     * Records a committed regular attempt. Called by {@link Statistics} once per attempt.
+     *
+     * @param previousRegularAttempts The regular attempts of the student before this one.
+     * @param revisionAttempts The revision attempts of the student.
+     * @param score The score of the attempt.
+     * @param verdict The verdict of the student after the attempt.
+     */
+    void regularAttemptRecorded(int previousRegularAttempts, int revisionAttempts, double score, Verdict verdict) {
+        if (previousRegularAttempts == 0 && revisionAttempts == 0) {
+            addStudent();
+        }
+        regularAttempts[previousRegularAttempts].decrement();
+        regularAttempts[previousRegularAttempts + 1].increment();
+        regularScoreSum.add(score);
+        regularScoreHistogram[bucketOf(score)].increment();
+        if (verdict != Verdict.TBD) {
+            verdicts[Verdict.TBD.ordinal()].decrement();
+            verdicts[verdict.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records a committed revision attempt. Called by {@link Statistics} once per attempt.
+     *
+     * @param regularAttempts The regular attempts of the student.
+     * @param previousRevisionAttempts The revision attempts of the student before this one.
+     * @param score The score of the attempt.
+     */
+    void revisionAttemptRecorded(int regularAttempts, int previousRevisionAttempts, double score) {
+        if (regularAttempts == 0 && previousRevisionAttempts == 0) {
+            addStudent();
+        }
+        revisionAttempts[previousRevisionAttempts].decrement();
+        revisionAttempts[previousRevisionAttempts + 1].increment();
+        revisionScoreSum.add(score);
+        revisionScoreHistogram[bucketOf(score)].increment();
+    }
+
+    private void addStudent() {
+        students.increment();
+        verdicts[Verdict.TBD.ordinal()].increment();
+        regularAttempts[0].increment();
+        revisionAttempts[0].increment();
+    }
+
+    public long getStudentCount() {
+        return students.sum();
+    }
+
+    /**
+     * Returns the number of students with the given verdict.
+     *
+     * @param verdict The verdict.
+     * @return The number of students.
+     */
+    public long getVerdictCount(Verdict verdict) {
+        return verdicts[verdict.ordinal()].sum();
+    }
+
+    /**
+     * Returns the fraction of the students with a final verdict that passed.
+     *
+     * @return The pass rate between 0 and 1, or 0 if no student has a final verdict yet.
+     */
+    public double getPassRate() {
+        long passed = getVerdictCount(Verdict.PASS);
+        long decided = passed + getVerdictCount(Verdict.FAIL);
+        return decided == 0 ? 0 : (double) passed / decided;
+    }
+
+    public long getRegularQuizCount() {
+        return sum(regularScoreHistogram);
+    }
+
+    public long getRevisionQuizCount() {
+        return sum(revisionScoreHistogram);
+    }
+
+    /**
+     * Returns the average score of all the regular quizzes.
+     *
+     * @return The average score, or 0 if no regular quiz has been taken.
+     */
+    public double getAverageRegularScore() {
+        long count = getRegularQuizCount();
+        return count == 0 ? 0 : regularScoreSum.sum() / count;
+    }
+
+    /**
+     * Returns the average score of all the revision quizzes.
+     *
+     * @return The average score, or 0 if no revision quiz has been taken.
+     */
+    public double getAverageRevisionScore() {
+        long count = getRevisionQuizCount();
+        return count == 0 ? 0 : revisionScoreSum.sum() / count;
+    }
+
+    /**
+     * Returns the histogram of the regular quiz scores. Bucket i counts the scores from i * 10% to (i + 1) * 10%,
+     * and the last bucket also counts the scores of 100%.
+     *
+     * @return A new array with {@link #HISTOGRAM_BUCKETS} counts.
+     */
+    public long[] getRegularScoreHistogram() {
+        return sums(regularScoreHistogram);
+    }
+
+    /**
+     * Returns the histogram of the revision quiz scores, with the same buckets as {@link #getRegularScoreHistogram()}.
+     *
+     * @return A new array with {@link #HISTOGRAM_BUCKETS} counts.
+     */
+    public long[] getRevisionScoreHistogram() {
+        return sums(revisionScoreHistogram);
+    }
+
+    /**
+     * Returns how many students have taken each number of regular quizzes.
+     *
+     * @return A new array where position i is the number of students with i regular attempts.
+     */
+    public long[] getRegularAttemptDistribution() {
+        return sums(regularAttempts);
+    }
+
+    /**
+     * Returns how many students have taken each number of revision quizzes.
+     *
+     * @return A new array where position i is the number of students with i revision attempts.
+     */
+    public long[] getRevisionAttemptDistribution() {
+        return sums(revisionAttempts);
+    }
+
+    /**
+     * Generates a report of the cohort, with the same style as {@link Statistics#generateStatistics()}.
+     *
+     * @return A formatted string with the statistics of the cohort.
+     */
+    public String generateReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("Students: ").append(getStudentCount()).append("\n");
+        report.append("Verdicts: PASS ").append(getVerdictCount(Verdict.PASS))
+                .append(", FAIL ").append(getVerdictCount(Verdict.FAIL))
+                .append(", TBD ").append(getVerdictCount(Verdict.TBD)).append("\n");
+        report.append("Pass rate: ").append(getPassRate()).append("\n");
+        report.append("Regular quizzes: ").append(getRegularQuizCount())
+                .append(", average score: ").append(getAverageRegularScore()).append("\n");
+        report.append("Revision quizzes: ").append(getRevisionQuizCount())
+                .append(", average score: ").append(getAverageRevisionScore()).append("\n");
+        report.append("Regular score histogram: ").append(Arrays.toString(getRegularScoreHistogram())).append("\n");
+        report.append("Revision score histogram: ").append(Arrays.toString(getRevisionScoreHistogram())).append("\n");
+        report.append("Regular attempts per student: ").append(Arrays.toString(getRegularAttemptDistribution())).append("\n");
+        report.append("Revision attempts per student: ").append(Arrays.toString(getRevisionAttemptDistribution())).append("\n");
+        return report.toString();
+    }
+
+    private static int bucketOf(double score) {
+        int bucket = (int) (score * HISTOGRAM_BUCKETS);
+        return Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, bucket));
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long sum(LongAdder[] adders) {
+        long total = 0;
+        for (LongAdder adder : adders) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] values = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            values[i] = adders[i].sum();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,218 @@
+package statistics;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The ItemStatistics class keeps, for every question, how many times it has been answered and how many
+ * times correctly, together with the scores of those attempts. From these counts it computes two classic
+ * item analysis measures while the quizzes are being taken:
+ * <ul>
+ *     <li>Difficulty (p-value): the fraction of correct answers. Questions almost everybody gets right
+ *     (or wrong) do not tell apart strong and weak students.</li>
+ *     <li>Discrimination: the point-biserial correlation between answering the question correctly and the
+ *     score of the attempt. A negative value usually means the correct answer of the question is wrong.</li>
+ * </ul>
+ * The counts are stored in arrays of longs indexed by the id of the question in the
+ * {@link question.QuestionRegistry} of the factory, allocated in chunks when a question is first
+ * recorded. Each thread adds to one of several copies (stripes) of the counts, so threads grading different
+ * attempts of the same question do not contend, and the stripes are added together when the counts are read.
+ * Scores are stored as fixed-point numbers so all the counts are primitive longs.
+ * Each {@link quiz.QuizFactory} has its own statistics, with the attempts taken with it and the quizzes it created.
+ */
+public final class ItemStatistics {
+
+    // Questions are considered too easy or too hard outside of these difficulties
+    public static final double MIN_DIFFICULTY = 0.05;
+    public static final double MAX_DIFFICULTY = 0.95;
+    // Questions with a lower discrimination are flagged
+    public static final double MIN_DISCRIMINATION = 0.1;
+
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    // Counts stored per question: exposures, correct answers, sum of scores, sum of scores when correct, sum of squared scores
+    private static final int FIELDS = 5;
+    private static final int EXPOSURES = 0;
+    private static final int CORRECT = 1;
+    private static final int SCORE_SUM = 2;
+    private static final int CORRECT_SCORE_SUM = 3;
+    private static final int SQUARED_SCORE_SUM = 4;
+    private static final double SCALE = 1 << 20;
+
+    private final int stripes;
+    private volatile AtomicLongArray[] chunks;
+
+    /**
+     * Constructs empty statistics with one stripe per processor, up to 8.
+     */
+    public ItemStatistics() {
+        this.stripes = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        this.chunks = new AtomicLongArray[16];
+    }
+
+    /**
+     * Records a graded attempt: every question of the attempt has been seen once, and the correct ones answered correctly.
+     *
+     * @param questionIds The ids of the questions of the attempt.
+     * @param correct The positions of the questions answered correctly.
+     * @param score The score of the attempt.
+     */
+    public void recordAttempt(int[] questionIds, BitSet correct, double score) {
+        long scaledScore = Math.round(score * SCALE);
+        long scaledSquare = Math.round(score * score * SCALE);
+        int stripe = System.identityHashCode(Thread.currentThread()) & (stripes - 1);
+        for (int i = 0; i < questionIds.length; i++) {
+            int id = questionIds[i];
+            if (id < 0) {
+                continue;
+            }
+            AtomicLongArray chunk = chunk(id, true);
+            int offset = offset(stripe, id);
+            chunk.getAndIncrement(offset + EXPOSURES);
+            chunk.getAndAdd(offset + SCORE_SUM, scaledScore);
+            chunk.getAndAdd(offset + SQUARED_SCORE_SUM, scaledSquare);
+            if (correct.get(i)) {
+                chunk.getAndIncrement(offset + CORRECT);
+                chunk.getAndAdd(offset + CORRECT_SCORE_SUM, scaledScore);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times the question has been answered.
+     *
+     * @param questionId The id of the question.
+     * @return The number of answers.
+     */
+    public long getExposures(int questionId) {
+        return sum(questionId, EXPOSURES);
+    }
+
+    /**
+     * Returns the number of times the question has been answered correctly.
+     *
+     * @param questionId The id of the question.
+     * @return The number of correct answers.
+     */
+    public long getCorrectAnswers(int questionId) {
+        return sum(questionId, CORRECT);
+    }
+
+    /**
+     * Returns the difficulty (p-value) of the question: the fraction of its answers that were correct.
+     *
+     * @param questionId The id of the question.
+     * @return The difficulty between 0 and 1, or NaN if the question has not been answered.
+     */
+    public double getDifficulty(int questionId) {
+        long exposures = getExposures(questionId);
+        return exposures == 0 ? Double.NaN : (double) getCorrectAnswers(questionId) / exposures;
+    }
+
+    /**
+     * Returns the discrimination of the question: the point-biserial correlation between answering it correctly
+     * and the score of the attempt. Values close to 1 mean the question separates well strong and weak students.
+     *
+     * @param questionId The id of the question.
+     * @return The discrimination between -1 and 1, or NaN if everybody answered the same or all the scores are equal.
+     */
+    public double getDiscrimination(int questionId) {
+        long[] counts = new long[FIELDS];
+        for (int field = 0; field < FIELDS; field++) {
+            counts[field] = sum(questionId, field);
+        }
+        long exposures = counts[EXPOSURES];
+        long correct = counts[CORRECT];
+        if (correct == 0 || correct == exposures) {
+            return Double.NaN;
+        }
+        double scoreSum = counts[SCORE_SUM] / SCALE;
+        double correctScoreSum = counts[CORRECT_SCORE_SUM] / SCALE;
+        double mean = scoreSum / exposures;
+        double variance = counts[SQUARED_SCORE_SUM] / SCALE / exposures - mean * mean;
+        if (variance <= 1e-12) {
+            return Double.NaN;
+        }
+        double p = (double) correct / exposures;
+        double correctMean = correctScoreSum / correct;
+        double incorrectMean = (scoreSum - correctScoreSum) / (exposures - correct);
+        return (correctMean - incorrectMean) * Math.sqrt(p * (1 - p) / variance);
+    }
+
+    /**
+     * Finds the questions that should be reviewed: too easy, too hard, or with a low or negative discrimination.
+     * Only questions with enough answers are considered.
+     *
+     * @param minExposures The minimum number of answers of a question to be considered.
+     * @return The ids of the flagged questions, in increasing order.
+     */
+    public int[] findFlaggedQuestions(long minExposures) {
+        AtomicLongArray[] current = chunks;
+        int[] flagged = new int[16];
+        int count = 0;
+        for (int c = 0; c < current.length; c++) {
+            if (current[c] == null) {
+                continue;
+            }
+            for (int id = c * CHUNK_SIZE; id < (c + 1) * CHUNK_SIZE; id++) {
+                long exposures = getExposures(id);
+                if (exposures == 0 || exposures < minExposures) {
+                    continue;
+                }
+                double difficulty = getDifficulty(id);
+                double discrimination = getDiscrimination(id);
+                if (difficulty <= MIN_DIFFICULTY || difficulty >= MAX_DIFFICULTY
+                        || Double.isNaN(discrimination) || discrimination < MIN_DISCRIMINATION) {
+                    if (count == flagged.length) {
+                        flagged = Arrays.copyOf(flagged, count * 2);
+                    }
+                    flagged[count++] = id;
+                }
+            }
+        }
+        return Arrays.copyOf(flagged, count);
+    }
+
+    private long sum(int questionId, int field) {
+        AtomicLongArray chunk = questionId < 0 ? null : chunk(questionId, false);
+        if (chunk == null) {
+            return 0;
+        }
+        long total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += chunk.get(offset(stripe, questionId) + field);
+        }
+        return total;
+    }
+
+    /**
+     * Position of the counts of a question in its chunk. The stripes are stored one after the other,
+     * so the counts of different stripes are far apart in memory.
+     */
+    private static int offset(int stripe, int questionId) {
+        return (stripe * CHUNK_SIZE + (questionId & (CHUNK_SIZE - 1))) * FIELDS;
+    }
+
+    private AtomicLongArray chunk(int questionId, boolean create) {
+        int index = questionId >>> CHUNK_BITS;
+        AtomicLongArray[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        if (!create) {
+            return null;
+        }
+        synchronized (this) {
+            current = chunks;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            }
+            if (current[index] == null) {
+                current[index] = new AtomicLongArray(stripes * CHUNK_SIZE * FIELDS);
+            }
+            chunks = current;
+            return current[index];
+        }
+    }
+}
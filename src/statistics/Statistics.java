@@ -1,34 +1,81 @@
 package statistics;
 
 import student.Student;
-import java.util.ArrayList;
-import java.util.List;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * The Statistics class tracks the quiz performance of a student, including their scores,
  * number of attempts, and final verdict. It handles both regular quizzes and revision quizzes,
  * ensuring that the student's progress is recorded and monitored.
+ * The number of attempts is limited, so the scores are kept in small arrays of primitives.
+ * <p>
+ * The attempts and the verdict are packed in a single int that is only changed with compare-and-set,
+ * so the class is thread safe without locks. Taking a quiz is done in two steps: the attempt is reserved
+ * before grading, and committed with the score after grading. Only one attempt of the student can be in
+ * progress, of either type, so two submissions of the same student at the same time cannot both be admitted,
+ * and a revision attempt cannot be committed after a regular attempt that started with it gave the verdict.
+ * Every committed attempt is also added to the {@link CohortStatistics} of the student, if it has one.
  */
 
 public final class Statistics {
+    // Maximum number of regular quizzes, after two failed quizzes the verdict is FAIL
+    public static final int MAX_REGULAR_ATTEMPTS = 2;
+    // Maximum number of revision quizzes
+    public static final int MAX_REVISION_ATTEMPTS = 2;
+
+    // Layout of the state: verdict (bits 0-1), regular attempts (bits 2-3), regular attempt in progress (bit 4),
+    // revision attempts (bits 5-6) and revision attempt in progress (bit 7)
+    private static final int VERDICT_MASK = 0b11;
+    private static final int REGULAR_SHIFT = 2;
+    private static final int REGULAR_IN_PROGRESS = 1 << 4;
+    private static final int REVISION_SHIFT = 5;
+    private static final int REVISION_IN_PROGRESS = 1 << 7;
+    private static final int IN_PROGRESS = REGULAR_IN_PROGRESS | REVISION_IN_PROGRESS;
+    private static final int COUNT_MASK = 0b11;
+
+    private static final Verdict[] VERDICTS = Verdict.values();
+    private static final AtomicIntegerFieldUpdater<Statistics> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Statistics.class, "state");
+
     private final Student student;
-    private final List<Double> regularQuizScores;
-    private final List<Double> revisionQuizScores;
-    private int regularAttempts;
-    private int revisionAttempts;
-    private String verdict;
+    // Null if the student does not belong to a cohort
+    private final CohortStatistics cohort;
+    private final double[] regularQuizScores;
+    private final double[] revisionQuizScores;
+    private volatile int state;
 
     /**
-     * Constructor for the statistics of the given student. Initially, no quizzes have
-     * been taken, and the default final verdict is To Be Determined (TBD).
+     * Constructor for the statistics of the given student, which does not belong to a cohort. Initially, no
+     * quizzes have been taken, and the default final verdict is To Be Determined (TBD).
      *
      * @param student The student whose quiz statistics are tracked.
      */
     public Statistics(Student student) {
         this.student = student;
-        this.regularQuizScores = new ArrayList<>();
-        this.revisionQuizScores = new ArrayList<>();
-        this.verdict = "TBD";  // TBD until a final decision
+        this.cohort = null;
+        this.regularQuizScores = new double[MAX_REGULAR_ATTEMPTS];
+        this.revisionQuizScores = new double[MAX_REVISION_ATTEMPTS];
+        this.state = Verdict.TBD.ordinal();  // TBD until a final decision
+    }
+
+    /**
+     * Constructor for the statistics of the given student that adds the attempts to the given cohort.
+     *
+     * @param student The student whose quiz statistics are tracked.
+     * @param cohort The cohort updated with the attempts of the student.
+     * @throws IllegalArgumentException if the cohort is null.
+     */
+    public Statistics(Student student, CohortStatistics cohort) {
+        if (cohort == null) {
+            throw new IllegalArgumentException("The cohort cannot be null.");
+        }
+        this.student = student;
+        this.cohort = cohort;
+        this.regularQuizScores = new double[MAX_REGULAR_ATTEMPTS];
+        this.revisionQuizScores = new double[MAX_REVISION_ATTEMPTS];
+        this.state = Verdict.TBD.ordinal();  // TBD until a final decision
     }
 
     public Student getStudent() {
@@ -36,55 +83,200 @@ public final class Statistics {
     }
 
     public String getVerdict() {
-        return verdict;
+        return verdictOf(state).name();
+    }
+
+    public Verdict getFinalVerdict() {
+        return verdictOf(state);
     }
 
     public int getRevisionAttempts(){
-        return revisionAttempts;
+        return revisionAttemptsOf(state);
     }
 
     public int getRegularAttempts(){
-        return regularAttempts;
+        return regularAttemptsOf(state);
+    }
+
+    /**
+     * Returns the scores of the regular quizzes recorded so far, in the order they were taken.
+     *
+     * @return A new array with the scores.
+     */
+    public double[] getRegularQuizScores() {
+        return Arrays.copyOf(regularQuizScores, regularAttemptsOf(state));
+    }
+
+    /**
+     * Returns the scores of the revision quizzes recorded so far, in the order they were taken.
+     *
+     * @return A new array with the scores.
+     */
+    public double[] getRevisionQuizScores() {
+        return Arrays.copyOf(revisionQuizScores, revisionAttemptsOf(state));
     }
 
 
     /**
      * Records the score of a regular quiz attempt and updates the final verdict accordingly.
      * If the student scores 50% or higher, they pass. If they fail two regular quizzes,
-     * the final verdict is FAIL.
+     * the final verdict is FAIL. The score is ignored if a verdict has been reached.
      *
      * @param score The score the student achieved on the quiz.
+     * @throws IllegalStateException if an attempt of the student is in progress.
      */
 
     public void recordRegularQuizScore(double score) {
-        if ("PASS".equals(verdict) || "FAIL".equals(verdict)) {
-            return;  // No more attempts allowed if a verdict has been reached
+        while (!reserveRegularAttempt()) {
+            int current = state;
+            if (verdictOf(current) != Verdict.TBD) {
+                return;  // No more attempts allowed if a verdict has been reached
+            }
+            if ((current & IN_PROGRESS) != 0) {
+                throw new IllegalStateException("Student already has a quiz in progress.");
+            }
+            // The attempt in progress finished after the reservation failed, so it is tried again
         }
+        commitRegularAttempt(score);
+    }
+
+    /**
+     * Records the score of a revision quiz attempt. Revision quizzes do not affect
+     * the student's final verdict, but they are tracked to help improve performance.
+     *
+     * The score is ignored if a verdict has been given or the student has no revision attempts left.
+     *
+     * @param score The score the student achieved on the revision quiz.
+     * @throws IllegalStateException if an attempt of the student is in progress.
+     */
+
+    public void recordRevisionQuizScore(double score) {
+        while (!reserveRevisionAttempt()) {
+            int current = state;
+            if (verdictOf(current) != Verdict.TBD || revisionAttemptsOf(current) >= MAX_REVISION_ATTEMPTS) {
+                return;  // No more revision attempts if limit reached or verdict given
+            }
+            if ((current & IN_PROGRESS) != 0) {
+                throw new IllegalStateException("Student already has a quiz in progress.");
+            }
+            // The attempt in progress finished after the reservation failed, so it is tried again
+        }
+        commitRevisionAttempt(score);
+    }
+
+    /**
+     * Reserves a regular quiz attempt before the quiz is graded. The reservation fails if a verdict
+     * has been given or another attempt of the student, of either type, is in progress.
+     *
+     * @return True if the attempt was reserved, false otherwise.
+     */
+    public boolean reserveRegularAttempt() {
+        int current;
+        do {
+            current = state;
+            if (verdictOf(current) != Verdict.TBD || (current & IN_PROGRESS) != 0) {
+                return false;
+            }
+        } while (!STATE.compareAndSet(this, current, current | REGULAR_IN_PROGRESS));
+        return true;
+    }
 
-        regularQuizScores.add(score);
-        regularAttempts++;
+    /**
+     * Commits the reserved regular attempt with its score and updates the final verdict.
+     *
+     * @param score The score the student achieved on the quiz.
+     * @throws IllegalStateException if there is no regular attempt in progress.
+     */
+    public void commitRegularAttempt(double score) {
+        int current = state;
+        if ((current & REGULAR_IN_PROGRESS) == 0) {
+            throw new IllegalStateException("There is no regular quiz attempt in progress.");
+        }
+        int attempts = regularAttemptsOf(current);
+        regularQuizScores[attempts] = score;  // Only the owner of the reservation writes this slot
+        attempts++;
 
+        Verdict verdict = Verdict.TBD;
         if (score >= 0.5) {
-            verdict = "PASS";
-        } else if (regularAttempts >= 2) {
-            verdict = "FAIL";
+            verdict = Verdict.PASS;
+        } else if (attempts >= MAX_REGULAR_ATTEMPTS) {
+            verdict = Verdict.FAIL;
+        }
+
+        int next;
+        do {
+            current = state;
+            next = (current & ~(REGULAR_IN_PROGRESS | COUNT_MASK << REGULAR_SHIFT | VERDICT_MASK))
+                    | attempts << REGULAR_SHIFT | verdict.ordinal();
+        } while (!STATE.compareAndSet(this, current, next));
+
+        if (cohort != null) {
+            cohort.regularAttemptRecorded(attempts - 1, revisionAttemptsOf(current), score, verdict);
         }
     }
 
     /**
-     * Records the score of a revision quiz attempt. Revision quizzes do not affect
-     * the student's final verdict, but they are tracked to help improve performance.
+     * Cancels the reserved regular attempt, for example when the quiz could not be graded.
+     */
+    public void cancelRegularAttempt() {
+        int current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, current & ~REGULAR_IN_PROGRESS));
+    }
+
+    /**
+     * Reserves a revision quiz attempt before the quiz is graded. The reservation fails if a verdict
+     * has been given, the student has no revision attempts left, or another attempt of the student, of either
+     * type, is in progress.
+     *
+     * @return True if the attempt was reserved, false otherwise.
+     */
+    public boolean reserveRevisionAttempt() {
+        int current;
+        do {
+            current = state;
+            if (verdictOf(current) != Verdict.TBD || (current & IN_PROGRESS) != 0
+                    || revisionAttemptsOf(current) >= MAX_REVISION_ATTEMPTS) {
+                return false;
+            }
+        } while (!STATE.compareAndSet(this, current, current | REVISION_IN_PROGRESS));
+        return true;
+    }
+
+    /**
+     * Commits the reserved revision attempt with its score.
      *
      * @param score The score the student achieved on the revision quiz.
+     * @throws IllegalStateException if there is no revision attempt in progress.
      */
+    public void commitRevisionAttempt(double score) {
+        int current = state;
+        if ((current & REVISION_IN_PROGRESS) == 0) {
+            throw new IllegalStateException("There is no revision quiz attempt in progress.");
+        }
+        int attempts = revisionAttemptsOf(current);
+        revisionQuizScores[attempts] = score;  // Only the owner of the reservation writes this slot
 
-    public void recordRevisionQuizScore(double score) {
-        if (revisionAttempts >= 2 || "PASS".equals(verdict) || "FAIL".equals(verdict)) {
-            return;  // No more revision attempts if limit reached or verdict given
+        int next;
+        do {
+            current = state;
+            next = (current & ~(REVISION_IN_PROGRESS | COUNT_MASK << REVISION_SHIFT)) | (attempts + 1) << REVISION_SHIFT;
+        } while (!STATE.compareAndSet(this, current, next));
+
+        if (cohort != null) {
+            cohort.revisionAttemptRecorded(regularAttemptsOf(current), attempts, score);
         }
+    }
 
-        revisionQuizScores.add(score);
-        revisionAttempts++;
+    /**
+     * Cancels the reserved revision attempt, for example when the quiz could not be graded.
+     */
+    public void cancelRevisionAttempt() {
+        int current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, current & ~REVISION_IN_PROGRESS));
     }
 
 
@@ -95,15 +287,39 @@ public final class Statistics {
      * @return A formatted string containing the student's quiz statistics.
      */
     public String generateStatistics() {
+        int current = state;
+        int regularAttempts = regularAttemptsOf(current);
+        int revisionAttempts = revisionAttemptsOf(current);
+
         StringBuilder report = new StringBuilder();
         report.append("Statistics for student: ").append(student.getName()).append("\n");
-        report.append("Final verdict: ").append(verdict).append("\n");
+        report.append("Final verdict: ").append(verdictOf(current)).append("\n");
         report.append("Number of regular quiz attempts: ").append(regularAttempts).append("\n");
         report.append("Number of revision quiz attempts: ").append(revisionAttempts).append("\n");
-        report.append("Regular quiz scores: ").append(regularQuizScores).append("\n");
-        report.append("Revision quiz scores: ").append(revisionQuizScores).append("\n");
+        report.append("Regular quiz scores: ");
+        appendScores(report, regularQuizScores, regularAttempts).append("\n");
+        report.append("Revision quiz scores: ");
+        appendScores(report, revisionQuizScores, revisionAttempts).append("\n");
         return report.toString();
     }
+    /**
+     * Appends the scores with the same format as a list, for example "[0.3, 0.6]".
+     *
+     * @param report The report where the scores are appended.
+     * @param scores The array of scores.
+     * @param count The number of scores recorded in the array.
+     * @return The same report, to continue appending.
+     */
+    private static StringBuilder appendScores(StringBuilder report, double[] scores, int count) {
+        report.append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                report.append(", ");
+            }
+            report.append(scores[i]);
+        }
+        return report.append(']');
+    }
 
     /**
      * Method to check if the student is eligible to take a regular quiz. A student can only
@@ -113,7 +329,7 @@ public final class Statistics {
      */
 
     public boolean canTakeRegularQuiz() {
-        return "TBD".equals(verdict);
+        return verdictOf(state) == Verdict.TBD;
     }
 
     /**
@@ -124,7 +340,35 @@ public final class Statistics {
      */
 
     public boolean canTakeRevisionQuiz() {
-        return "TBD".equals(verdict) && revisionAttempts < 2;
+        int current = state;
+        return verdictOf(current) == Verdict.TBD && revisionAttemptsOf(current) < MAX_REVISION_ATTEMPTS;
+    }
+
+    /**
+     * Copies the recorded scores to the given arrays and returns the state they were read with, so the scores,
+     * the attempts and the verdict of an export come from one read, as in {@link #generateStatistics()}.
+     *
+     * @param regularScores An array of {@link #MAX_REGULAR_ATTEMPTS} scores that receives the regular scores.
+     * @param revisionScores An array of {@link #MAX_REVISION_ATTEMPTS} scores that receives the revision scores.
+     * @return The state, to be decoded with the methods of this class.
+     */
+    int readScores(double[] regularScores, double[] revisionScores) {
+        int current = state;
+        System.arraycopy(regularQuizScores, 0, regularScores, 0, regularAttemptsOf(current));
+        System.arraycopy(revisionQuizScores, 0, revisionScores, 0, revisionAttemptsOf(current));
+        return current;
+    }
+
+    static Verdict verdictOf(int state) {
+        return VERDICTS[state & VERDICT_MASK];
+    }
+
+    static int regularAttemptsOf(int state) {
+        return state >>> REGULAR_SHIFT & COUNT_MASK;
+    }
+
+    static int revisionAttemptsOf(int state) {
+        return state >>> REVISION_SHIFT & COUNT_MASK;
     }
 
 }
@@ -0,0 +1,402 @@
+package statistics;
+
+import student.Student;
+import student.StudentRegistry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The StatisticsExporter writes the statistics of many students, for example every student of a term, as CSV or
+ * JSON. The records are formatted straight into a buffer that is reused for the whole export and written out
+ * every few kilobytes, so no String is built per student and the memory used does not grow with the number of
+ * students. The scores are written with the same format as {@link Statistics#generateStatistics()}, and the dates
+ * of birth as {@code yyyy-MM-dd} in UTC, as the {@link server.QuizServer} reads them.
+ * <p>
+ * Each record is read from the state of the student at one moment, so it is consistent even if the student is
+ * taking a quiz during the export. An exporter keeps its buffers between exports and is not thread safe, so each
+ * thread should use its own.
+ */
+public final class StatisticsExporter {
+
+    /**
+     * The format of an export.
+     */
+    public enum Format {
+        // One header line and one line per student, with one column per score
+        CSV,
+        // An array with one object per student, one object per line
+        JSON
+    }
+
+    // The buffer is written out when a record ends after this number of chars
+    private static final int FLUSH_THRESHOLD = 8192;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final Format format;
+    private final StringBuilder buffer;
+    private final char[] chars;
+    private final CharBuffer charView;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder;
+    private final double[] regularScores;
+    private final double[] revisionScores;
+
+    /**
+     * Constructs an exporter for the given format.
+     *
+     * @param format The format of the exports.
+     * @throws IllegalArgumentException if the format is null.
+     */
+    public StatisticsExporter(Format format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format cannot be null.");
+        }
+        this.format = format;
+        this.buffer = new StringBuilder(FLUSH_THRESHOLD * 2);
+        this.chars = new char[FLUSH_THRESHOLD * 2];
+        this.charView = CharBuffer.wrap(chars);
+        this.bytes = ByteBuffer.allocate(FLUSH_THRESHOLD * 4);
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.regularScores = new double[Statistics.MAX_REGULAR_ATTEMPTS];
+        this.revisionScores = new double[Statistics.MAX_REVISION_ATTEMPTS];
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Exports the statistics of the given students to an Appendable, for example a {@link Writer} or a
+     * StringBuilder. The Appendable is not flushed or closed.
+     *
+     * @param students The students to export.
+     * @param out Where the export is written.
+     * @return The number of students exported.
+     * @throws IllegalArgumentException if an argument or a student is null.
+     * @throws IOException if the export cannot be written.
+     */
+    public long export(Iterable<Student> students, Appendable out) throws IOException {
+        if (students == null || out == null) {
+            throw new IllegalArgumentException("Students and output cannot be null.");
+        }
+        begin();
+        long count = 0;
+        for (Student student : students) {
+            appendRecord(student, count++);
+            if (buffer.length() >= FLUSH_THRESHOLD) {
+                flush(out);
+            }
+        }
+        end(count);
+        flush(out);
+        return count;
+    }
+
+    /**
+     * Exports the statistics of all the students of a registry, in the order of their ids, to an Appendable.
+     * Students registered during the export are not included.
+     *
+     * @param registry The registry of the students.
+     * @param out Where the export is written.
+     * @return The number of students exported.
+     * @throws IllegalArgumentException if an argument is null.
+     * @throws IOException if the export cannot be written.
+     */
+    public long export(StudentRegistry registry, Appendable out) throws IOException {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null.");
+        }
+        return export(students(registry), out);
+    }
+
+    /**
+     * Exports the statistics of the given students to a channel, for example a FileChannel, encoded in UTF-8.
+     * The channel is not closed.
+     *
+     * @param students The students to export.
+     * @param channel Where the export is written.
+     * @return The number of students exported.
+     * @throws IllegalArgumentException if an argument or a student is null.
+     * @throws IOException if the export cannot be written.
+     */
+    public long export(Iterable<Student> students, WritableByteChannel channel) throws IOException {
+        if (students == null || channel == null) {
+            throw new IllegalArgumentException("Students and channel cannot be null.");
+        }
+        encoder.reset();
+        begin();
+        long count = 0;
+        for (Student student : students) {
+            appendRecord(student, count++);
+            if (buffer.length() >= FLUSH_THRESHOLD) {
+                flush(channel, false);
+            }
+        }
+        end(count);
+        flush(channel, true);
+        return count;
+    }
+
+    /**
+     * Exports the statistics of all the students of a registry, in the order of their ids, to a channel.
+     * Students registered during the export are not included.
+     *
+     * @param registry The registry of the students.
+     * @param channel Where the export is written.
+     * @return The number of students exported.
+     * @throws IllegalArgumentException if an argument is null.
+     * @throws IOException if the export cannot be written.
+     */
+    public long export(StudentRegistry registry, WritableByteChannel channel) throws IOException {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null.");
+        }
+        return export(students(registry), channel);
+    }
+
+    /**
+     * Iterates the students registered when the export starts, without copying them.
+     */
+    private static Iterable<Student> students(StudentRegistry registry) {
+        int size = registry.size();
+        return () -> new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Student next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return registry.get(next++);
+            }
+        };
+    }
+
+    private void begin() {
+        buffer.setLength(0);
+        if (format == Format.CSV) {
+            buffer.append("firstName,lastName,dateOfBirth,verdict,regularAttempts,revisionAttempts");
+            for (int i = 1; i <= Statistics.MAX_REGULAR_ATTEMPTS; i++) {
+                buffer.append(",regularScore").append(i);
+            }
+            for (int i = 1; i <= Statistics.MAX_REVISION_ATTEMPTS; i++) {
+                buffer.append(",revisionScore").append(i);
+            }
+            buffer.append('\n');
+        } else {
+            buffer.append('[');
+        }
+    }
+
+    private void end(long count) {
+        if (format == Format.JSON) {
+            buffer.append(count == 0 ? "]\n" : "\n]\n");
+        }
+    }
+
+    /**
+     * Appends the record of a student to the buffer.
+     */
+    private void appendRecord(Student student, long index) {
+        if (student == null) {
+            throw new IllegalArgumentException("Students cannot be null.");
+        }
+        int state = student.getStatistics().readScores(regularScores, revisionScores);
+        Verdict verdict = Statistics.verdictOf(state);
+        int regularAttempts = Statistics.regularAttemptsOf(state);
+        int revisionAttempts = Statistics.revisionAttemptsOf(state);
+
+        if (format == Format.CSV) {
+            appendCsv(student.getFirstName()).append(',');
+            appendCsv(student.getLastName()).append(',');
+            appendDate(student.getDateOfBirthMillis()).append(',');
+            buffer.append(verdict.name()).append(',').append(regularAttempts).append(',').append(revisionAttempts);
+            appendCsvScores(regularScores, regularAttempts);
+            appendCsvScores(revisionScores, revisionAttempts);
+            buffer.append('\n');
+        } else {
+            buffer.append(index == 0 ? "\n" : ",\n");
+            buffer.append("{\"firstName\":");
+            appendJson(student.getFirstName());
+            buffer.append(",\"lastName\":");
+            appendJson(student.getLastName());
+            buffer.append(",\"dateOfBirth\":\"");
+            appendDate(student.getDateOfBirthMillis());
+            buffer.append("\",\"verdict\":\"").append(verdict.name());
+            buffer.append("\",\"regularScores\":");
+            appendJsonScores(regularScores, regularAttempts);
+            buffer.append(",\"revisionScores\":");
+            appendJsonScores(revisionScores, revisionAttempts);
+            buffer.append('}');
+        }
+    }
+
+    /**
+     * Appends a CSV field, quoted if it contains a separator, a quote or a line break.
+     */
+    private StringBuilder appendCsv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return buffer.append(value);
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        return buffer.append('"');
+    }
+
+    private void appendCsvScores(double[] scores, int count) {
+        for (int i = 0; i < scores.length; i++) {
+            buffer.append(',');
+            if (i < count) {
+                buffer.append(scores[i]);
+            }
+        }
+    }
+
+    /**
+     * Appends a JSON string, escaping quotes, backslashes and control characters.
+     */
+    private void appendJson(String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.append('\\').append(c);
+            } else if (c == '\n') {
+                buffer.append("\\n");
+            } else if (c < 0x20) {
+                buffer.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xf, 16));
+            } else {
+                buffer.append(c);
+            }
+        }
+        buffer.append('"');
+    }
+
+    private void appendJsonScores(double[] scores, int count) {
+        buffer.append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            buffer.append(scores[i]);
+        }
+        buffer.append(']');
+    }
+
+    /**
+     * Appends the UTC date of the given time as yyyy-MM-dd, computed from the days since the epoch so no
+     * calendar or date object is created.
+     */
+    private StringBuilder appendDate(long millis) {
+        // Days to civil date, from Howard Hinnant's date algorithms
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY) + 719_468;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year >= 0 && year < 1000) {
+            buffer.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        buffer.append(year).append('-');
+        if (month < 10) {
+            buffer.append('0');
+        }
+        buffer.append(month).append('-');
+        if (day < 10) {
+            buffer.append('0');
+        }
+        return buffer.append(day);
+    }
+
+    /**
+     * Writes the buffer to an Appendable and empties it. Writers receive the chars without creating a String.
+     */
+    private void flush(Appendable out) throws IOException {
+        int offset = 0;
+        int length = buffer.length();
+        while (offset < length) {
+            int end = Math.min(length, offset + chars.length);
+            buffer.getChars(offset, end, chars, 0);
+            if (out instanceof Writer) {
+                ((Writer) out).write(chars, 0, end - offset);
+            } else {
+                charView.clear().limit(end - offset);
+                out.append(charView);
+            }
+            offset = end;
+        }
+        buffer.setLength(0);
+    }
+
+    /**
+     * Encodes the buffer to the channel and empties it. A surrogate pair split between two chunks of the buffer
+     * is left by the encoder and encoded with the next chunk. The buffer is only written at the end of a record,
+     * which is an ASCII char, so the last chunk is always encoded completely.
+     */
+    private void flush(WritableByteChannel channel, boolean last) throws IOException {
+        int offset = 0;
+        int length = buffer.length();
+        while (offset < length) {
+            int end = Math.min(length, offset + chars.length);
+            buffer.getChars(offset, end, chars, 0);
+            charView.clear().limit(end - offset);
+            CoderResult result;
+            do {
+                result = encoder.encode(charView, bytes, last && end == length);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                write(channel);
+            } while (result.isOverflow());
+            offset = end - charView.remaining();
+        }
+        if (last) {
+            while (encoder.flush(bytes).isOverflow()) {
+                write(channel);
+            }
+            write(channel);
+        }
+        buffer.setLength(0);
+    }
+
+    private void write(WritableByteChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
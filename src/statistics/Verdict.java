@@ -0,0 +1,11 @@
+package statistics;
+
+/**
+ * The final verdict of a student. It is To Be Determined (TBD) until the student passes
+ * a regular quiz or fails two of them.
+ */
+public enum Verdict {
+    TBD,
+    PASS,
+    FAIL
+}
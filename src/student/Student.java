@@ -1,8 +1,9 @@
 package student;
 
+import statistics.CohortStatistics;
 import statistics.Statistics;
 import java.util.Date;
-import java.util.Objects;
+import java.util.Locale;
 
 /**
  * The Student class represents a student with a first name, last name, and date of birth.
@@ -14,6 +15,9 @@ public final class Student {
     private final String lastName;
     private final Date dateOfBirth;
     private final Statistics statistics;
+    // Case-folded names, each after its length, and date of birth, computed once so equals and hashCode do not allocate
+    private final String identityKey;
+    private final int hash;
 
     /**
      * Constructs a new Student with the specified first name, last name, and date of birth.
@@ -23,10 +27,24 @@ public final class Student {
      * @param dateOfBirth The student date of birth.
      */
     public Student(String firstName, String lastName, Date dateOfBirth) {
+        this(firstName, lastName, dateOfBirth, null);
+    }
+
+    /**
+     * Constructs a new Student whose attempts are added to the given cohort.
+     *
+     * @param firstName   The student first name.
+     * @param lastName    The student last name.
+     * @param dateOfBirth The student date of birth.
+     * @param cohort      The cohort of the student, or null if it does not belong to one.
+     */
+    public Student(String firstName, String lastName, Date dateOfBirth, CohortStatistics cohort) {
         this.firstName = firstName.trim();
         this.lastName = lastName.trim();
         this.dateOfBirth = new Date(dateOfBirth.getTime());
-        this.statistics = new Statistics(this);
+        this.identityKey = identityKey(this.firstName, this.lastName, this.dateOfBirth.getTime());
+        this.hash = identityKey.hashCode();
+        this.statistics = cohort == null ? new Statistics(this) : new Statistics(this, cohort);
     }
 
     // Getters
@@ -46,10 +64,39 @@ public final class Student {
         return new Date(dateOfBirth.getTime());
     }
 
+    /**
+     * Returns the date of birth in milliseconds since the epoch, without copying the date.
+     *
+     * @return The milliseconds of the date of birth.
+     */
+    public long getDateOfBirthMillis() {
+        return dateOfBirth.getTime();
+    }
+
     public Statistics getStatistics() {
         return statistics;
     }
 
+    /**
+     * Returns a key that identifies the student: equal students have the same key, and different students have
+     * different keys. It can be used to place the student, for example in a hash ring.
+     *
+     * @return The identity key of the student.
+     */
+    public String getIdentityKey() {
+        return identityKey;
+    }
+
+    /**
+     * Builds the identity key from the case-folded names, each one after its length, so a name that contains
+     * the text of the other one cannot give the key of another student.
+     */
+    private static String identityKey(String firstName, String lastName, long dateOfBirth) {
+        String first = firstName.toLowerCase(Locale.ROOT);
+        String last = lastName.toLowerCase(Locale.ROOT);
+        return first.length() + ":" + first + last.length() + ":" + last + dateOfBirth;
+    }
+
     /**
      * Returns a string representation of the student, including their full name and date of birth.
      *
@@ -73,21 +120,19 @@ public final class Student {
         if (this == o) return true;
         if (!(o instanceof Student)) return false;
         Student student = (Student) o;
-        return firstName.equalsIgnoreCase(student.firstName) &&
-                lastName.equalsIgnoreCase(student.lastName) &&
-                dateOfBirth.equals(student.dateOfBirth);
+        return hash == student.hash && identityKey.equals(student.identityKey);
     }
 
     /**
      * The method hashCode is overwritten in order to create an accurate hashcode,
-     * using the names a date of birth of the student
+     * using the names a date of birth of the student. It is computed once when the student is created.
      *
      * @return A hash code value for the student.
      */
 
     @Override
     public int hashCode() {
-        return Objects.hash(firstName.toLowerCase(), lastName.toLowerCase(), dateOfBirth);
+        return hash;
     }
 }
 
@@ -0,0 +1,100 @@
+package student;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The StudentRegistry interns students to dense integer ids (0, 1, 2, ...), so per-student state
+ * can be kept in arrays indexed by the id instead of maps keyed by the student.
+ * Equal students (same names ignoring case and same date of birth) get the same id, and the registry
+ * keeps the first student registered with each id. All the methods are thread safe, and looking up
+ * a student that is already registered does not take a lock.
+ */
+public final class StudentRegistry {
+
+    /**
+     * Id returned for students that are not registered.
+     */
+    public static final int UNREGISTERED = -1;
+
+    private final Map<Student, Integer> ids;
+    private volatile Student[] students;
+    private volatile int size;
+
+    /**
+     * Constructs an empty registry.
+     */
+    public StudentRegistry() {
+        this.ids = new ConcurrentHashMap<>();
+        this.students = new Student[16];
+    }
+
+    /**
+     * Returns the id of the student, registering it if it was not registered yet.
+     *
+     * @param student the student to register
+     * @return the id of the student
+     * @throws IllegalArgumentException if the student is null
+     */
+    public int intern(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null.");
+        }
+        Integer id = ids.get(student);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(student);
+            if (id != null) {
+                return id;
+            }
+            int newId = size;
+            Student[] current = students;
+            if (newId == current.length) {
+                current = Arrays.copyOf(current, newId * 2);
+                students = current;
+            }
+            current[newId] = student;
+            size = newId + 1;
+            ids.put(student, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Returns the id of the student without registering it.
+     *
+     * @param student the student to look for
+     * @return the id of the student, or {@link #UNREGISTERED} if it is not registered
+     */
+    public int idOf(Student student) {
+        Integer id = ids.get(student);
+        return id == null ? UNREGISTERED : id;
+    }
+
+    /**
+     * Returns the student registered with the given id.
+     *
+     * @param id the id of the student
+     * @return the student with that id
+     * @throws IllegalArgumentException if there is no student with that id
+     */
+    public Student get(int id) {
+        int registered = size;
+        if (id < 0 || id >= registered) {
+            throw new IllegalArgumentException("There is no student with id " + id);
+        }
+        return students[id];
+    }
+
+    /**
+     * Returns the number of registered students, which is also the next id to be assigned.
+     *
+     * @return the number of registered students
+     */
+    public int size() {
+        return size;
+    }
+}
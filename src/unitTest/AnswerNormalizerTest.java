@@ -0,0 +1,72 @@
+package unitTest;
+import question.AnswerNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the AnswerNormalizer class.
+ */
+public class AnswerNormalizerTest {
+
+    @Test
+    public void testNormalize() {
+        assertEquals("george orwell", AnswerNormalizer.normalize("  George \t  ORWELL \n"));
+        assertEquals("h2o", AnswerNormalizer.normalize("H2O"));
+        assertEquals("", AnswerNormalizer.normalize("   "));
+    }
+
+    @Test
+    public void testMatchesNormalizedKey() {
+        String key = AnswerNormalizer.normalize("George Orwell");
+        assertTrue(AnswerNormalizer.matches("george orwell", key));
+        assertTrue(AnswerNormalizer.matches("   GEORGE\t\torwell  ", key));
+    }
+
+    @Test
+    public void testDoesNotMatch() {
+        String key = AnswerNormalizer.normalize("George Orwell");
+        assertFalse(AnswerNormalizer.matches("georgeorwell", key));
+        assertFalse(AnswerNormalizer.matches("george orwel", key));
+        assertFalse(AnswerNormalizer.matches("george orwell x", key));
+        assertFalse(AnswerNormalizer.matches("", key));
+        assertFalse(AnswerNormalizer.matches(null, key));
+    }
+
+    /**
+     * Test that the result is the same as the regex based normalization.
+     */
+    @Test
+    public void testSameResultAsRegexNormalization() {
+        String[] answers = {"Quito", "  quIto ", "a  b\tc", "\n\nMadrid\r\n", "", " x ", "\u0000Quito\u001F",
+                "a\u0001 b", "\u001F \u0002", "\uD801\uDC00x", "\u0130stanbul", "\u00C9  COLE ", "\u03A3\u039F\u03A3 "};
+        for (String answer : answers) {
+            String expected = answer.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+            assertEquals(expected, AnswerNormalizer.normalize(answer));
+            assertTrue(AnswerNormalizer.matches(answer, expected));
+            assertEquals(AnswerNormalizer.hash(expected), AnswerNormalizer.hash(answer));
+        }
+    }
+
+    @Test
+    public void testControlCharactersAreTrimmed() {
+        assertEquals("quito", AnswerNormalizer.normalize("\u0000 Quito\u001F"));
+        assertEquals("a\u0001 b", AnswerNormalizer.normalize("A\u0001  B"));
+        assertTrue(AnswerNormalizer.matches("\u0003QUITO\u0000", "quito"));
+    }
+
+    /**
+     * Test that answers with characters outside of ASCII are lower-cased by code point.
+     */
+    @Test
+    public void testLowerCaseByCodePoint() {
+        assertEquals("\uD801\uDC28", AnswerNormalizer.normalize("\uD801\uDC00"));
+        assertEquals("i\u0307stanbul", AnswerNormalizer.normalize("\u0130STANBUL"));
+        String key = AnswerNormalizer.normalize(" \u00C9cole  NORMALE ");
+        assertTrue(AnswerNormalizer.matches("\u00E9COLE normale", key));
+        assertEquals(AnswerNormalizer.hash("\u00E9COLE normale"), AnswerNormalizer.hash(" \u00C9cole  NORMALE "));
+        assertFalse(AnswerNormalizer.matches("ecole normale", key));
+    }
+}
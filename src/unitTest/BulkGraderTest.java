@@ -0,0 +1,111 @@
+package unitTest;
+
+import grading.BulkGrader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.MultipleChoiceQuestion;
+import question.Question;
+import quiz.RegularQuiz;
+import student.Student;
+import student.StudentRegistry;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BulkGrader, which grades files of submissions in parallel.
+ */
+public class BulkGraderTest {
+
+    private List<Question> questionPool;
+    private RegularQuiz regularQuiz;
+    private StudentRegistry students;
+    private Date birthDate;
+
+    @BeforeEach
+    public void setup() {
+        questionPool = new ArrayList<>();
+        questionPool.add(new FreeResponseQuestion("Bulk question: capital of Chile?", "Santiago"));
+        questionPool.add(new MultipleChoiceQuestion("Bulk question: which are odd?", new String[]{"a", "c"}));
+        regularQuiz = new RegularQuiz(questionPool);
+        students = new StudentRegistry();
+        birthDate = Date.from(LocalDate.of(2000, 5, 17).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    @Test
+    public void testGradeCsv() throws Exception {
+        int free = 0;
+        int choice = 1;
+        String input = "firstName,lastName,dateOfBirth,question,answer\n"
+                + "Ana,Diaz,2000-05-17," + free + ",santiago\n"
+                + "Ana,Diaz,2000-05-17," + choice + ",\"c, a\"\n"
+                + "Luis,Rojas,2000-05-17," + free + ",Lima\n"
+                + "Luis,Rojas,2000-05-17," + choice + ",b\n";
+
+        StringBuilder output = new StringBuilder();
+        BulkGrader.Report report = new BulkGrader(regularQuiz, students).grade(new StringReader(input), BulkGrader.Format.CSV, output);
+
+        assertEquals(4, report.getRecords());
+        assertEquals(2, report.getAttempts());
+        assertEquals(0, report.getMalformedRecords());
+        Set<String> lines = new HashSet<>(Arrays.asList(output.toString().split("\n")));
+        assertEquals(Set.of("Ana,Diaz,2000-05-17,1.0,PASS,", "Luis,Rojas,2000-05-17,0.0,TBD,"), lines);
+
+        Student ana = students.get(students.idOf(new Student("Ana", "Diaz", birthDate)));
+        assertEquals("PASS", ana.getStatistics().getVerdict());
+        assertEquals(2, regularQuiz.getStudentHistory().get(ana).size());
+    }
+
+    @Test
+    public void testGradeNdjsonAndReportMalformedRecords() throws Exception {
+        int free = 0;
+        String input = "{\"firstName\":\"Eva\",\"lastName\":\"Paz\",\"dateOfBirth\":\"2000-05-17\",\"question\":" + free
+                + ",\"answer\":\"  SANTIAGO \"}\n"
+                + "{\"firstName\":\"Eva\",\"lastName\":\"Paz\"}\n"
+                + "not json\n";
+
+        StringBuilder output = new StringBuilder();
+        BulkGrader.Report report = new BulkGrader(regularQuiz, students).grade(new StringReader(input), BulkGrader.Format.NDJSON, output);
+
+        assertEquals(1, report.getRecords());
+        assertEquals(2, report.getMalformedRecords());
+        assertTrue(output.toString().contains(
+                "{\"firstName\":\"Eva\",\"lastName\":\"Paz\",\"dateOfBirth\":\"2000-05-17\",\"score\":1.0,\"verdict\":\"PASS\"}\n"));
+        assertTrue(output.toString().contains("Malformed record at line 3"));
+    }
+
+    /**
+     * Test that the attempts of a student are taken in the order of the file, even with many lanes and small batches.
+     */
+    @Test
+    public void testAttemptsOfStudentKeepFileOrder() throws Exception {
+        int free = 0;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            String answer = i < 250 ? "wrong" : "Santiago";
+            input.append("Student").append(i % 50).append(",Test,2000-05-17,").append(free).append(',').append(answer).append('\n');
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BulkGrader grader = new BulkGrader(regularQuiz, students, pool, 1, 2);
+            BulkGrader.Report report = grader.grade(new StringReader(input.toString()), BulkGrader.Format.CSV, new StringBuilder());
+
+            assertEquals(500, report.getAttempts());
+            assertTrue(report.getMaxPendingBatches() <= 2);
+        } finally {
+            pool.shutdown();
+        }
+        for (int s = 0; s < 50; s++) {
+            Student student = students.get(students.idOf(new Student("Student" + s, "Test", birthDate)));
+            assertEquals("FAIL", student.getStatistics().getVerdict());
+            assertArrayEquals(new double[]{0.0, 0.0}, student.getStatistics().getRegularQuizScores());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package unitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import statistics.CohortStatistics;
+import statistics.Statistics;
+import statistics.Verdict;
+import student.Student;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CohortStatistics class, which is updated by the statistics of each student.
+ */
+public class CohortStatisticsTest {
+
+    private CohortStatistics cohort;
+
+    @BeforeEach
+    public void setup() {
+        cohort = new CohortStatistics();
+    }
+
+    private Statistics newStatistics(String name) {
+        return new Statistics(new Student(name, "Cohort", new Date(0)), cohort);
+    }
+
+    @Test
+    public void testEmptyCohort() {
+        assertEquals(0, cohort.getStudentCount());
+        assertEquals(0, cohort.getPassRate());
+        assertEquals(0, cohort.getAverageRegularScore());
+        assertArrayEquals(new long[CohortStatistics.HISTOGRAM_BUCKETS], cohort.getRegularScoreHistogram());
+    }
+
+    @Test
+    public void testVerdictsAndScores() {
+        Statistics passed = newStatistics("Passed");
+        passed.recordRegularQuizScore(0.3);
+        passed.recordRegularQuizScore(1.0);
+
+        Statistics failed = newStatistics("Failed");
+        failed.recordRevisionQuizScore(0.8);
+        failed.recordRegularQuizScore(0.1);
+        failed.recordRegularQuizScore(0.4);
+
+        Statistics pending = newStatistics("Pending");
+        pending.recordRevisionQuizScore(0.55);
+        newStatistics("NoAttempts");
+
+        assertEquals(3, cohort.getStudentCount());
+        assertEquals(1, cohort.getVerdictCount(Verdict.PASS));
+        assertEquals(1, cohort.getVerdictCount(Verdict.FAIL));
+        assertEquals(1, cohort.getVerdictCount(Verdict.TBD));
+        assertEquals(0.5, cohort.getPassRate());
+        assertEquals(4, cohort.getRegularQuizCount());
+        assertEquals(0.45, cohort.getAverageRegularScore(), 1e-9);
+        assertEquals(0.675, cohort.getAverageRevisionScore(), 1e-9);
+        assertArrayEquals(new long[]{0, 1, 0, 1, 1, 0, 0, 0, 0, 1}, cohort.getRegularScoreHistogram());
+        assertArrayEquals(new long[]{1, 0, 2}, cohort.getRegularAttemptDistribution());
+        assertArrayEquals(new long[]{1, 2, 0}, cohort.getRevisionAttemptDistribution());
+        assertTrue(cohort.generateReport().contains("Verdicts: PASS 1, FAIL 1, TBD 1"));
+    }
+
+    @Test
+    public void testAttemptsAfterVerdictAreNotCounted() {
+        Statistics stats = newStatistics("Done");
+        stats.recordRegularQuizScore(0.9);
+        stats.recordRegularQuizScore(0.2);
+        stats.recordRevisionQuizScore(0.2);
+
+        assertEquals(1, cohort.getRegularQuizCount());
+        assertEquals(0, cohort.getRevisionQuizCount());
+    }
+
+    @Test
+    public void testStudentsAreAddedToTheirOwnCohort() {
+        new Student("Member", "Cohort", new Date(0), cohort).getStatistics().recordRegularQuizScore(0.8);
+        new Student("Outsider", "Cohort", new Date(0)).getStatistics().recordRegularQuizScore(0.8);
+        new Student("Other", "Cohort", new Date(0), new CohortStatistics()).getStatistics().recordRegularQuizScore(0.8);
+
+        assertEquals(1, cohort.getStudentCount());
+        assertEquals(1, cohort.getRegularQuizCount());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int s = 0; s < 1000; s++) {
+                        Statistics stats = newStatistics("Thread" + thread + "Student" + s);
+                        stats.recordRevisionQuizScore(0.5);
+                        stats.recordRegularQuizScore(s % 2 == 0 ? 0.7 : 0.2);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8000, cohort.getStudentCount());
+        assertEquals(4000, cohort.getVerdictCount(Verdict.PASS));
+        assertEquals(4000, cohort.getVerdictCount(Verdict.TBD));
+        assertEquals(8000, cohort.getRevisionQuizCount());
+    }
+}
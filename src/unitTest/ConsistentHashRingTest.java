@@ -0,0 +1,69 @@
+package unitTest;
+
+import org.junit.jupiter.api.Test;
+import shard.ConsistentHashRing;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ConsistentHashRing class, which assigns keys to nodes.
+ */
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 20_000;
+
+    @Test
+    public void testKeysAreSpreadBetweenNodes() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c", "d");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get("student-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > KEYS / 4 * 0.75 && count < KEYS / 4 * 1.25, "Unbalanced share: " + counts);
+        }
+    }
+
+    @Test
+    public void testAddingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> before = ring("a", "b", "c");
+        ConsistentHashRing<String> after = ring("c", "a", "b", "d");
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "student-" + i;
+            String owner = after.get(key);
+            if (!owner.equals(before.get(key))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+
+        // About a quarter of the keys move to the fourth node
+        assertTrue(moved > KEYS / 4 * 0.75 && moved < KEYS / 4 * 1.25, "Moved " + moved);
+    }
+
+    @Test
+    public void testNodesAreKeptInOrder() {
+        ConsistentHashRing<String> ring = ring("b", "a");
+
+        assertEquals(List.of("b", "a"), ring.getNodes());
+        assertEquals(2, ring.size());
+        assertThrows(IllegalArgumentException.class, () -> ring.add("a", "a"));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<String>(0));
+        assertThrows(IllegalStateException.class, () -> new ConsistentHashRing<String>().get("key"));
+    }
+
+    private static ConsistentHashRing<String> ring(String... nodes) {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+        for (String node : nodes) {
+            ring.add(node, "node-" + node);
+        }
+        return ring;
+    }
+}
@@ -1,6 +1,8 @@
 package unitTest;
 import question.FreeResponseQuestion;
 import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.BitSet;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -40,4 +42,13 @@ public class FreeResponseQuestionTest {
         FreeResponseQuestion question = new FreeResponseQuestion("What is the capital of Ecuador?", "Quito");
         assertFalse(question.checkAnswer(""));
     }
+
+    @Test
+    public void testCheckAnswers() {
+        FreeResponseQuestion question = new FreeResponseQuestion("What is the capital of Ecuador?", "Quito");
+        BitSet correct = question.checkAnswers(Arrays.asList("quito", "London", null, " QUITO ", "Qui"));
+        assertEquals(2, correct.cardinality());
+        assertTrue(correct.get(0));
+        assertTrue(correct.get(3));
+    }
 }
@@ -0,0 +1,105 @@
+package unitTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.AnswerNormalizer;
+import question.FreeResponseQuestion;
+import question.GradingCache;
+import question.MultipleChoiceQuestion;
+import question.Question;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GradingCache class, checking the verdicts, the counters
+ * and the eviction of the least recently used verdicts.
+ */
+public class GradingCacheTest {
+
+    private GradingCache cache;
+    private Question freeResponse;
+    private Question multipleChoice;
+
+    @BeforeEach
+    public void setup() {
+        cache = new GradingCache(2);
+        freeResponse = new FreeResponseQuestion("What is the capital of Ecuador?", "Quito");
+        multipleChoice = new MultipleChoiceQuestion("Which are primary colors?", new String[]{"a", "c"});
+    }
+
+    @Test
+    public void testSameNormalizedAnswerIsAHit() {
+        assertTrue(cache.checkAnswer(freeResponse, "Quito"));
+        assertTrue(cache.checkAnswer(freeResponse, "  QUITO "));
+        assertFalse(cache.checkAnswer(freeResponse, "Lima"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(AnswerNormalizer.hash("quito"), AnswerNormalizer.hash(" Quito  "));
+    }
+
+    @Test
+    public void testQuestionsDoNotShareVerdicts() {
+        assertTrue(cache.checkAnswer(multipleChoice, "a,c"));
+        assertFalse(cache.checkAnswer(freeResponse, "a,c"));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedVerdictIsEvicted() {
+        cache.checkAnswer(freeResponse, "one");
+        cache.checkAnswer(freeResponse, "two");
+        cache.checkAnswer(freeResponse, "one");
+        cache.checkAnswer(freeResponse, "three");
+
+        assertEquals(2, cache.size());
+        cache.checkAnswer(freeResponse, "one");
+        assertEquals(2, cache.getHits());
+        cache.checkAnswer(freeResponse, "two");
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testWrappedQuestion() {
+        Question cached = cache.wrap(freeResponse);
+        assertEquals(freeResponse.getQuestionFormulation(), cached.getQuestionFormulation());
+        assertTrue(cached.checkAnswer("quito"));
+        assertTrue(cached.checkAnswer("Quito"));
+        assertFalse(cached.checkAnswer(null));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testLargeCacheIsBoundedAndSharedByThreads() throws InterruptedException {
+        GradingCache large = new GradingCache(1000);
+        AtomicInteger wrongVerdicts = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    if (large.checkAnswer(freeResponse, i % 7 == 0 ? "Quito" : "wrong " + i) != (i % 7 == 0)) {
+                        wrongVerdicts.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, wrongVerdicts.get());
+        assertEquals(20000, large.getHits() + large.getMisses());
+        assertTrue(large.size() <= 1000, "Size " + large.size());
+        assertTrue(large.checkAnswer(freeResponse, "quito"));
+        large.clear();
+        assertEquals(0, large.size());
+        assertEquals(0, large.getHits() + large.getMisses());
+    }
+
+    @Test
+    public void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new GradingCache(0));
+    }
+}
@@ -0,0 +1,101 @@
+package unitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.Question;
+import quiz.RegularQuiz;
+import statistics.ItemStatistics;
+import student.Student;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ItemStatistics class, which computes the difficulty and discrimination of each question.
+ */
+public class ItemStatisticsTest {
+
+    private ItemStatistics items;
+    // Ids of the questions of the attempts
+    private final int first = 0;
+    private final int second = 1;
+    private final int easy = 2;
+    private final int[] quiz = {first, second, easy};
+
+    @BeforeEach
+    public void setup() {
+        items = new ItemStatistics();
+    }
+
+    private static BitSet bits(int... positions) {
+        BitSet bits = new BitSet();
+        for (int position : positions) {
+            bits.set(position);
+        }
+        return bits;
+    }
+
+    @Test
+    public void testUnansweredQuestion() {
+        assertEquals(0, items.getExposures(first));
+        assertTrue(Double.isNaN(items.getDifficulty(first)));
+        assertTrue(Double.isNaN(items.getDiscrimination(first)));
+        assertEquals(0, items.findFlaggedQuestions(1).length);
+    }
+
+    @Test
+    public void testDifficultyAndDiscrimination() {
+        items.recordAttempt(quiz, bits(0, 1, 2), 1.0);
+        items.recordAttempt(quiz, bits(0, 2), 2.0 / 3);
+        items.recordAttempt(quiz, bits(1, 2), 2.0 / 3);
+        items.recordAttempt(quiz, bits(2), 1.0 / 3);
+
+        assertEquals(4, items.getExposures(first));
+        assertEquals(2, items.getCorrectAnswers(first));
+        assertEquals(0.5, items.getDifficulty(first));
+        assertEquals(1.0, items.getDifficulty(easy));
+        assertEquals(Math.sqrt(0.5), items.getDiscrimination(first), 1e-5);
+        assertTrue(Double.isNaN(items.getDiscrimination(easy)));
+
+        assertArrayEquals(new int[]{easy}, items.findFlaggedQuestions(4));
+        assertEquals(0, items.findFlaggedQuestions(5).length);
+    }
+
+    @Test
+    public void testNegativeDiscrimination() {
+        items.recordAttempt(quiz, bits(0), 1.0 / 3);
+        items.recordAttempt(quiz, bits(0), 1.0 / 3);
+        items.recordAttempt(quiz, bits(1, 2), 2.0 / 3);
+        items.recordAttempt(quiz, bits(1, 2), 2.0 / 3);
+        items.recordAttempt(quiz, bits(2), 1.0 / 3);
+
+        // The first question is only answered correctly in the weakest attempts
+        assertTrue(items.getDiscrimination(first) < 0);
+        assertTrue(items.getDiscrimination(second) > 0);
+        assertArrayEquals(new int[]{first}, items.findFlaggedQuestions(5));
+    }
+
+    /**
+     * Test that each factory has its own statistics, which include the attempts of the quizzes it created.
+     */
+    @Test
+    public void testEachFactoryHasItsOwnStatistics() {
+        Question question = new FreeResponseQuestion("Item analysis: own question", "Own");
+        RegularQuiz regularQuiz = new RegularQuiz(List.of(question));
+        RegularQuiz otherQuiz = new RegularQuiz(List.of(question));
+        ItemStatistics own = regularQuiz.getItemStatistics();
+
+        regularQuiz.takeQuiz(new Student("Item", "Analysis", new Date(0)), List.of(question), List.of("own"));
+        regularQuiz.generateQuiz(1).takeQuiz(new Student("Item", "Generated", new Date(0)), List.of(question), List.of("x"));
+
+        assertNotSame(own, otherQuiz.getItemStatistics());
+        int id = regularQuiz.getQuestionRegistry().idOf(question);
+        assertEquals(2, own.getExposures(id));
+        assertEquals(1, own.getCorrectAnswers(id));
+        assertEquals(0, otherQuiz.getItemStatistics().getExposures(id));
+    }
+}
@@ -74,6 +74,32 @@ public class MultipleChoiceQuestionTest {
         assertTrue(question.checkAnswer("  a,  b ,c   "));
         assertTrue(question.checkAnswer("  A,  b ,C  "));
     }
-}
 
+    /**
+     * Test that repeated options and trailing commas do not change the answer,
+     * but empty options make it incorrect.
+     */
+    @Test
+    public void testRepeatedAndEmptyOptions() {
+        MultipleChoiceQuestion question = new MultipleChoiceQuestion(
+                "Which of the following are prime numbers?", new String[]{"a", "b", "c"}
+        );
+        assertTrue(question.checkAnswer("a,b,c,a"));
+        assertTrue(question.checkAnswer("a,b,c,"));
+        assertFalse(question.checkAnswer("a,,b,c"));
+        assertFalse(question.checkAnswer(""));
+    }
 
+    /**
+     * Test that the correct answers must be single letters.
+     */
+    @Test
+    public void testInvalidCorrectAnswers() {
+        assertThrows(IllegalArgumentException.class, () -> new MultipleChoiceQuestion(
+                "Which of the following are prime numbers?", new String[]{"a", "bc"}
+        ));
+        assertThrows(IllegalArgumentException.class, () -> new MultipleChoiceQuestion(
+                "Which of the following are prime numbers?", new String[]{"a", "1"}
+        ));
+    }
+}
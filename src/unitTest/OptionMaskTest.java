@@ -0,0 +1,28 @@
+package unitTest;
+import question.OptionMask;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the OptionMask class, which encodes multiple choice answers as bitmasks.
+ */
+public class OptionMaskTest {
+
+    @Test
+    public void testParseOptions() {
+        assertEquals(0b1, OptionMask.parse("a"));
+        assertEquals(0b1011, OptionMask.parse("a,b,d"));
+        assertEquals(0b1011, OptionMask.parse(" D , a,B "));
+        assertEquals(1 << 25, OptionMask.parse("z"));
+    }
+
+    @Test
+    public void testParseInvalidAnswers() {
+        assertEquals(OptionMask.INVALID, OptionMask.parse(null));
+        assertEquals(OptionMask.INVALID, OptionMask.parse(""));
+        assertEquals(OptionMask.INVALID, OptionMask.parse("a-b-c"));
+        assertEquals(OptionMask.INVALID, OptionMask.parse("a b"));
+        assertEquals(OptionMask.INVALID, OptionMask.parse("a, ,b"));
+        assertEquals(OptionMask.INVALID, OptionMask.parse("1,2"));
+    }
+}
@@ -0,0 +1,133 @@
+package unitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import question.*;
+import quiz.RegularQuiz;
+import student.Student;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QuestionBank class, which stores questions in a memory-mapped file.
+ */
+public class QuestionBankTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Question> questions;
+
+    @BeforeEach
+    public void setup() {
+        questions = new ArrayList<>();
+        questions.add(new FreeResponseQuestion("What is the capital of Japan?", "  Tokyo "));
+        questions.add(new MultipleChoiceQuestion("Which are primary colours?", new String[]{"a", "c", "d"}));
+        questions.add(new FreeResponseQuestion("¿Cuál es la capital de España?", "Madrid"));
+    }
+
+    @Test
+    public void testQuestionsAreReadFromTheFile() throws IOException {
+        Path file = directory.resolve("bank.qb");
+        QuestionBank.write(file, questions);
+        QuestionBank bank = QuestionBank.open(file);
+
+        assertEquals(3, bank.size());
+        assertEquals("What is the capital of Japan?", bank.get(0).getQuestionFormulation());
+        assertTrue(bank.get(0).checkAnswer("TOKYO"));
+        assertFalse(bank.get(0).checkAnswer("Kyoto"));
+        assertTrue(bank.get(1).checkAnswer("d, a, c"));
+        assertFalse(bank.get(1).checkAnswer("a, c"));
+        assertEquals("¿Cuál es la capital de España?", bank.get(2).getQuestionFormulation());
+        assertEquals(BitSet.valueOf(new long[]{0b101}), bank.get(2).checkAnswers(List.of("madrid", "Paris", " MADRID")));
+    }
+
+    @Test
+    public void testBankQuestionsAreEqualWhenReopened() throws IOException {
+        Path file = directory.resolve("bank.qb");
+        QuestionBank.write(file, questions);
+        QuestionBank bank = QuestionBank.open(file);
+        QuestionBank reopened = QuestionBank.open(file);
+
+        Question question = bank.get(1);
+        assertSame(question, bank.get(1));
+        assertEquals(question, reopened.get(1));
+        assertEquals(question.hashCode(), reopened.get(1).hashCode());
+        assertNotEquals(question, reopened.get(0));
+        assertEquals(questions.get(1).getKey(), question.getKey());
+        assertEquals(questions.get(0).getKey(), reopened.get(0).getKey());
+    }
+
+    @Test
+    public void testBankCanBeUsedAsQuestionPool() throws IOException {
+        Path file = directory.resolve("bank.qb");
+        QuestionBank.write(file, questions);
+        List<Question> pool = QuestionBank.open(file).getQuestions();
+
+        RegularQuiz regularQuiz = new RegularQuiz(pool);
+        Student student = new Student("Grace", "Hopper", new Date(0));
+        double score = regularQuiz.takeQuiz(student, pool, List.of("tokyo", "a,c,d", "Lisboa"));
+
+        assertEquals(2.0 / 3, score, 1e-9);
+        assertEquals(new HashSet<>(pool), new HashSet<>(regularQuiz.getStudentHistory().get(student)));
+    }
+
+    @Test
+    public void testInvalidFilesAreRejected() throws IOException {
+        Path file = directory.resolve("invalid.qb");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> QuestionBank.open(file));
+
+        List<Question> unsupported = List.of(new GradingCache(4).wrap(questions.get(0)));
+        assertThrows(IllegalArgumentException.class, () -> QuestionBank.write(directory.resolve("other.qb"), unsupported));
+    }
+
+    /**
+     * Test that a file whose questions or index were changed after it was written is rejected when it is opened.
+     */
+    @Test
+    public void testDamagedFilesAreRejected() throws IOException {
+        Path file = directory.resolve("bank.qb");
+        QuestionBank.write(file, questions);
+        byte[] content = Files.readAllBytes(file);
+
+        byte[] changedText = content.clone();
+        changedText[30] ^= 1;
+        Files.write(file, changedText);
+        assertThrows(IOException.class, () -> QuestionBank.open(file));
+
+        // An index entry pointing past the questions, with the checksum updated so only the index check fails
+        ByteBuffer changedIndex = ByteBuffer.wrap(content.clone());
+        int indexPosition = changedIndex.getInt(16);
+        changedIndex.putInt(indexPosition, indexPosition);
+        CRC32C crc = new CRC32C();
+        crc.update(changedIndex.array(), 20, content.length - 20);
+        changedIndex.putInt(12, (int) crc.getValue());
+        Files.write(file, changedIndex.array());
+        assertThrows(IOException.class, () -> QuestionBank.open(file));
+    }
+
+    /**
+     * Test that a factory finds the questions of a bank in its pool, so it can record them in the history.
+     */
+    @Test
+    public void testFactoryUsesTheBankAsItsPool() throws IOException {
+        Path file = directory.resolve("bank.qb");
+        QuestionBank.write(file, questions);
+        QuestionBank bank = QuestionBank.open(file);
+        RegularQuiz regularQuiz = new RegularQuiz(bank.getQuestions());
+
+        assertEquals(2, regularQuiz.getQuestionRegistry().idOf(bank.get(2)));
+        assertEquals(2, regularQuiz.getQuestionRegistry().idOf(QuestionBank.open(file).get(2)));
+        assertEquals(QuestionRegistry.UNREGISTERED, regularQuiz.getQuestionRegistry().idOf(questions.get(2)));
+        assertSame(bank.get(1), regularQuiz.getQuestions().get(1));
+    }
+}
@@ -0,0 +1,69 @@
+package unitTest;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.MultipleChoiceQuestion;
+import question.Question;
+import question.QuestionRegistry;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QuestionRegistry class, checking that the questions of a pool get their
+ * positions as ids, and that questions are identified by their content.
+ */
+public class QuestionRegistryTest {
+
+    @Test
+    public void testPoolQuestionsGetTheirPositions() {
+        Question first = new FreeResponseQuestion("Who painted the Mona Lisa?", "Leonardo da Vinci");
+        Question second = new MultipleChoiceQuestion("Which are vowels?", new String[]{"a", "e"});
+        QuestionRegistry registry = new QuestionRegistry(List.of(first, second));
+
+        assertEquals(0, registry.idOf(first));
+        assertEquals(1, registry.idOf(second));
+        assertSame(second, registry.get(1));
+        assertEquals(2, registry.getPoolSize());
+    }
+
+    @Test
+    public void testSameContentIsEqual() {
+        Question first = new FreeResponseQuestion("What is the capital of Peru?", "Lima");
+        Question reloaded = new FreeResponseQuestion(" What is the capital of Peru? ", "LIMA");
+        Question other = new FreeResponseQuestion("What is the capital of Peru?", "Cusco");
+
+        assertEquals(first.getKey(), reloaded.getKey());
+        assertEquals(first, reloaded);
+        assertEquals(0, new QuestionRegistry(List.of(first)).idOf(reloaded));
+        assertNotEquals(first.getKey(), other.getKey());
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    public void testDifferentTypesGetDifferentKeys() {
+        Question choices = new MultipleChoiceQuestion("Which are even?", new String[]{"a", "c"});
+        Question sameChoices = new MultipleChoiceQuestion("Which are even?", new String[]{"c", "A"});
+        Question freeResponse = new FreeResponseQuestion("Which are even?", "a, c");
+
+        assertEquals(choices.getKey(), sameChoices.getKey());
+        assertEquals(choices, sameChoices);
+        assertNotEquals(choices.getKey(), freeResponse.getKey());
+    }
+
+    @Test
+    public void testOtherQuestionsGetTheNextIds() {
+        Question pooled = new FreeResponseQuestion("What is 2 + 2?", "4");
+        Question repeated = new FreeResponseQuestion("What is 2 + 2?", "4");
+        Question other = new FreeResponseQuestion("What is 3 + 3?", "6");
+        QuestionRegistry registry = new QuestionRegistry(List.of(pooled, repeated));
+
+        assertEquals(0, registry.idOf(repeated));
+        assertEquals(QuestionRegistry.UNREGISTERED, registry.idOf(other));
+        assertEquals(2, registry.register(other));
+        assertEquals(2, registry.register(new FreeResponseQuestion("What is 3 + 3?", "6")));
+        assertEquals(3, registry.size());
+        assertSame(other, registry.get(2));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(3));
+    }
+}
@@ -0,0 +1,79 @@
+package unitTest;
+import org.junit.jupiter.api.Test;
+import quiz.QuestionSampler;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QuestionSampler class, checking that the selections are
+ * distinct, in range and reproducible with a seed.
+ */
+public class QuestionSamplerTest {
+
+    @Test
+    public void testIndicesAreDistinctAndInRange() {
+        QuestionSampler sampler = new QuestionSampler();
+        for (int k = 0; k <= 50; k++) {
+            int[] indices = sampler.sampleIndices(50, k);
+            assertEquals(k, indices.length);
+            assertEquals(k, Arrays.stream(indices).distinct().count());
+            assertTrue(Arrays.stream(indices).allMatch(i -> i >= 0 && i < 50));
+        }
+    }
+
+    @Test
+    public void testSameSeedSameSelection() {
+        List<String> items = List.of("a", "b", "c", "d", "e", "f", "g", "h");
+        assertEquals(new QuestionSampler(42).sample(items, 5), new QuestionSampler(42).sample(items, 5));
+    }
+
+    @Test
+    public void testEveryElementCanBeSelected() {
+        QuestionSampler sampler = new QuestionSampler(7);
+        int[] counts = new int[10];
+        for (int i = 0; i < 2000; i++) {
+            counts[sampler.sampleIndices(10, 1)[0]]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 100);
+        }
+    }
+
+    @Test
+    public void testInvalidSize() {
+        QuestionSampler sampler = new QuestionSampler();
+        assertThrows(IllegalArgumentException.class, () -> sampler.sampleIndices(5, 6));
+        assertThrows(IllegalArgumentException.class, () -> sampler.sampleIndices(5, -1));
+    }
+
+    @Test
+    public void testTwoGroupsFollowTheWeights() {
+        QuestionSampler sampler = new QuestionSampler(13);
+        int first = 0;
+        for (int i = 0; i < 10000; i++) {
+            int[] indices = sampler.sampleTwoGroups(2, 3.0, 8, 1.0, 4);
+            assertEquals(4, Arrays.stream(indices).distinct().count());
+            assertTrue(Arrays.stream(indices).allMatch(index -> index >= 0 && index < 10));
+            if (indices[0] < 2) first++;
+        }
+        // 6 / 14 = 42.9% expected for the first selection
+        assertTrue(first > 4100 && first < 4470, "Selected " + first);
+        assertEquals(3, sampler.sampleTwoGroups(0, 3.0, 3, 1.0, 3).length);
+        assertThrows(IllegalArgumentException.class, () -> sampler.sampleTwoGroups(2, 3.0, 1, 1.0, 4));
+        assertThrows(IllegalArgumentException.class, () -> sampler.sampleTwoGroups(2, 0.0, 1, 1.0, 1));
+    }
+
+    @Test
+    public void testAcceptedIndicesPassTheFilter() {
+        QuestionSampler sampler = new QuestionSampler(17);
+        for (int k = 0; k <= 5; k++) {
+            int[] indices = sampler.sampleAccepted(10, k, 5, index -> index % 2 == 0);
+            assertEquals(k, Arrays.stream(indices).distinct().count());
+            assertTrue(Arrays.stream(indices).allMatch(index -> index % 2 == 0 && index < 10));
+        }
+        assertThrows(IllegalArgumentException.class, () -> sampler.sampleAccepted(10, 6, 5, index -> index % 2 == 0));
+    }
+}
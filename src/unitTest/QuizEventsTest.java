@@ -0,0 +1,111 @@
+package unitTest;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.Question;
+import quiz.Quiz;
+import quiz.QuizFactory;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import student.Student;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Flight Recorder events of the quizzes.
+ */
+public class QuizEventsTest {
+
+    private static final List<String> EVENTS = List.of("quiz.QuizGeneration", "quiz.RevisionSelection",
+            "quiz.QuizSubmission", "quiz.AnswerGrading");
+
+    private List<Question> pool() {
+        List<Question> questionPool = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            questionPool.add(new FreeResponseQuestion("Flight recorder question " + i, "Answer " + i));
+        }
+        return questionPool;
+    }
+
+    @Test
+    public void testEventsAreDisabledByDefault() {
+        new RegularQuiz(pool()).generateQuiz(1);
+        List<String> disabled = FlightRecorder.getFlightRecorder().getEventTypes().stream()
+                .filter(type -> type.getName().startsWith("quiz.") && !type.isEnabled())
+                .map(EventType::getName)
+                .collect(Collectors.toList());
+        assertTrue(disabled.contains("quiz.QuizGeneration"), "Disabled events: " + disabled);
+    }
+
+    @Test
+    public void testEventsAreRecorded() throws Exception {
+        List<Question> questionPool = pool();
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        RevisionQuiz revisionQuiz = new RevisionQuiz(questionPool, null);
+        Student student = new Student("Flight", "Recorder", new Date());
+        Path file = Files.createTempFile("quiz", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            Quiz quiz = regularQuiz.generateQuiz(2);
+            List<Question> questions = ((QuizFactory) quiz).getQuestions();
+            regularQuiz.takeQuiz(student, questions, List.of("wrong", "wrong"));
+            revisionQuiz.recordSeenQuestions(student, questions);
+            revisionQuiz.revise(student, 3);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("quiz."))
+                    .collect(Collectors.toList());
+            int studentId = new Student(student.getFirstName(), student.getLastName(), student.getDateOfBirth()).hashCode();
+
+            RecordedEvent generation = single(events, "quiz.QuizGeneration");
+            assertEquals(6, generation.getInt("poolSize"));
+            assertEquals(2, generation.getInt("questionCount"));
+
+            RecordedEvent grading = single(events, "quiz.AnswerGrading");
+            assertEquals(2, grading.getInt("questionCount"));
+            assertEquals(0, grading.getInt("correctCount"));
+
+            RecordedEvent submission = single(events, "quiz.QuizSubmission");
+            assertEquals("regular", submission.getString("quizType"));
+            assertEquals(studentId, submission.getInt("studentId"));
+            assertEquals(2, submission.getInt("historySize"));
+            assertEquals(0.0, submission.getDouble("score"));
+            assertTrue(submission.getBoolean("succeeded"));
+
+            RecordedEvent selection = single(events, "quiz.RevisionSelection");
+            assertEquals(studentId, selection.getInt("studentId"));
+            assertEquals(6, selection.getInt("poolSize"));
+            assertEquals(2, selection.getInt("historySize"));
+            assertEquals(4, selection.getInt("eligibleCount"));
+            assertEquals(3, selection.getInt("questionCount"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
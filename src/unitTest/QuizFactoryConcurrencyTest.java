@@ -0,0 +1,115 @@
+package unitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.Question;
+import quiz.Quiz;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import student.Student;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests for the QuizFactory, where many threads take quizzes and generate
+ * revision quizzes for different students at the same time.
+ */
+
+public class QuizFactoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int STUDENTS_PER_THREAD = 200;
+
+    private List<Question> questionPool;
+    private Date birthDate;
+
+    @BeforeEach
+    public void setup() {
+        questionPool = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            questionPool.add(new FreeResponseQuestion("Concurrency question " + i, "Answer " + i));
+        }
+        Calendar cal = Calendar.getInstance();
+        cal.set(2001, Calendar.MARCH, 3);
+        birthDate = cal.getTime();
+    }
+
+    /**
+     * Test that the history of every student has exactly the questions of their attempts
+     * when many students take quizzes at the same time on the same factory.
+     */
+    @Test
+    public void testConcurrentRegularQuizzes() throws Exception {
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        List<String> answers = Collections.nCopies(10, "Wrong");
+
+        runConcurrently(thread -> {
+            for (int s = 0; s < STUDENTS_PER_THREAD; s++) {
+                Student student = new Student("Thread" + thread, "Student" + s, birthDate);
+                regularQuiz.takeQuiz(student, questionPool.subList(0, 10), answers);
+                regularQuiz.takeQuiz(student, questionPool.subList(10, 20), answers);
+            }
+        });
+
+        Map<Student, List<Question>> history = regularQuiz.getStudentHistory();
+        assertEquals(THREADS * STUDENTS_PER_THREAD, history.size());
+        for (List<Question> seenQuestions : history.values()) {
+            assertEquals(20, seenQuestions.size());
+            assertTrue(seenQuestions.containsAll(questionPool.subList(0, 20)));
+        }
+    }
+
+    /**
+     * Test that the same student can record questions from many threads without losing any of them,
+     * while revision quizzes are generated for that student.
+     */
+    @Test
+    public void testConcurrentHistoryOfSameStudent() throws Exception {
+        RevisionQuiz revisionQuiz = new RevisionQuiz(questionPool, null);
+        Student student = new Student("Shared", "Student", birthDate);
+
+        runConcurrently(thread -> {
+            for (int i = thread; i < questionPool.size(); i += THREADS) {
+                revisionQuiz.recordSeenQuestions(student, List.of(questionPool.get(i)));
+                try {
+                    Quiz quiz = revisionQuiz.revise(student, 1);
+                    assertNotNull(quiz);
+                } catch (IllegalArgumentException allQuestionsSeen) {
+                    // Other threads may have recorded the remaining questions
+                }
+            }
+        });
+
+        assertEquals(questionPool.size(), revisionQuiz.getStudentHistory().get(student).size());
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,179 @@
+package unitTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import persistence.QuizJournal;
+import question.FreeResponseQuestion;
+import question.Question;
+import quiz.Quiz;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import statistics.Statistics;
+import student.Student;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the QuizJournal, which stores the history and statistics of the students
+ * and recovers them when it is opened again.
+ */
+
+public class QuizJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Question> questionPool;
+    private Date birthDate;
+
+    @BeforeEach
+    public void setup() {
+        questionPool = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            questionPool.add(new FreeResponseQuestion("Journal question " + i, "Answer " + i));
+        }
+        Calendar cal = Calendar.getInstance();
+        cal.set(1999, Calendar.JULY, 14);
+        birthDate = cal.getTime();
+    }
+
+    /**
+     * Test that the history and the statistics are recovered in a new factory after closing the journal.
+     */
+    @Test
+    public void testRecoverAfterClose() throws Exception {
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        Student student = new Student("Ada", "Lovelace", birthDate);
+        QuizJournal journal = QuizJournal.open(directory, regularQuiz);
+        regularQuiz.takeQuiz(student, questionPool.subList(0, 4), List.of("Answer 0", "x", "x", "x"));
+        journal.close();
+
+        RegularQuiz recoveredQuiz = new RegularQuiz(questionPool);
+        try (QuizJournal recoveredJournal = QuizJournal.open(directory, recoveredQuiz)) {
+            Student recovered = recoveredJournal.getStudent(new Student("Ada", "Lovelace", birthDate));
+            Statistics stats = recovered.getStatistics();
+            assertEquals(1, stats.getRegularAttempts());
+            assertArrayEquals(new double[]{0.25}, stats.getRegularQuizScores());
+            assertEquals("TBD", stats.getVerdict());
+            assertEquals(new HashSet<>(questionPool.subList(0, 4)),
+                    new HashSet<>(recoveredQuiz.getStudentHistory().get(recovered)));
+            assertEquals(regularQuiz.getIncorrectQuestionIds(student), recoveredQuiz.getIncorrectQuestionIds(recovered));
+            assertEquals(3, recoveredQuiz.getIncorrectQuestionIds(recovered).cardinality());
+        }
+    }
+
+    /**
+     * Test that the state is recovered from a snapshot and the records written after it,
+     * and that records are not applied twice.
+     */
+    @Test
+    public void testRecoverFromSnapshotAndLog() throws Exception {
+        RevisionQuiz revisionQuiz = new RevisionQuiz(questionPool, null);
+        Student student = new Student("Alan", "Turing", birthDate);
+        try (QuizJournal journal = QuizJournal.open(directory, revisionQuiz)) {
+            revisionQuiz.takeQuiz(student, questionPool.subList(0, 2), List.of("Answer 0", "Answer 1"));
+            journal.snapshot();
+            revisionQuiz.takeQuiz(student, questionPool.subList(2, 4), List.of("x", "Answer 3"));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.anyMatch(path -> path.getFileName().toString().startsWith("snapshot-")));
+        }
+
+        RevisionQuiz recoveredQuiz = new RevisionQuiz(questionPool, null);
+        try (QuizJournal journal = QuizJournal.open(directory, recoveredQuiz)) {
+            Student recovered = journal.getStudent(new Student("Alan", "Turing", birthDate));
+            Statistics stats = recovered.getStatistics();
+            assertArrayEquals(new double[]{1.0, 0.5}, stats.getRevisionQuizScores());
+            assertEquals(4, recoveredQuiz.getStudentHistory().get(recovered).size());
+            assertEquals(revisionQuiz.getIncorrectQuestionIds(student), recoveredQuiz.getIncorrectQuestionIds(recovered));
+            assertEquals(1, recoveredQuiz.getIncorrectQuestionIds(recovered).cardinality());
+        }
+    }
+
+    /**
+     * Test that records are written to new segments when a segment is full.
+     */
+    @Test
+    public void testRecoverFromManySegments() throws Exception {
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        QuizJournal journal = QuizJournal.open(directory, regularQuiz, 1024);
+        for (int i = 0; i < 50; i++) {
+            Student student = new Student("Student", "Number" + i, birthDate);
+            regularQuiz.takeQuiz(student, questionPool.subList(0, 1), List.of(i % 2 == 0 ? "Answer 0" : "x"));
+        }
+        journal.close();
+
+        RegularQuiz recoveredQuiz = new RegularQuiz(questionPool);
+        try (QuizJournal recoveredJournal = QuizJournal.open(directory, recoveredQuiz, 1024)) {
+            for (int i = 0; i < 50; i++) {
+                Student recovered = recoveredJournal.getStudent(new Student("Student", "Number" + i, birthDate));
+                assertEquals(i % 2 == 0 ? "PASS" : "TBD", recovered.getStatistics().getVerdict());
+            }
+            assertEquals(50, recoveredQuiz.getStudentHistory().size());
+        }
+    }
+
+    /**
+     * Test that the attempts of a quiz created by the factory are in the snapshot, and that the quiz
+     * can still be taken after the journal is closed.
+     */
+    @Test
+    public void testSnapshotIncludesGeneratedQuizzes() throws Exception {
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        Student student = new Student("Grace", "Hopper", birthDate);
+        Quiz quiz = regularQuiz.generateQuiz(3);
+        List<Question> questions = ((RegularQuiz) quiz).getQuestions();
+        List<String> answers = new ArrayList<>();
+        for (Question question : questions) {
+            answers.add(question == questions.get(0) ? "x" : "Answer " + questionPool.indexOf(question));
+        }
+        try (QuizJournal journal = QuizJournal.open(directory, regularQuiz)) {
+            quiz.takeQuiz(student, questions, answers);
+            journal.snapshot();
+        }
+        assertEquals(2.0 / 3, quiz.takeQuiz(new Student("Mary", "Jackson", birthDate), questions, answers), 1e-9);
+
+        RegularQuiz recoveredQuiz = new RegularQuiz(questionPool);
+        try (QuizJournal journal = QuizJournal.open(directory, recoveredQuiz)) {
+            Student recovered = journal.getStudent(new Student("Grace", "Hopper", birthDate));
+            assertEquals(1, recovered.getStatistics().getRegularAttempts());
+            assertEquals(new HashSet<>(questions), new HashSet<>(recoveredQuiz.getStudentHistory().get(recovered)));
+            assertEquals(1, recoveredQuiz.getIncorrectQuestionIds(recovered).cardinality());
+            assertTrue(recoveredQuiz.getIncorrectQuestionIds(recovered).get(questionPool.indexOf(questions.get(0))));
+        }
+    }
+
+    /**
+     * Test that the history is recovered when the pool is loaded in another order, because the questions
+     * are stored by their content.
+     */
+    @Test
+    public void testRecoverWithReorderedPool() throws Exception {
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        Student student = new Student("Edsger", "Dijkstra", birthDate);
+        try (QuizJournal journal = QuizJournal.open(directory, regularQuiz)) {
+            regularQuiz.takeQuiz(student, questionPool.subList(0, 3), List.of("Answer 0", "x", "x"));
+            journal.snapshot();
+            regularQuiz.takeQuiz(student, questionPool.subList(2, 4), List.of("Answer 2", "x"));
+        }
+
+        List<Question> reordered = new ArrayList<>(questionPool);
+        Collections.reverse(reordered);
+        RegularQuiz recoveredQuiz = new RegularQuiz(reordered);
+        try (QuizJournal journal = QuizJournal.open(directory, recoveredQuiz)) {
+            Student recovered = journal.getStudent(new Student("Edsger", "Dijkstra", birthDate));
+            assertEquals(new HashSet<>(questionPool.subList(0, 4)),
+                    new HashSet<>(recoveredQuiz.getStudentHistory().get(recovered)));
+            BitSet incorrect = recoveredQuiz.getIncorrectQuestionIds(recovered);
+            assertEquals(2, incorrect.cardinality());
+            assertTrue(incorrect.get(reordered.indexOf(questionPool.get(1))));
+            assertTrue(incorrect.get(reordered.indexOf(questionPool.get(3))));
+        }
+    }
+}
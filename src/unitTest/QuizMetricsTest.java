@@ -0,0 +1,126 @@
+package unitTest;
+
+import metrics.OperationMetrics;
+import metrics.QuizMetrics;
+import metrics.QuizMetrics.Operation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.MultipleChoiceQuestion;
+import question.Question;
+import quiz.Quiz;
+import quiz.QuizFactory;
+import quiz.RegularQuiz;
+import student.Student;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QuizMetrics class. The metrics are shared by all the tests, so only the changes are checked.
+ */
+public class QuizMetricsTest {
+
+    private QuizMetrics metrics;
+    private List<Question> questionPool;
+
+    @BeforeEach
+    public void setup() {
+        metrics = QuizMetrics.getInstance();
+        questionPool = List.of(
+                new FreeResponseQuestion("Metrics: capital of Spain?", "Madrid"),
+                new MultipleChoiceQuestion("Metrics: which are vowels?", new String[]{"a", "e"}),
+                new FreeResponseQuestion("Metrics: chemical symbol for water?", "H2O"));
+    }
+
+    private long count(Operation operation) {
+        return metrics.getLatency(operation).getCount();
+    }
+
+    @Test
+    public void testOperationsAreRecorded() {
+        assertTrue(QuizMetrics.isEnabled());
+        long generated = count(Operation.GENERATE_QUIZ);
+        long taken = count(Operation.TAKE_QUIZ);
+        long failedTakes = metrics.getFailures(Operation.TAKE_QUIZ);
+        long historyUpdates = count(Operation.HISTORY_UPDATE);
+
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        Quiz quiz = regularQuiz.generateQuiz(3);
+        List<Question> questions = ((QuizFactory) quiz).getQuestions();
+        Student student = new Student("Grace", "Hopper", new Date());
+        regularQuiz.takeQuiz(student, questions, List.of("a", "b", "c"));
+        assertThrows(IllegalArgumentException.class, () -> regularQuiz.generateQuiz(4));
+
+        assertEquals(generated + 2, count(Operation.GENERATE_QUIZ));
+        assertEquals(taken + 1, count(Operation.TAKE_QUIZ));
+        assertEquals(failedTakes, metrics.getFailures(Operation.TAKE_QUIZ));
+        assertEquals(historyUpdates + 1, count(Operation.HISTORY_UPDATE));
+        assertTrue(metrics.getFailures(Operation.GENERATE_QUIZ) >= 1);
+
+        OperationMetrics takeQuiz = metrics.getMetrics(Operation.TAKE_QUIZ);
+        assertEquals("takeQuiz", takeQuiz.getName());
+        assertTrue(takeQuiz.getP50Nanos() <= takeQuiz.getP99Nanos());
+        assertTrue(takeQuiz.getP999Nanos() <= takeQuiz.getMaxNanos());
+        assertTrue(takeQuiz.getThroughput() > 0);
+        assertTrue(metrics.generateReport().contains("checkAnswer.multipleChoice: count "));
+    }
+
+    @Test
+    public void testAnswerChecksAreSampled() {
+        long freeResponse = count(Operation.CHECK_FREE_RESPONSE);
+        long multipleChoice = count(Operation.CHECK_MULTIPLE_CHOICE);
+        int checks = 200 * QuizMetrics.SAMPLE_RATE;
+        List<Question> questions = new ArrayList<>();
+        List<String> answers = new ArrayList<>();
+        for (int i = 0; i < checks; i++) {
+            questions.add(questionPool.get(0));
+            answers.add("madrid");
+            questions.add(questionPool.get(1));
+            answers.add("a,e");
+        }
+        // The answers are timed by the quiz that grades them, not by the questions
+        for (int i = 0; i < checks; i++) {
+            questionPool.get(0).checkAnswer("madrid");
+        }
+        assertEquals(freeResponse, count(Operation.CHECK_FREE_RESPONSE));
+        new RegularQuiz(questionPool).takeQuiz(new Student("Ada", "Lovelace", new Date()), questions, answers);
+
+        long freeResponseChecks = count(Operation.CHECK_FREE_RESPONSE) - freeResponse;
+        long multipleChoiceChecks = count(Operation.CHECK_MULTIPLE_CHOICE) - multipleChoice;
+        assertEquals(0, freeResponseChecks % QuizMetrics.SAMPLE_RATE);
+        assertTrue(freeResponseChecks > checks / 2 && freeResponseChecks < checks * 3 / 2, "Counted " + freeResponseChecks);
+        assertTrue(multipleChoiceChecks > checks / 2 && multipleChoiceChecks < checks * 3 / 2, "Counted " + multipleChoiceChecks);
+    }
+
+    @Test
+    public void testMBeanIsRegistered() throws Exception {
+        new RegularQuiz(questionPool).generateQuiz(1);
+        QuizMetrics.registerMBean();
+        QuizMetrics.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(QuizMetrics.OBJECT_NAME);
+        assertTrue(server.isRegistered(name));
+        assertTrue(((String) server.getAttribute(name, "Report")).contains("generateQuiz: count "));
+        assertTrue(((String) server.getAttribute(name, "Report")).contains("pregenerated: hits "));
+        assertEquals(metrics.getPregeneratedHitRate(), (Double) server.getAttribute(name, "PregeneratedHitRate"));
+
+        CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+        assertEquals(Operation.values().length, operations.length);
+        assertEquals("generateQuiz", operations[0].get("name"));
+        assertTrue((Long) operations[0].get("count") >= 1);
+
+        Object percentile = server.invoke(name, "getPercentileNanos", new Object[]{"generateQuiz", 99.0},
+                new String[]{String.class.getName(), double.class.getName()});
+        assertTrue((Long) percentile > 0);
+        assertThrows(IllegalArgumentException.class, () -> metrics.getPercentileNanos("unknown", 50));
+    }
+}
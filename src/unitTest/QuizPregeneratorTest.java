@@ -0,0 +1,167 @@
+package unitTest;
+
+import metrics.QuizMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.Question;
+import quiz.QuizFactory;
+import quiz.QuizPregenerator;
+import quiz.RegularQuiz;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QuizPregenerator class, which keeps question selections ready for regular quizzes.
+ * Most tests run the refill tasks by hand, so the state of the queue is known at each step.
+ */
+public class QuizPregeneratorTest {
+
+    private List<Question> questionPool;
+    private RegularQuiz regularQuiz;
+    private Queue<Runnable> tasks;
+
+    @BeforeEach
+    public void setup() {
+        questionPool = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            questionPool.add(new FreeResponseQuestion("Pregenerated question " + i, "Answer " + i));
+        }
+        regularQuiz = new RegularQuiz(questionPool);
+        tasks = new ArrayDeque<>();
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+
+    private void assertValidQuiz(List<Question> questions, int size) {
+        assertEquals(size, questions.size());
+        assertEquals(size, new HashSet<>(questions).size());
+        assertTrue(questionPool.containsAll(questions));
+    }
+
+    @Test
+    public void testQuizzesAreTakenFromTheQueue() {
+        QuizMetrics metrics = QuizMetrics.getInstance();
+        long hits = metrics.getPregeneratedHits();
+        long misses = metrics.getPregeneratedMisses();
+        QuizPregenerator pregenerator = regularQuiz.pregenerate(3, 4, tasks::add);
+        assertEquals(0, pregenerator.getSize());
+        runTasks();
+        assertEquals(4, pregenerator.getSize());
+
+        for (int i = 0; i < 2; i++) {
+            assertValidQuiz(((QuizFactory) regularQuiz.generateQuiz(3)).getQuestions(), 3);
+        }
+        assertEquals(2, pregenerator.getHits());
+        assertEquals(2, pregenerator.getSize());
+        assertEquals(1, tasks.size(), "A refill starts at half of the capacity");
+
+        for (int i = 0; i < 3; i++) {
+            assertValidQuiz(((QuizFactory) regularQuiz.generateQuiz(3)).getQuestions(), 3);
+        }
+        assertEquals(4, pregenerator.getHits());
+        assertEquals(1, pregenerator.getMisses());
+        assertEquals(0.8, pregenerator.getHitRate(), 1e-9);
+        if (QuizMetrics.isEnabled()) {
+            assertEquals(hits + 4, metrics.getPregeneratedHits());
+            assertEquals(misses + 1, metrics.getPregeneratedMisses());
+        }
+        assertEquals(1, tasks.size(), "Only one refill is scheduled at a time");
+
+        runTasks();
+        assertEquals(4, pregenerator.getSize());
+        // Other sizes are not pregenerated
+        assertValidQuiz(((QuizFactory) regularQuiz.generateQuiz(2)).getQuestions(), 2);
+        assertEquals(4, pregenerator.getSize());
+    }
+
+    @Test
+    public void testCloseAndInvalidArguments() {
+        QuizPregenerator pregenerator = regularQuiz.pregenerate(3, 4, tasks::add);
+        assertThrows(IllegalStateException.class, () -> regularQuiz.pregenerate(3, 8, tasks::add));
+        assertThrows(IllegalArgumentException.class, () -> regularQuiz.pregenerate(11, 4, tasks::add));
+        assertThrows(IllegalArgumentException.class, () -> regularQuiz.pregenerate(2, 0, tasks::add));
+        assertThrows(IllegalArgumentException.class, () -> regularQuiz.pregenerate(2, 4, null));
+        assertEquals(List.of(pregenerator), regularQuiz.getPregenerators());
+
+        pregenerator.close();
+        runTasks();
+        assertTrue(pregenerator.isClosed());
+        assertEquals(0, pregenerator.getSize());
+        assertTrue(regularQuiz.getPregenerators().isEmpty());
+        assertValidQuiz(((QuizFactory) regularQuiz.generateQuiz(3)).getQuestions(), 3);
+        assertEquals(0, pregenerator.getHits() + pregenerator.getMisses());
+
+        regularQuiz.pregenerate(3, 4, tasks::add).close();
+    }
+
+    @Test
+    public void testBackgroundRefill() throws Exception {
+        ExecutorService refiller = Executors.newSingleThreadExecutor();
+        ExecutorService students = Executors.newFixedThreadPool(4);
+        try (QuizPregenerator pregenerator = regularQuiz.pregenerate(5, 64, refiller)) {
+            List<Future<List<Question>>> quizzes = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                quizzes.add(students.submit(() -> ((QuizFactory) regularQuiz.generateQuiz(5)).getQuestions()));
+            }
+            for (Future<List<Question>> quiz : quizzes) {
+                assertValidQuiz(quiz.get(), 5);
+            }
+            assertEquals(2000, pregenerator.getHits() + pregenerator.getMisses());
+            assertTrue(pregenerator.getSize() <= 64);
+
+            // When the executor is shut down the factory selects the questions itself
+            refiller.shutdown();
+            assertTrue(refiller.awaitTermination(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                assertValidQuiz(((QuizFactory) regularQuiz.generateQuiz(5)).getQuestions(), 5);
+            }
+            assertTrue(pregenerator.isClosed());
+            assertTrue(regularQuiz.getPregenerators().isEmpty());
+        } finally {
+            refiller.shutdownNow();
+            students.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedRefillClosesThePregenerator() {
+        QuizPregenerator rejected = regularQuiz.pregenerate(3, 4, task -> {
+            throw new RejectedExecutionException();
+        });
+        assertTrue(rejected.isClosed());
+        assertTrue(regularQuiz.getPregenerators().isEmpty());
+
+        int[] accepted = {0};
+        QuizPregenerator pregenerator = regularQuiz.pregenerate(3, 4, task -> {
+            if (accepted[0]++ > 0) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(task);
+        });
+        runTasks();
+        for (int i = 0; i < 2; i++) {
+            assertValidQuiz(((QuizFactory) regularQuiz.generateQuiz(3)).getQuestions(), 3);
+        }
+        assertTrue(pregenerator.isClosed());
+        assertTrue(regularQuiz.getPregenerators().isEmpty());
+        assertValidQuiz(((QuizFactory) regularQuiz.generateQuiz(3)).getQuestions(), 3);
+        assertEquals(2, pregenerator.getHits());
+        assertEquals(0, pregenerator.getMisses());
+    }
+}
@@ -0,0 +1,211 @@
+package unitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.MultipleChoiceQuestion;
+import question.Question;
+import server.QuizServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QuizServer class, sending requests to a server started on a free port.
+ */
+public class QuizServerTest {
+
+    private QuizServer server;
+    private HttpClient client;
+    private List<Question> questionPool;
+    private Map<String, String> answers;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        questionPool = new ArrayList<>();
+        questionPool.add(new FreeResponseQuestion("What is the capital of Spain?", "Madrid"));
+        questionPool.add(new FreeResponseQuestion("What is the chemical formula for water?", "H2O"));
+        questionPool.add(new MultipleChoiceQuestion("Which are primary colors?", new String[]{"c", "d"}));
+        questionPool.add(new MultipleChoiceQuestion("Which are fruits?", new String[]{"d", "a"}));
+        answers = Map.of("What is the capital of Spain?", "Madrid", "What is the chemical formula for water?", "H2O",
+                "Which are primary colors?", "c,d", "Which are fruits?", "a,d");
+
+        server = new QuizServer(questionPool, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Test a full session: register a student, generate a quiz, submit the answers
+     * and read the statistics.
+     */
+    @Test
+    public void testQuizSession() throws Exception {
+        HttpResponse<String> student = send("POST", "/students?firstName=Jhostin&lastName=Ocampo&dateOfBirth=1998-12-10", "");
+        assertEquals(200, student.statusCode());
+        String studentId = student.body().trim().substring("student: ".length());
+
+        HttpResponse<String> quiz = send("POST", "/quizzes?student=" + studentId + "&questions=2", "");
+        assertEquals(200, quiz.statusCode());
+        String[] lines = quiz.body().split("\n");
+        assertEquals(3, lines.length);
+        String quizId = lines[0].substring("quiz: ".length());
+
+        HttpResponse<String> score = send("POST", "/quizzes/" + quizId + "/answers", "wrong\nwrong");
+        assertEquals(200, score.statusCode());
+        assertEquals("score: 0.0", score.body().trim());
+
+        // The answers of a quiz can only be submitted once
+        assertEquals(400, send("POST", "/quizzes/" + quizId + "/answers", "wrong\nwrong").statusCode());
+
+        HttpResponse<String> statistics = send("GET", "/statistics?student=" + studentId, null);
+        assertEquals(200, statistics.statusCode());
+        assertTrue(statistics.body().contains("Number of regular quiz attempts: 1"));
+
+        HttpResponse<String> cohort = send("GET", "/cohort", null);
+        assertEquals(200, cohort.statusCode());
+        // The cohort only has the students of this server
+        assertTrue(cohort.body().startsWith("Students: 1\n"), cohort.body());
+
+        HttpResponse<String> metrics = send("GET", "/metrics", null);
+        assertEquals(200, metrics.statusCode());
+        assertTrue(metrics.body().contains("takeQuiz: count "));
+
+        // The two questions answered incorrectly stay available for revision, with the two not seen
+        assertEquals(200, send("POST", "/revisions?student=" + studentId + "&questions=4", "").statusCode());
+        assertEquals(400, send("POST", "/revisions?student=" + studentId + "&questions=5", "").statusCode());
+    }
+
+    @Test
+    public void testInvalidRequests() throws Exception {
+        assertEquals(400, send("POST", "/students?firstName=Jhostin", "").statusCode());
+        assertEquals(400, send("POST", "/quizzes?student=99&questions=2", "").statusCode());
+        assertEquals(405, send("GET", "/quizzes?student=0&questions=2", null).statusCode());
+    }
+
+    /**
+     * Test that a quiz stays open when the attempt is not recorded because of the state of the student.
+     */
+    @Test
+    public void testQuizStaysOpenWhenTheAttemptIsRejected() throws Exception {
+        String studentId = register("Ada");
+        String passed = generate(studentId, 4).get(0);
+        String other = generate(studentId, 4).get(0);
+        List<String> quiz = generate(studentId, 4);
+        assertEquals(200, send("POST", "/quizzes/" + quiz.get(0) + "/answers", correctAnswers(quiz)).statusCode());
+
+        // The student passed, so the other quiz cannot be taken, but it is still open
+        assertEquals(409, send("POST", "/quizzes/" + other + "/answers", "").statusCode());
+        assertEquals(409, send("POST", "/quizzes/" + other + "/answers", "").statusCode());
+        assertEquals(409, send("POST", "/quizzes/" + passed + "/answers", "").statusCode());
+    }
+
+    /**
+     * Test that quizzes are closed after the timeout, and that new quizzes are rejected while the
+     * maximum number of quizzes are open.
+     */
+    @Test
+    public void testOpenQuizzesAreLimited() throws Exception {
+        server.stop(0);
+        server = new QuizServer(questionPool, 0, Duration.ofMillis(300), 2);
+        server.start();
+        String studentId = register("Grace");
+
+        String first = generate(studentId, 1).get(0);
+        generate(studentId, 1);
+        HttpResponse<String> rejected = send("POST", "/quizzes?student=" + studentId + "&questions=1", "");
+        assertEquals(503, rejected.statusCode());
+
+        Thread.sleep(400);
+        assertEquals(400, send("POST", "/quizzes/" + first + "/answers", "wrong").statusCode());
+        assertEquals(200, send("POST", "/quizzes?student=" + studentId + "&questions=1", "").statusCode());
+    }
+
+    /**
+     * Test that a submission not graded within the timeout gets a 503 response, and that its quiz is not
+     * opened again because the attempt is still recorded.
+     */
+    @Test
+    public void testSlowSubmissionTimesOut() throws Exception {
+        CountDownLatch grading = new CountDownLatch(1);
+        Question slow = new FreeResponseQuestion("What is the capital of Italy?", "Rome") {
+            @Override
+            public boolean checkAnswer(String answer) {
+                try {
+                    grading.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.checkAnswer(answer);
+            }
+        };
+        server.stop(0);
+        server = new QuizServer(List.of(slow), 0, Duration.ofHours(1), 10, Duration.ofMillis(200));
+        server.start();
+        String studentId = register("Alan");
+        String quiz = generate(studentId, 1).get(0);
+
+        HttpResponse<String> timedOut = send("POST", "/quizzes/" + quiz + "/answers", "Rome");
+        assertEquals(503, timedOut.statusCode());
+        grading.countDown();
+        assertEquals(400, send("POST", "/quizzes/" + quiz + "/answers", "Rome").statusCode());
+
+        for (int i = 0; i < 100; i++) {
+            String statistics = send("GET", "/statistics?student=" + studentId, null).body();
+            if (statistics.contains("Number of regular quiz attempts: 1")) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("The attempt that timed out was not recorded");
+    }
+
+    private String register(String firstName) throws Exception {
+        HttpResponse<String> student = send("POST", "/students?firstName=" + firstName + "&lastName=Test&dateOfBirth=2000-01-01", "");
+        assertEquals(200, student.statusCode());
+        return student.body().trim().substring("student: ".length());
+    }
+
+    /**
+     * Generates a quiz and returns its id followed by the formulation of each question.
+     */
+    private List<String> generate(String studentId, int questions) throws Exception {
+        HttpResponse<String> quiz = send("POST", "/quizzes?student=" + studentId + "&questions=" + questions, "");
+        assertEquals(200, quiz.statusCode());
+        List<String> result = new ArrayList<>();
+        for (String line : quiz.body().split("\n")) {
+            result.add(line.substring(line.indexOf(": ") + 2));
+        }
+        return result;
+    }
+
+    private String correctAnswers(List<String> quiz) {
+        StringBuilder answers = new StringBuilder();
+        for (String formulation : quiz.subList(1, quiz.size())) {
+            answers.append(this.answers.get(formulation)).append("\n");
+        }
+        return answers.toString();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -96,6 +96,24 @@ public class RegularQuizTest {
 
         assertEquals(3, regularQuiz.getStudentHistory().get(student).size());
     }
-}
 
+    /**
+     * Test regrading the attempts of several students, checking the answers
+     * question by question without changing the statistics.
+     */
+
+    @Test
+    public void testRegradeQuiz() {
+
+        List<Question> quizQuestions = questionPool.subList(0, 3);
+        List<List<String>> attempts = List.of(
+                List.of("Madrid", "H2O", "a,c"),
+                List.of("Madrid", "Wrong", "c, a"),
+                List.of("Wrong", "Wrong", "a"));
+
+        double[] scores = regularQuiz.regradeQuiz(quizQuestions, attempts);
 
+        assertArrayEquals(new double[]{1.0, 2.0 / 3.0, 0.0}, scores);
+        assertEquals(0, student.getStatistics().getRegularAttempts());
+    }
+}
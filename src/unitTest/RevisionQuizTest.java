@@ -3,6 +3,7 @@ package unitTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import question.FreeResponseQuestion;
+import question.GradingCache;
 import question.MultipleChoiceQuestion;
 import question.Question;
 import quiz.Quiz;
@@ -184,8 +185,110 @@ public class RevisionQuizTest {
         assertTrue(recordedHistory.containsAll(secondRevisionQuestions));
     }
 
+    /**
+     * Test that recording the same questions twice does not repeat them in the history,
+     * and that the revision quiz only selects the questions that are left.
+     */
+    @Test
+    public void testHistoryDoesNotRepeatQuestions() {
 
-}
+        quizFactory.recordSeenQuestions(student, questionPool.subList(0, 8));
+        quizFactory.recordSeenQuestions(student, questionPool.subList(0, 8));
 
+        assertEquals(8, quizFactory.getStudentHistory().get(student).size());
+
+        Quiz revisionQuiz = quizFactory.revise(student, 2);
+        assertNotNull(revisionQuiz);
+        assertThrows(IllegalArgumentException.class, () -> quizFactory.revise(student, 3));
+    }
+
+    /**
+     * Test that questions answered incorrectly stay available for revision, and questions answered
+     * correctly do not. Answering a question correctly removes it from the incorrect ones.
+     */
+    @Test
+    public void testIncorrectQuestionsAreOfferedAgain() {
+        quizFactory.recordSeenQuestions(student, questionPool.subList(2, 10));
+        quizFactory.takeQuiz(student, questionPool.subList(0, 2), List.of("Madrid", "wrong"));
+
+        assertEquals(10, quizFactory.getStudentHistory().get(student).size());
+        assertEquals(Set.of(1), new HashSet<>(
+                Arrays.asList(quizFactory.getIncorrectQuestionIds(student).stream().boxed().toArray(Integer[]::new))));
+        Quiz revisionQuiz = quizFactory.revise(student, 1);
+        assertEquals(List.of(questionPool.get(1)), ((QuizFactory) revisionQuiz).getQuestions());
+        assertThrows(IllegalArgumentException.class, () -> quizFactory.revise(student, 2));
+
+        quizFactory.takeQuiz(student, questionPool.subList(1, 2), List.of("h2o"));
+        assertTrue(quizFactory.getIncorrectQuestionIds(student).isEmpty());
+    }
 
+    /**
+     * Test that incorrect questions are selected more often than unseen ones.
+     */
+    @Test
+    public void testIncorrectQuestionsAreFavoured() {
+        quizFactory.takeQuiz(student, questionPool.subList(0, 1), List.of("wrong"));
+
+        int incorrectSelected = 0;
+        for (int i = 0; i < 2000; i++) {
+            List<Question> selected = ((QuizFactory) quizFactory.revise(student, 1)).getQuestions();
+            if (selected.get(0).equals(questionPool.get(0))) {
+                incorrectSelected++;
+            }
+        }
+        // 3 / (3 + 9) = 25% expected, an unseen question alone would get 10%
+        assertTrue(incorrectSelected > 400 && incorrectSelected < 600, "Selected " + incorrectSelected);
+    }
 
+    /**
+     * Test that the revision questions and the history are the objects of the pool, so a pool of questions
+     * wrapped by a grading cache keeps using the cache.
+     */
+    @Test
+    public void testSelectionReturnsTheObjectsOfThePool() {
+        GradingCache cache = new GradingCache(16);
+        List<Question> wrappedPool = new ArrayList<>();
+        for (Question question : questionPool) {
+            wrappedPool.add(cache.wrap(question));
+        }
+        RevisionQuiz wrappedQuiz = new RevisionQuiz(wrappedPool, student);
+        wrappedQuiz.recordSeenQuestions(student, wrappedPool.subList(0, 9));
+
+        Question selected = ((QuizFactory) wrappedQuiz.revise(student, 1)).getQuestions().get(0);
+        assertSame(wrappedPool.get(9), selected);
+        for (Question seen : wrappedQuiz.getStudentHistory().get(student)) {
+            assertTrue(wrappedPool.stream().anyMatch(question -> question == seen));
+        }
+    }
+
+    /**
+     * Test that a revision selects only unseen and incorrect questions of the pool, and skips the positions
+     * that repeat a question of the pool.
+     */
+    @Test
+    public void testSelectionSkipsSeenAndRepeatedQuestions() {
+        List<Question> pool = new ArrayList<>(questionPool);
+        pool.add(new FreeResponseQuestion("What is the capital of Spain?", "Madrid"));
+        pool.add(new FreeResponseQuestion("What is 2 + 2?", "4"));
+        RevisionQuiz quiz = new RevisionQuiz(pool, student);
+        quiz.recordSeenQuestions(student, pool.subList(0, 3));
+        quiz.takeQuiz(student, pool.subList(5, 7), List.of("wrong", "c, d"));
+        quiz.recordSeenQuestions(student, List.of(new FreeResponseQuestion("Not in the pool", "No")));
+
+        // Unseen: 3, 4, 7, 8, 9 and 11, incorrect: 5
+        Set<Question> eligible = new HashSet<>();
+        for (int position : new int[]{3, 4, 5, 7, 8, 9, 11}) {
+            eligible.add(pool.get(position));
+        }
+        Set<Question> offered = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            List<Question> selected = ((QuizFactory) quiz.revise(student, 3)).getQuestions();
+            assertEquals(3, new HashSet<>(selected).size());
+            assertTrue(eligible.containsAll(selected));
+            offered.addAll(selected);
+        }
+        assertEquals(eligible, offered);
+        assertEquals(eligible, new HashSet<>(((QuizFactory) quiz.revise(student, 7)).getQuestions()));
+        assertThrows(IllegalArgumentException.class, () -> quiz.revise(student, 8));
+    }
+}
@@ -0,0 +1,262 @@
+package unitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import question.FreeResponseQuestion;
+import question.Question;
+import question.QuestionBank;
+import quiz.Quiz;
+import shard.ShardRouter;
+import shard.ShardServer;
+import student.Student;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ShardRouter class, with shards started in this process and in other processes.
+ */
+public class ShardRouterTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Question> questionPool;
+    private Map<Question, String> correctAnswers;
+    private final List<ShardServer> shards = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        questionPool = new ArrayList<>();
+        correctAnswers = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            Question question = new FreeResponseQuestion("Question " + i, "Answer " + i);
+            questionPool.add(question);
+            correctAnswers.put(question, "Answer " + i);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (ShardServer shard : shards) {
+            shard.close();
+        }
+    }
+
+    @Test
+    public void testStudentsAreRoutedToTheirShard() throws IOException {
+        try (ShardRouter router = new ShardRouter(questionPool, List.of(startShard(), startShard()))) {
+            Set<InetSocketAddress> used = new HashSet<>();
+            for (int i = 0; i < 20; i++) {
+                Student student = student(i);
+                Quiz quiz = router.generateQuiz(2);
+                List<Question> questions = ((ShardRouter) quiz).getQuestions();
+                assertEquals(0.0, quiz.takeQuiz(student, questions, List.of("wrong", "wrong")));
+                assertTrue(router.getStatistics(student).contains("Number of regular quiz attempts: 1"));
+                used.add(router.shardOf(student));
+            }
+
+            assertEquals(2, used.size());
+            assertEquals(20, shards.get(0).getStudentCount() + shards.get(1).getStudentCount());
+        }
+    }
+
+    @Test
+    public void testShardErrorsAreThrownByTheRouter() throws IOException {
+        try (ShardRouter router = new ShardRouter(questionPool, List.of(startShard()))) {
+            Student student = student(0);
+            Quiz quiz = router.generateQuiz(4);
+            List<Question> questions = ((ShardRouter) quiz).getQuestions();
+
+            assertEquals(1.0, quiz.takeQuiz(student, questions, answers(questions, Set.copyOf(questions))));
+            // The student passed, so there are no revision quizzes
+            assertThrows(IllegalStateException.class, () -> router.revise(student, 1));
+            assertThrows(IllegalArgumentException.class, () -> quiz.takeQuiz(student, questions, List.of("one answer")));
+            List<Question> foreign = List.of(new FreeResponseQuestion("Not in the pool", "No"));
+            assertThrows(IllegalArgumentException.class, () -> quiz.takeQuiz(student, foreign, List.of("No")));
+        }
+    }
+
+    @Test
+    public void testAddingAShardKeepsTheHistoryOfMovedStudents() throws IOException {
+        try (ShardRouter router = new ShardRouter(questionPool, List.of(startShard(), startShard()))) {
+            List<Student> students = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                Student student = student(i);
+                students.add(student);
+                Quiz quiz = router.generateQuiz(4);
+                List<Question> questions = ((ShardRouter) quiz).getQuestions();
+                // Only the first question of the pool is answered correctly
+                assertEquals(0.25, quiz.takeQuiz(student, questions, answers(questions, Set.of(questionPool.get(0)))));
+            }
+
+            InetSocketAddress added = startShard();
+            int moved = router.addShard(added);
+
+            assertTrue(moved > 0 && moved < students.size(), "Moved " + moved);
+            assertEquals(moved, shards.get(2).getStudentCount());
+            assertEquals(3, router.getShards().size());
+            for (Student student : students) {
+                assertTrue(router.getStatistics(student).contains("Number of regular quiz attempts: 1"));
+                // Only the three incorrectly answered questions can be revised
+                assertThrows(IllegalArgumentException.class, () -> router.revise(student, 4));
+                ShardRouter revision = (ShardRouter) router.revise(student, 3);
+                assertTrue(revision.isRevision());
+                assertFalse(revision.getQuestions().contains(questionPool.get(0)));
+            }
+            assertEquals(30, shards.get(0).getStudentCount() + shards.get(1).getStudentCount() + shards.get(2).getStudentCount());
+            assertThrows(IllegalArgumentException.class, () -> router.addShard(added));
+        }
+    }
+
+    @Test
+    public void testShardsWithAnotherPoolAreRejected() throws IOException {
+        List<Question> otherPool = new ArrayList<>(questionPool);
+        Collections.swap(otherPool, 0, 1);
+        ShardServer other = new ShardServer(otherPool, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        other.start();
+        shards.add(other);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), other.getPort());
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardRouter(questionPool, List.of(address)));
+        try (ShardRouter router = new ShardRouter(questionPool, List.of(startShard()))) {
+            assertThrows(IllegalArgumentException.class, () -> router.addShard(address));
+            assertEquals(1, router.getShards().size());
+        }
+    }
+
+    @Test
+    public void testFailedAddLeavesTheStudentsInTheirShards() throws IOException {
+        try (ShardRouter router = new ShardRouter(questionPool, List.of(startShard(), startShard()))) {
+            List<Student> students = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                Student student = student(i);
+                students.add(student);
+                Quiz quiz = router.generateQuiz(4);
+                List<Question> questions = ((ShardRouter) quiz).getQuestions();
+                quiz.takeQuiz(student, questions, answers(questions, Set.of()));
+            }
+
+            // The new shard already has half of the students, so they cannot be moved to it
+            InetSocketAddress added = startShard();
+            try (ShardRouter other = new ShardRouter(questionPool, List.of(added))) {
+                for (Student student : students.subList(15, 30)) {
+                    Quiz quiz = other.generateQuiz(1);
+                    List<Question> questions = ((ShardRouter) quiz).getQuestions();
+                    quiz.takeQuiz(student, questions, answers(questions, Set.of()));
+                }
+            }
+
+            assertThrows(IllegalStateException.class, () -> router.addShard(added));
+            assertEquals(2, router.getShards().size());
+            assertEquals(15, shards.get(2).getStudentCount());
+            assertEquals(30, shards.get(0).getStudentCount() + shards.get(1).getStudentCount());
+            for (Student student : students) {
+                assertTrue(router.getStatistics(student).contains("Number of regular quiz attempts: 1"));
+            }
+        }
+    }
+
+    @Test
+    public void testClosingAShardClosesItsConnections() throws IOException {
+        InetSocketAddress address = startShard();
+        try (ShardRouter router = new ShardRouter(questionPool, List.of(address))) {
+            Student student = student(0);
+            assertTrue(router.getStatistics(student).contains("Number of regular quiz attempts: 0"));
+
+            shards.get(0).close();
+            assertThrows(UncheckedIOException.class, () -> router.getStatistics(student));
+        }
+    }
+
+    @Test
+    public void testShardThatDoesNotAnswerTimesOut() throws IOException {
+        // The connection is accepted by the system, but nothing reads the requests
+        try (ServerSocket hung = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), hung.getLocalPort());
+            long start = System.nanoTime();
+            UncheckedIOException e = assertThrows(UncheckedIOException.class,
+                    () -> new ShardRouter(questionPool, List.of(address), Duration.ofMillis(200)));
+            assertInstanceOf(SocketTimeoutException.class, e.getCause());
+            assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardRouter(questionPool, List.of(startShard()), Duration.ZERO));
+    }
+
+    @Test
+    public void testShardsInOtherProcesses() throws Exception {
+        Path file = directory.resolve("bank.qb");
+        QuestionBank.write(file, questionPool);
+        QuestionBank bank = QuestionBank.open(file);
+        // The classes of the shard, wherever the test runner loaded them from
+        String classPath = Path.of(ShardServer.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        List<Process> processes = new ArrayList<>();
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-cp", classPath, "shard.ShardServer", file.toString())
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+                BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                String line = output.readLine();
+                assertNotNull(line, "The shard process did not start");
+                int port = Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            }
+
+            try (ShardRouter router = new ShardRouter(bank.getQuestions(), addresses)) {
+                for (int i = 0; i < 10; i++) {
+                    Student student = student(i);
+                    Quiz quiz = router.generateQuiz(2);
+                    List<Question> questions = ((ShardRouter) quiz).getQuestions();
+                    List<String> answers = new ArrayList<>();
+                    for (Question question : questions) {
+                        answers.add("Answer " + question.getQuestionFormulation().substring("Question ".length()));
+                    }
+                    assertEquals(1.0, quiz.takeQuiz(student, questions, answers));
+                    assertTrue(router.getStatistics(student).contains("Number of regular quiz attempts: 1"));
+                }
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    private InetSocketAddress startShard() throws IOException {
+        ShardServer shard = new ShardServer(questionPool, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        shard.start();
+        shards.add(shard);
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), shard.getPort());
+    }
+
+    private static Student student(int i) {
+        return new Student("Student" + i, "Shard", new Date(900_000_000_000L + i * 86_400_000L));
+    }
+
+    private List<String> answers(List<Question> questions, Set<Question> correct) {
+        List<String> answers = new ArrayList<>();
+        for (Question question : questions) {
+            answers.add(correct.contains(question) ? correctAnswers.get(question) : "wrong");
+        }
+        return answers;
+    }
+}
@@ -0,0 +1,104 @@
+package unitTest;
+
+import org.junit.jupiter.api.Test;
+import statistics.StatisticsExporter;
+import statistics.StatisticsExporter.Format;
+import student.Student;
+import student.StudentRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StatisticsExporter class, which writes the statistics of many students as CSV or JSON.
+ */
+public class StatisticsExporterTest {
+
+    @Test
+    public void testCsvExport() throws IOException {
+        StringWriter out = new StringWriter();
+        long count = new StatisticsExporter(Format.CSV).export(students(), out);
+
+        assertEquals(2, count);
+        assertEquals("firstName,lastName,dateOfBirth,verdict,regularAttempts,revisionAttempts,"
+                + "regularScore1,regularScore2,revisionScore1,revisionScore2\n"
+                + "Jhostin,Ocampo,1998-12-10,FAIL,2,1,0.3,0.4,0.6,\n"
+                + "\"Ana, \"\"Jr\"\"\",Díaz,2001-02-03,TBD,0,0,,,,\n", out.toString());
+    }
+
+    @Test
+    public void testJsonExport() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new StatisticsExporter(Format.JSON).export(students(), out);
+
+        assertEquals("[\n"
+                + "{\"firstName\":\"Jhostin\",\"lastName\":\"Ocampo\",\"dateOfBirth\":\"1998-12-10\",\"verdict\":\"FAIL\","
+                + "\"regularScores\":[0.3,0.4],\"revisionScores\":[0.6]},\n"
+                + "{\"firstName\":\"Ana, \\\"Jr\\\"\",\"lastName\":\"Díaz\",\"dateOfBirth\":\"2001-02-03\",\"verdict\":\"TBD\","
+                + "\"regularScores\":[],\"revisionScores\":[]}\n"
+                + "]\n", out.toString());
+
+        StringBuilder empty = new StringBuilder();
+        assertEquals(0, new StatisticsExporter(Format.JSON).export(List.of(), empty));
+        assertEquals("[]\n", empty.toString());
+    }
+
+    /**
+     * An export bigger than the buffer, with chars of several bytes, is the same through a channel as through a Writer.
+     */
+    @Test
+    public void testChannelExportMatchesWriterExport() throws IOException {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Student student = new Student("Zoë😀" + i, "Ocampo", date(1990 + i % 20, 1 + i % 12, 1 + i % 28));
+            student.getStatistics().recordRegularQuizScore(i % 10 / 10.0);
+            students.add(student);
+        }
+        StatisticsExporter exporter = new StatisticsExporter(Format.JSON);
+        StringWriter writer = new StringWriter();
+        exporter.export(students, writer);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // The same exporter is reused
+        assertEquals(5000, exporter.export(students, Channels.newChannel(bytes)));
+
+        assertEquals(writer.toString(), bytes.toString(StandardCharsets.UTF_8));
+        assertTrue(writer.toString().contains("\"firstName\":\"Zoë😀4999\",\"lastName\":\"Ocampo\",\"dateOfBirth\":\"2009-08-16\""));
+    }
+
+    @Test
+    public void testRegistryExport() throws IOException {
+        StudentRegistry registry = new StudentRegistry();
+        for (Student student : students()) {
+            registry.intern(student);
+        }
+        StringBuilder out = new StringBuilder();
+
+        assertEquals(2, new StatisticsExporter(Format.CSV).export(registry, out));
+        assertEquals(3, out.toString().split("\n").length);
+        assertThrows(IllegalArgumentException.class, () -> new StatisticsExporter(null));
+        assertThrows(IllegalArgumentException.class, () -> new StatisticsExporter(Format.CSV).export((StudentRegistry) null, out));
+    }
+
+    private static List<Student> students() {
+        Student failed = new Student("Jhostin", "Ocampo", date(1998, 12, 10));
+        failed.getStatistics().recordRevisionQuizScore(0.6);
+        failed.getStatistics().recordRegularQuizScore(0.3);
+        failed.getStatistics().recordRegularQuizScore(0.4);
+        Student pending = new Student("Ana, \"Jr\"", "Díaz", date(2001, 2, 3));
+        return List.of(failed, pending);
+    }
+
+    private static Date date(int year, int month, int day) {
+        return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+}
@@ -3,11 +3,16 @@ package unitTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import statistics.Statistics;
+import statistics.Verdict;
 import student.Student;
 
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -83,4 +88,137 @@ public class StatisticsTest {
         assertTrue(report.contains("Regular quiz scores: [0.3, 0.6]"));
         assertTrue(report.contains("Revision quiz scores: [0.4, 0.5]"));
     }
+
+    @Test
+    public void testGenerateStatisticsWithoutAttempts() {
+        String report = statistics.generateStatistics();
+
+        assertTrue(report.contains("Final verdict: TBD"));
+        assertTrue(report.contains("Regular quiz scores: []"));
+        assertTrue(report.contains("Revision quiz scores: []"));
+    }
+
+    @Test
+    public void testFinalVerdictState() {
+        assertEquals(Verdict.TBD, statistics.getFinalVerdict());
+        statistics.recordRegularQuizScore(0.5);
+        assertEquals(Verdict.PASS, statistics.getFinalVerdict());
+
+        statistics.recordRegularQuizScore(0.1);  // Verdict already given, not recorded
+        assertEquals(1, statistics.getRegularAttempts());
+    }
+
+    @Test
+    public void testOnlyOneRegularAttemptInProgress() {
+        assertTrue(statistics.reserveRegularAttempt());
+        assertFalse(statistics.reserveRegularAttempt());  // Second submission at the same time
+
+        statistics.commitRegularAttempt(0.3);
+        assertEquals(1, statistics.getRegularAttempts());
+
+        assertTrue(statistics.reserveRegularAttempt());
+        statistics.cancelRegularAttempt();
+        assertEquals(1, statistics.getRegularAttempts());
+        assertEquals("TBD", statistics.getVerdict());
+
+        assertThrows(IllegalStateException.class, () -> statistics.commitRegularAttempt(0.9));
+    }
+
+    @Test
+    public void testRecordingDuringAnAttemptInProgressFails() {
+        assertTrue(statistics.reserveRegularAttempt());
+        assertThrows(IllegalStateException.class, () -> statistics.recordRegularQuizScore(0.3));
+        statistics.cancelRegularAttempt();
+        statistics.recordRegularQuizScore(0.3);
+        assertEquals(1, statistics.getRegularAttempts());
+
+        assertTrue(statistics.reserveRevisionAttempt());
+        assertThrows(IllegalStateException.class, () -> statistics.recordRevisionQuizScore(0.4));
+        statistics.commitRevisionAttempt(0.4);
+        statistics.recordRevisionQuizScore(0.5);
+        statistics.recordRevisionQuizScore(0.6);  // No revision attempts left, not recorded
+        assertEquals(2, statistics.getRevisionAttempts());
+    }
+
+    @Test
+    public void testOnlyOneAttemptOfEitherTypeInProgress() {
+        assertTrue(statistics.reserveRegularAttempt());
+        assertFalse(statistics.reserveRevisionAttempt());  // Revision submitted while the regular one is graded
+        assertThrows(IllegalStateException.class, () -> statistics.recordRevisionQuizScore(0.4));
+        statistics.commitRegularAttempt(0.8);
+        assertEquals("PASS", statistics.getVerdict());
+
+        // The verdict was given, so the revision attempt is not admitted after it
+        assertFalse(statistics.reserveRevisionAttempt());
+        assertEquals(0, statistics.getRevisionAttempts());
+
+        Statistics other = new Statistics(student);
+        assertTrue(other.reserveRevisionAttempt());
+        assertFalse(other.reserveRegularAttempt());
+        assertThrows(IllegalStateException.class, () -> other.recordRegularQuizScore(0.8));
+        other.commitRevisionAttempt(0.4);
+        assertTrue(other.reserveRegularAttempt());
+    }
+
+    @Test
+    public void testConcurrentRegularAndRevisionAttempts() throws InterruptedException {
+        for (int run = 0; run < 200; run++) {
+            Statistics stats = new Statistics(student);
+            CountDownLatch start = new CountDownLatch(1);
+            Thread regular = new Thread(() -> {
+                awaitQuietly(start);
+                if (stats.reserveRegularAttempt()) {
+                    stats.commitRegularAttempt(0.9);
+                }
+            });
+            Thread revision = new Thread(() -> {
+                awaitQuietly(start);
+                if (stats.reserveRevisionAttempt()) {
+                    stats.commitRevisionAttempt(0.4);
+                }
+            });
+            regular.start();
+            revision.start();
+            start.countDown();
+            regular.join();
+            revision.join();
+
+            // A revision can only be recorded before the verdict, so replaying revisions first gives the same state
+            Statistics replayed = new Statistics(student);
+            for (double score : stats.getRevisionQuizScores()) {
+                replayed.recordRevisionQuizScore(score);
+            }
+            for (double score : stats.getRegularQuizScores()) {
+                replayed.recordRegularQuizScore(score);
+            }
+            assertEquals(stats.generateStatistics(), replayed.generateStatistics());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testConcurrentAttemptsRespectLimits() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    statistics.recordRevisionQuizScore(0.9);
+                    statistics.recordRegularQuizScore(0.1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(2, statistics.getRegularAttempts());
+        assertEquals("FAIL", statistics.getVerdict());
+        assertTrue(statistics.getRevisionAttempts() <= 2);
+    }
 }
@@ -0,0 +1,38 @@
+package unitTest;
+import org.junit.jupiter.api.Test;
+import student.Student;
+import student.StudentRegistry;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StudentRegistry class, checking that equal students
+ * are interned to the same dense id.
+ */
+public class StudentRegistryTest {
+
+    @Test
+    public void testInternEqualStudents() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(1998, Calendar.DECEMBER, 10);
+        Date birthDate = cal.getTime();
+
+        StudentRegistry registry = new StudentRegistry();
+        Student student = new Student("Jhostin", "Ocampo", birthDate);
+        Student sameStudent = new Student("JHOSTIN", "ocampo", birthDate);
+        Student otherStudent = new Student("Alixon", "Ocampo", birthDate);
+
+        assertEquals(StudentRegistry.UNREGISTERED, registry.idOf(student));
+        assertEquals(0, registry.intern(student));
+        assertEquals(0, registry.intern(sameStudent));
+        assertEquals(1, registry.intern(otherStudent));
+
+        assertEquals(0, registry.idOf(sameStudent));
+        assertSame(student, registry.get(0));
+        assertEquals(2, registry.size());
+        assertThrows(IllegalArgumentException.class, () -> registry.get(2));
+    }
+}
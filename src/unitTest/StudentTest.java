@@ -104,6 +104,23 @@ public class StudentTest {
         assertNotEquals(student1, student3);
     }
 
+    /**
+     * Test that names whose text runs into each other give different students and different keys.
+     */
+    @Test
+    public void testNamesAreNotMixedInTheKey() {
+        Date birthDate = new Date(0);
+        Student student1 = new Student("Ann\nLee", "Smith", birthDate);
+        Student student2 = new Student("Ann", "Lee\nSmith", birthDate);
+        Student student3 = new Student("ANN\nlee", "smith", birthDate);
+
+        assertNotEquals(student1, student2);
+        assertNotEquals(student1.getIdentityKey(), student2.getIdentityKey());
+        assertEquals(student1, student3);
+        assertEquals(student1.getIdentityKey(), student3.getIdentityKey());
+        assertEquals(student1.hashCode(), student3.hashCode());
+    }
+
     /**
      * Test for the toString method.
      */
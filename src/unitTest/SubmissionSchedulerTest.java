@@ -0,0 +1,145 @@
+package unitTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import question.FreeResponseQuestion;
+import question.Question;
+import quiz.RegularQuiz;
+import quiz.RevisionQuiz;
+import quiz.SubmissionScheduler;
+import quiz.SubmissionScheduler.Priority;
+import student.Student;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SubmissionScheduler class. Most tests use a single worker, blocked by a first task
+ * until the queues are filled, so the order in which the submissions run is known.
+ */
+public class SubmissionSchedulerTest {
+
+    private SubmissionScheduler scheduler;
+    private CountDownLatch release;
+    private List<String> order;
+
+    @BeforeEach
+    public void setup() throws InterruptedException {
+        scheduler = new SubmissionScheduler(1, 20, 4);
+        release = new CountDownLatch(1);
+        order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(Priority.REGULAR, () -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        scheduler.close();
+    }
+
+    private CompletableFuture<String> submit(Priority priority, String name) {
+        return scheduler.submit(priority, () -> {
+            order.add(name);
+            return name;
+        });
+    }
+
+    @Test
+    public void testRegularSubmissionsRunFirst() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(submit(Priority.REVISION, "revision " + i));
+        }
+        for (int i = 0; i < 3; i++) {
+            futures.add(submit(Priority.REGULAR, "regular " + i));
+        }
+        assertEquals(3, scheduler.getQueueDepth(Priority.REGULAR));
+        assertEquals(3, scheduler.getQueueDepth(Priority.REVISION));
+
+        release.countDown();
+        for (CompletableFuture<String> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("regular 0", "regular 1", "regular 2", "revision 0", "revision 1", "revision 2"), order);
+        assertEquals(4, scheduler.getCompleted(Priority.REGULAR));
+        assertEquals(3, scheduler.getCompleted(Priority.REVISION));
+        assertEquals(3, scheduler.getWaitTime(Priority.REVISION).getCount());
+        assertTrue(scheduler.generateReport().contains("submissions.revision: queued 0, completed 3, rejected 0"));
+    }
+
+    @Test
+    public void testRevisionsAreNotStarved() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        futures.add(submit(Priority.REVISION, "revision"));
+        for (int i = 0; i < 16; i++) {
+            futures.add(submit(Priority.REGULAR, "regular " + i));
+        }
+        release.countDown();
+        for (CompletableFuture<String> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        // The blocking task took the first turn, so the revision runs after the other regular turns of the first round
+        assertEquals(SubmissionScheduler.REVISION_TURN - 2, order.indexOf("revision"));
+    }
+
+    @Test
+    public void testFullQueueRejectsSubmissions() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            submit(Priority.REVISION, "revision " + i);
+        }
+        assertThrows(RejectedExecutionException.class, () -> submit(Priority.REVISION, "rejected"));
+        assertEquals(1, scheduler.getRejected(Priority.REVISION));
+        assertEquals(0, scheduler.getRejected(Priority.REGULAR));
+        // The regular queue is separate, so regular quizzes are still accepted
+        CompletableFuture<String> regular = submit(Priority.REGULAR, "regular");
+
+        release.countDown();
+        assertEquals("regular", regular.get(10, TimeUnit.SECONDS));
+        scheduler.close();
+        assertEquals(5, order.size());
+        assertThrows(RejectedExecutionException.class, () -> submit(Priority.REGULAR, "closed"));
+    }
+
+    @Test
+    public void testQuizSubmissions() throws Exception {
+        List<Question> questionPool = List.of(
+                new FreeResponseQuestion("Scheduled question one", "One"),
+                new FreeResponseQuestion("Scheduled question two", "Two"));
+        RegularQuiz regularQuiz = new RegularQuiz(questionPool);
+        RevisionQuiz revisionQuiz = new RevisionQuiz(questionPool, null);
+        Student student = new Student("Scheduled", "Student", new Date());
+
+        CompletableFuture<Double> revision = scheduler.submit(revisionQuiz, student, questionPool, List.of("one", "wrong"));
+        CompletableFuture<Double> regular = scheduler.submit(regularQuiz, student, questionPool, List.of("wrong", "wrong"));
+        assertEquals(1, scheduler.getQueueDepth(Priority.REGULAR));
+        assertEquals(1, scheduler.getQueueDepth(Priority.REVISION));
+        release.countDown();
+
+        assertEquals(0.0, regular.get(10, TimeUnit.SECONDS));
+        assertEquals(0.5, revision.get(10, TimeUnit.SECONDS));
+        assertEquals(1, student.getStatistics().getRegularAttempts());
+
+        CompletableFuture<Double> invalid = scheduler.submit(regularQuiz, student, questionPool, List.of("one"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> invalid.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IndexOutOfBoundsException.class, e.getCause());
+    }
+}